@@ -0,0 +1,229 @@
+package actors;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import ai.AiPlayer;
+import akka.actor.ActorRef;
+import akka.actor.TimerScheduler;
+import commands.BasicCommands;
+import rules.Action;
+import rules.GameStateAdapter;
+import rules.RulesState;
+import structures.GameState;
+
+/**
+ * Plays the AI's turn for a GameActor without blocking it. Each decision is
+ * made on a snapshot of the game by a thread of the AI executor, and the
+ * chosen action comes back to the GameActor as a Decision message, which
+ * plays it on the GameState and asks for the next one. The actor keeps
+ * handling other messages while the AI thinks, and the dispatcher shared by
+ * all games never runs a search.
+ * <p>
+ * A turn has a deadline: when the Deadline timer fires first, the search is
+ * cancelled and the turn ends. cancel() stops the search when the game ends
+ * or the socket closes, and stop() when the game actor stops. Every request
+ * is numbered, so a decision that arrives after its turn was cancelled is
+ * ignored.
+ * <p>
+ * During the human's turn a Ponder plans the AI's reply, and an action it
+ * planned for the position is played without searching again.
+ * <p>
+ * All methods but the search itself run on the GameActor.
+ */
+public final class AiTurn {
+
+    //    stops an AI that never ends its turn
+    private static final int MAX_AI_ACTIONS = 30;
+    private static final String DEADLINE_TIMER = "ai-deadline";
+
+    /**
+     * The action chosen for request
+     */
+    public static final class Decision {
+        private final long request;
+        private final int action;
+
+        Decision(long request, int action) {
+            this.request = request;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Time is up for the turn
+     */
+    public static final class Deadline {
+        private final long turn;
+
+        Deadline(long turn) {
+            this.turn = turn;
+        }
+    }
+
+    private final AiPlayer ai;
+    private final ExecutorService executor;
+    private final ActorRef self;
+    private final TimerScheduler timers;
+    private final Duration turnTime;
+    private final Ponder ponder;
+
+    private long turn;
+    private long request;
+    private boolean playing;
+    private int actions;
+    private Future<?> search;
+
+    /**
+     * @param ai       chooses the actions
+     * @param executor where the searches run
+     * @param self     the GameActor, which gets the Decision and Deadline messages
+     * @param timers   the GameActor's timers
+     * @param turnTime longest time the AI can spend on one turn
+     * @param ponder   plans the AI's turns during the human's
+     */
+    public AiTurn(AiPlayer ai, ExecutorService executor, ActorRef self, TimerScheduler timers, Duration turnTime,
+                  Ponder ponder) {
+        this.ai = ai;
+        this.executor = executor;
+        this.self = self;
+        this.timers = timers;
+        this.turnTime = turnTime;
+        this.ponder = ponder;
+    }
+
+    /**
+     * The AI's turn has started and its mana is set, ask for the first action
+     *
+     * @param gameState
+     */
+    public void start(GameState gameState) {
+        turn++;
+        playing = true;
+        actions = 0;
+        ponder.stop();
+        timers.startSingleTimer(DEADLINE_TIMER, new Deadline(turn), turnTime);
+        think(gameState);
+    }
+
+    /**
+     * @return true from start() until the AI's turn has ended or was cancelled
+     */
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public void onDecision(GameState gameState, Decision decision) {
+        if (!playing || decision.request != request) {
+            return;
+        }
+        search = null;
+        if (!isAiToPlay(gameState)) {
+            cancel();
+            return;
+        }
+        int action = decision.action;
+        if (Action.type(action) == Action.END_TURN || ++actions > MAX_AI_ACTIONS) {
+            endTurn(gameState);
+            return;
+        }
+        GameStateAdapter.perform(gameState, action);
+        if (GameStateAdapter.isGameOver(gameState)) {
+            cancel();
+            return;
+        }
+        if (Action.type(action) == Action.SUMMON || Action.type(action) == Action.SPELL) {
+            BasicCommands.pause(gameState.getOut(), 1000);
+        }
+        think(gameState);
+    }
+
+    public void onDeadline(GameState gameState, Deadline deadline) {
+        if (!playing || deadline.turn != turn) {
+            return;
+        }
+        System.err.println("AiTurn: out of time after " + actions + " actions");
+        if (isAiToPlay(gameState)) {
+            endTurn(gameState);
+        } else {
+            cancel();
+        }
+    }
+
+    /**
+     * Plan the AI's reply while the human plays, if it is the human's turn
+     *
+     * @param gameState
+     */
+    public void ponder(GameState gameState) {
+        if (!playing && !GameStateAdapter.isGameOver(gameState)
+                && gameState.getCurrentPlayer() == gameState.getPlayerContainers()[RulesState.HUMAN]) {
+            ponder.start(gameState);
+        }
+    }
+
+    /**
+     * Stop the search and pondering and forget the turn, the game is over or gone
+     */
+    public void cancel() {
+        ponder.cancel();
+        playing = false;
+        request++;
+        timers.cancel(DEADLINE_TIMER);
+        if (search != null) {
+            search.cancel(true);
+            search = null;
+        }
+    }
+
+    /**
+     * Cancel the turn for good and print what the AI and its pondering did, the game has stopped
+     */
+    public void stop() {
+        cancel();
+        System.out.println(ai);
+        System.out.println(ponder);
+    }
+
+    private void think(GameState gameState) {
+        long id = ++request;
+        RulesState state = GameStateAdapter.snapshot(gameState, gameState.nextDecisionSeed());
+        int planned = ponder.plannedAction(state);
+        if (planned != Ponder.NO_PLAN) {
+            self.tell(new Decision(id, planned), ActorRef.noSender());
+            return;
+        }
+        try {
+            search = executor.submit(() -> {
+                int action;
+                try {
+                    action = ai.nextAction(state);
+                } catch (RuntimeException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    System.err.println("AiTurn: search failed, ending the turn: " + e);
+                    action = Action.endTurn();
+                }
+                self.tell(new Decision(id, action), ActorRef.noSender());
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("AiTurn: the AI executor is full, ending the turn");
+            self.tell(new Decision(id, Action.endTurn()), ActorRef.noSender());
+        }
+    }
+
+    private void endTurn(GameState gameState) {
+        cancel();
+        BasicCommands.pause(gameState.getOut(), 500);
+        GameStateAdapter.perform(gameState, Action.endTurn());
+        ponder(gameState);
+    }
+
+    private static boolean isAiToPlay(GameState gameState) {
+        return !GameStateAdapter.isGameOver(gameState)
+                && gameState.getCurrentPlayer() == gameState.getPlayerContainers()[RulesState.AI];
+    }
+}
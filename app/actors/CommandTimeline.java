@@ -0,0 +1,463 @@
+package actors;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractActorWithTimers;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import commands.CommandBatch;
+import commands.CommandQueue;
+import play.libs.Json;
+
+/**
+ * Sits between the GameActor and the websocket and plays the commands sent
+ * to the front-end as a timeline. Commands are forwarded in order, a Pause
+ * holds back everything sent after it for the given time using an Akka
+ * timer. This lets the game logic resolve a move, attack or death at once
+ * while the UI still gets the gaps it needs to play the animations, and no
+ * dispatcher thread is blocked waiting for them.
+ * <p>
+ * Commands between two pauses are collected in a CommandBatch and sent as
+ * one frame when the GameActor has finished an event (Flush) or a Pause
+ * is reached.
+ * <p>
+ * The socket takes one frame at a time and says so with a SocketFlow.Ack.
+ * Commands ready while the last frame has not been taken wait in a
+ * CommandQueue, which coalesces the ones a slow front-end no longer needs,
+ * and are sent as one frame on the next Ack. A front-end more than close-at
+ * commands behind is given up: the GameActor is told Overflow and closes the
+ * socket.
+ * <p>
+ * A game outlives its socket. Frames are numbered and the last replay-frames
+ * of them kept, so a page that reconnects is sent the frames it missed, and
+ * the commands made while no socket was attached wait in the CommandQueue.
+ * <p>
+ * Every frame played is told to the game's Spectators as well, as the
+ * timeline plays it, whatever the players' socket has taken. The commands
+ * after a DrawFor up to the next Flush draw the board for a spectator that
+ * has joined, and are passed to the Spectators in their place in the
+ * timeline instead of being played. Commands dropped before they were played
+ * were not seen by the spectators either, they are told to Resync.
+ * Settings are read from application.conf under game.socket.
+ *
+ * @see commands.BasicCommands#pause(ActorRef, int)
+ * @see commands.BasicCommands#flush(ActorRef)
+ */
+public class CommandTimeline extends AbstractActorWithTimers {
+
+    private static final String MAX_QUEUED = "game.socket.max-queued";
+    private static final String CLOSE_AT = "game.socket.close-at";
+    private static final String REPLAY_FRAMES = "game.socket.replay-frames";
+
+    /**
+     * Delay the commands that follow by millis
+     */
+    public static final class Pause {
+        private final int millis;
+
+        public Pause(int millis) {
+            this.millis = millis;
+        }
+
+        public int getMillis() {
+            return millis;
+        }
+    }
+
+    /**
+     * Send the commands buffered so far
+     */
+    public enum Flush {
+        INSTANCE
+    }
+
+    /**
+     * Told to the parent when the front-end is too far behind to keep up
+     */
+    public enum Overflow {
+        INSTANCE
+    }
+
+    /**
+     * Send to the socket out from now on. A page that has just loaded has
+     * lastSeq 0 and is sent hello, with the number of its frame as seq, and
+     * nothing more until a Redraw. A page that still shows the board has had
+     * the frames up to lastSeq, the ones after it are sent again, or if they
+     * are gone the page is told to resync, it reloads.
+     */
+    public static final class Attach {
+        private final ActorRef out;
+        private final long lastSeq;
+        private final ObjectNode hello;
+
+        public Attach(ActorRef out, long lastSeq, ObjectNode hello) {
+            this.out = out;
+            this.lastSeq = lastSeq;
+            this.hello = hello;
+        }
+    }
+
+    /**
+     * The socket has closed, keep the commands until the next Attach
+     */
+    public enum Detach {
+        INSTANCE
+    }
+
+    /**
+     * The commands that follow draw the whole board, drop the ones not sent yet
+     */
+    public enum Redraw {
+        INSTANCE
+    }
+
+    /**
+     * The commands told after this up to the next Flush draw the board for
+     * the spectator of socket, see Spectators.Snapshot
+     */
+    public static final class DrawFor {
+        private final ActorRef socket;
+
+        public DrawFor(ActorRef socket) {
+            this.socket = socket;
+        }
+    }
+
+    /**
+     * Ask for the counts of the commands sent to the socket, the reply is Stats
+     */
+    public enum GetStats {
+        INSTANCE
+    }
+
+    /**
+     * Commands waiting for the socket now, and frames sent and commands
+     * coalesced and dropped so far, and frames sent again after a reconnect
+     */
+    public static final class Stats {
+        private final boolean attached;
+        private final int queued;
+        private final int maxDepth;
+        private final long frames;
+        private final long commands;
+        private final long coalesced;
+        private final long dropped;
+        private final long replayed;
+        private final long resyncs;
+
+        public Stats(boolean attached, int queued, int maxDepth, long frames, long commands, long coalesced,
+                     long dropped, long replayed, long resyncs) {
+            this.attached = attached;
+            this.queued = queued;
+            this.maxDepth = maxDepth;
+            this.frames = frames;
+            this.commands = commands;
+            this.coalesced = coalesced;
+            this.dropped = dropped;
+            this.replayed = replayed;
+            this.resyncs = resyncs;
+        }
+
+        public boolean isAttached() {
+            return attached;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public long getCommands() {
+            return commands;
+        }
+
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public long getReplayed() {
+            return replayed;
+        }
+
+        public long getResyncs() {
+            return resyncs;
+        }
+    }
+
+    private enum Resume {
+        INSTANCE
+    }
+
+    private final Deque<Object> pending = new ArrayDeque<>();
+    private final CommandBatch batch = new CommandBatch();
+    private final ActorRef spectators;
+    // the commands played since the last frame told to the spectators
+    private final CommandBatch watched = new CommandBatch();
+    // the spectator a board is being drawn for, and the frames drawn so far
+    private ActorRef drawingFor = null;
+    private List<Object> drawn;
+    private final CommandBatch drawing = new CommandBatch();
+    private final CommandQueue queue;
+    private final int closeAt;
+    // the last frames sent, the newest numbered lastSeq
+    private final Deque<JsonNode> sent = new ArrayDeque<>();
+    private final int replayFrames;
+    private final Deque<JsonNode> replay = new ArrayDeque<>();
+    private ActorRef out = null;
+    private long lastSeq = 0;
+    private boolean paused = false;
+    private boolean awaitingAck = false;
+    private boolean overflowed = false;
+    // the page has no board, commands are dropped until a Redraw
+    private boolean holding = true;
+    private long replayed = 0;
+    private long resyncs = 0;
+
+    public static Props props(Config config, ActorRef spectators) {
+        return Props.create(CommandTimeline.class, () -> new CommandTimeline(
+                config.hasPath(MAX_QUEUED) ? config.getInt(MAX_QUEUED) : 200,
+                config.hasPath(CLOSE_AT) ? config.getInt(CLOSE_AT) : 2000,
+                config.hasPath(REPLAY_FRAMES) ? config.getInt(REPLAY_FRAMES) : 64, spectators));
+    }
+
+    /**
+     * @param maxQueued    most commands waiting for the socket before animations are dropped
+     * @param closeAt      most commands waiting for the socket before it is given up
+     * @param replayFrames most frames kept to send again after a reconnect
+     * @param spectators   the game's Spectators, told every frame played
+     */
+    public CommandTimeline(int maxQueued, int closeAt, int replayFrames, ActorRef spectators) {
+        this.queue = new CommandQueue(maxQueued);
+        this.closeAt = closeAt;
+        this.replayFrames = replayFrames;
+        this.spectators = spectators;
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .matchEquals(Resume.INSTANCE, resume -> {
+                    paused = false;
+                    drain();
+                })
+                .matchEquals(SocketFlow.Ack.INSTANCE, ack -> {
+                    if (out == null) {
+                        return;
+                    }
+                    awaitingAck = false;
+                    if (!replay.isEmpty()) {
+                        out.tell(replay.poll(), getSelf());
+                        awaitingAck = true;
+                        return;
+                    }
+                    queue.drainTo(batch);
+                    sendBatch();
+                })
+                .match(Attach.class, this::attach)
+                .matchEquals(Detach.INSTANCE, detach -> {
+                    out = null;
+                    replay.clear();
+                })
+                .matchEquals(Redraw.INSTANCE, redraw -> {
+                    discard();
+                    holding = false;
+                })
+                .match(DrawFor.class, drawFor -> {
+                    drawingFor = drawFor.socket;
+                    drawn = new ArrayList<>();
+                })
+                .matchEquals(GetStats.INSTANCE, get -> getSender().tell(stats(), getSelf()))
+                .matchAny(message -> {
+                    if (drawingFor != null) {
+                        draw(message);
+                        return;
+                    }
+                    pending.add(message);
+                    drain();
+                }).build();
+    }
+
+    /**
+     * Keep message of the board drawn for a spectator, after the Flush that
+     * ends it the board takes its place in the timeline
+     */
+    private void draw(Object message) {
+        if (message instanceof JsonNode) {
+            drawing.add((JsonNode) message);
+            return;
+        }
+        JsonNode frame = drawing.flush();
+        if (frame != null) {
+            drawn.add(frame);
+        }
+        if (message instanceof Pause) {
+            drawn.add(message);
+        } else if (message == Flush.INSTANCE) {
+            pending.add(new Spectators.Snapshot(drawingFor, drawn));
+            drawingFor = null;
+            drawn = null;
+            drain();
+        } else {
+            unhandled(message);
+        }
+    }
+
+    private void attach(Attach attach) {
+        out = attach.out;
+        awaitingAck = false;
+        overflowed = false;
+        replay.clear();
+        long missed = lastSeq - attach.lastSeq;
+        if (attach.hello != null) {
+            discard();
+            holding = true;
+            ObjectNode hello = attach.hello.deepCopy();
+            hello.put("seq", lastSeq + 1);
+            send(hello);
+        } else if (!holding && missed >= 0 && missed <= sent.size()) {
+            //            the frames after the page's last are the newest missed ones
+            for (Iterator<JsonNode> frames = sent.descendingIterator(); replay.size() < missed; ) {
+                replay.addFirst(frames.next());
+            }
+            replayed += missed;
+            if (!replay.isEmpty()) {
+                out.tell(replay.poll(), getSelf());
+                awaitingAck = true;
+            } else {
+                queue.drainTo(batch);
+                sendBatch();
+            }
+        } else {
+            discard();
+            holding = true;
+            resyncs++;
+            ObjectNode resync = Json.newObject();
+            resync.put("messagetype", "resync");
+            out.tell(resync, getSelf());
+            awaitingAck = true;
+        }
+    }
+
+    /**
+     * Drop every command not sent yet and the pause holding them back, the
+     * spectators draw the board again
+     */
+    private void discard() {
+        pending.clear();
+        batch.clear();
+        queue.clear();
+        watched.clear();
+        paused = false;
+        getTimers().cancel(Resume.INSTANCE);
+        spectators.tell(Spectators.Resync.INSTANCE, getSelf());
+    }
+
+    private void drain() {
+        while (!paused && !pending.isEmpty()) {
+            Object message = pending.poll();
+            if (message instanceof Pause) {
+                sendBatch();
+                sendWatched();
+                int millis = ((Pause) message).getMillis();
+                if (millis > 0) {
+                    paused = true;
+                    getTimers().startSingleTimer(Resume.INSTANCE, Resume.INSTANCE, Duration.ofMillis(millis));
+                }
+            } else if (message == Flush.INSTANCE) {
+                sendBatch();
+                sendWatched();
+            } else if (message instanceof Spectators.Snapshot) {
+                // the spectator watches from the commands played after it
+                sendWatched();
+                spectators.tell(message, getSelf());
+            } else if (message instanceof JsonNode) {
+                watched.add((JsonNode) message);
+                if (holding) {
+                    continue;
+                }
+                if (out == null || awaitingAck) {
+                    queue.add((JsonNode) message);
+                } else {
+                    batch.add((JsonNode) message);
+                }
+            } else {
+                unhandled(message);
+            }
+        }
+        if (!overflowed && queue.isOverflowing(closeAt)) {
+            if (out == null) {
+                //                no socket to close, the page will have to resync
+                discard();
+                holding = true;
+            } else {
+                overflowed = true;
+                getContext().getParent().tell(Overflow.INSTANCE, getSelf());
+            }
+        }
+    }
+
+    private void sendBatch() {
+        if (out == null || awaitingAck) {
+            // sent with the queue on the next Ack or Attach
+            queue.endFrame();
+            return;
+        }
+        JsonNode frame = batch.flush();
+        if (frame != null) {
+            send(frame);
+        }
+    }
+
+    /**
+     * Tell the spectators the commands played since the last frame they were told
+     */
+    private void sendWatched() {
+        JsonNode frame = watched.flush();
+        if (frame != null) {
+            spectators.tell(frame, getSelf());
+        }
+    }
+
+    /**
+     * Send frame as the next in order, and keep it to send again
+     */
+    private void send(JsonNode frame) {
+        lastSeq++;
+        sent.add(frame);
+        if (sent.size() > replayFrames) {
+            sent.poll();
+        }
+        out.tell(frame, getSelf());
+        awaitingAck = true;
+    }
+
+    private Stats stats() {
+        return new Stats(out != null, queue.size(), queue.getMaxDepth(), batch.getFlushCount(),
+                batch.getCommandCount(), queue.getCoalescedCount(), queue.getDroppedCount(), replayed, resyncs);
+    }
+
+    @Override
+    public void postStop() {
+        System.out.println("CommandTimeline: " + batch + ", " + queue);
+    }
+}
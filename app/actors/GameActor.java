@@ -1,15 +1,25 @@
 package actors;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.typesafe.config.Config;
 
-import akka.actor.AbstractActor;
+import ai.AiPlayers;
+import akka.actor.AbstractActorWithTimers;
 import akka.actor.ActorRef;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import commands.BasicCommands;
+import commands.BoardSnapshot;
 import events.CardClicked;
 import events.EndTurnClicked;
 import events.EventProcessor;
@@ -20,6 +30,7 @@ import events.TileClicked;
 import events.UnitMoving;
 import events.UnitStopped;
 import play.libs.Json;
+import rules.GameStateAdapter;
 import structures.GameState;
 import utils.ImageListForPreLoad;
 import play.libs.Json;
@@ -29,33 +40,105 @@ import play.libs.Json;
  * the user clicks on the board) via a websocket connection. When an event arrives, the
  * processMessage() method is called, which can be used to react to the event. The Game actor
  * also includes an ActorRef object which can be used to issue commands to the UI to change
- * what the user sees. The GameActor is created when the user browser creates a websocket
- * connection to back-end services (on load of the game web page).
+ * what the user sees. The GameActor is created by the SessionRegistry when the user browser
+ * creates a websocket connection to back-end services (on load of the game web page), and
+ * outlives it: a GameSocket attaches each socket of the game, and the game stops when no
+ * socket has been attached for the reconnect grace. Any number of SpectatorSockets may
+ * watch the game, they are shown the board and then every frame the players are sent.
  *
  * @author Dr. Richard McCreadie
  */
-public class GameActor extends AbstractActor {
+public class GameActor extends AbstractActorWithTimers {
+
+    private static final String SPECTATOR_DISPATCHER = "game.dispatchers.spectators";
+
+    // clicks of the human, ignored while the AI is playing its turn
+    private static final Set<String> inputEvents = new HashSet<>(Arrays.asList(
+            "tileclicked", "cardclicked", "endturnclicked", "otherclicked"));
+
+    /**
+     * Sent by a GameSocket to attach its socket, see CommandTimeline.Attach
+     */
+    public static final class Connect {
+        private final ActorRef out;
+        private final long lastSeq;
+
+        public Connect(ActorRef out, long lastSeq) {
+            this.out = out;
+            this.lastSeq = lastSeq;
+        }
+    }
+
+    /**
+     * Sent by a SpectatorSocket that has connected, see Spectators.Join
+     */
+    public enum Spectate {
+        INSTANCE
+    }
+
+    /**
+     * Sent by a SpectatorSocket once its page is ready to be drawn the board
+     */
+    public enum SpectatorReady {
+        INSTANCE
+    }
+
+    private enum Grace {
+        INSTANCE
+    }
 
     private ObjectMapper mapper = new ObjectMapper(); // Jackson Java Object Serializer, is used to turn java objects to Strings
     private ActorRef out; // The ActorRef can be used to send messages to the front-end UI
     private Map<String, EventProcessor> eventProcessors; // Classes used to process each type of event
     private GameState gameState; // A class that can be used to hold game state information
+    private AiTurn aiTurn; // Plays the AI's turns, thinking off this actor
+    private ActorRef sessions; // The SessionRegistry, told when the socket sends a message
+    private long gameId; // The id the SessionRegistry gave this game
+    private String token; // Brought by a page to resume this game
+    private Duration reconnectGrace; // Longest this game runs without a socket
+    private ActorRef socket; // The GameSocket attached, null when there is none
+    private ActorRef spectators; // Sends the frames of this game to its spectators
+    private boolean redrawOnInitalize; // The page has loaded while a game was running
+
+    public static Props props(ActorRef sessions, long gameId, String token, Duration reconnectGrace) {
+        return Props.create(GameActor.class, () -> new GameActor(sessions, gameId, token, reconnectGrace));
+    }
 
     /**
-     * Constructor for the GameActor. This is called by the GameController when the websocket
-     * connection to the front-end is established.
+     * Constructor for the GameActor. This is called by the SessionRegistry when a websocket
+     * connection asks for a new game.
      *
-     * @param out
+     * @param sessions
+     * @param gameId
+     * @param token
+     * @param reconnectGrace
      */
-    @SuppressWarnings("deprecation")
-    public GameActor(ActorRef out) {
+    public GameActor(ActorRef sessions, long gameId, String token, Duration reconnectGrace) {
 
-        this.out = out; // save this, so we can send commands to the front-end later
+        this.sessions = sessions;
+        this.gameId = gameId;
+        this.token = token;
+        this.reconnectGrace = reconnectGrace;
+        getTimers().startSingleTimer(Grace.INSTANCE, Grace.INSTANCE, reconnectGrace);
+
+        // save this, so we can send commands to the front-end later. Commands go through a
+        // CommandTimeline so animation pauses are scheduled instead of blocking this actor, and
+        // are kept while no socket is attached. It runs on the dispatcher of this actor, the
+        // Spectators it tells every frame run on their own
+        Config config = getContext().getSystem().settings().config();
+        this.spectators = getContext().actorOf(Spectators.props().withDispatcher(config.hasPath(SPECTATOR_DISPATCHER)
+                ? SPECTATOR_DISPATCHER : getContext().getProps().dispatcher()), "spectators");
+        this.out = getContext().actorOf(CommandTimeline.props(config, spectators)
+                .withDispatcher(getContext().getProps().dispatcher()), "timeline");
 
         // create class instances to respond to the various events that we might recieve
         eventProcessors = new HashMap<String, EventProcessor>();
         eventProcessors.put("initalize", new Initalize());
-        eventProcessors.put("heartbeat", new Heartbeat());
+        Ponder ponder = new Ponder(() -> AiPlayers.forPondering(config), AiPlayers.ponderExecutor(config),
+                AiPlayers::isSearching, AiPlayers.ponderTime(config));
+        aiTurn = new AiTurn(AiPlayers.fromConfig(config), AiPlayers.executor(config), getSelf(), getTimers(),
+                AiPlayers.turnTime(config), ponder);
+        eventProcessors.put("heartbeat", new Heartbeat(aiTurn));
         eventProcessors.put("unitMoving", new UnitMoving());
         eventProcessors.put("unitstopped", new UnitStopped());
         eventProcessors.put("tileclicked", new TileClicked());
@@ -65,19 +148,33 @@ public class GameActor extends AbstractActor {
 
         // Initalize a new game state object
         gameState = new GameState();
-        gameState.setOut(out);
+        gameState.setOut(this.out);
+    }
 
+    /**
+     * The first message to a page that has just loaded, a spectator's page is not given the token
+     *
+     * @param spectator
+     * @return
+     */
+    @SuppressWarnings("deprecation")
+    private ObjectNode readyMessage(boolean spectator) {
         // Get the list of image files to pre-load the UI with
         Set<String> images = ImageListForPreLoad.getImageListForPreLoad();
 
+        ObjectNode readyMessage = Json.newObject();
+        readyMessage.put("messagetype", "actorReady");
+        if (spectator) {
+            readyMessage.put("spectator", true);
+        } else {
+            readyMessage.put("gameToken", token);
+        }
         try {
-            ObjectNode readyMessage = Json.newObject();
-            readyMessage.put("messagetype", "actorReady");
             readyMessage.put("preloadImages", mapper.readTree(mapper.writeValueAsString(images)));
-            out.tell(readyMessage, out);
         } catch (Exception e) {
             e.printStackTrace();
         }
+        return readyMessage;
     }
 
     /**
@@ -88,10 +185,79 @@ public class GameActor extends AbstractActor {
      */
     public Receive createReceive() {
         return receiveBuilder()
+                .match(Connect.class, connect -> {
+                    if (socket != null) {
+                        // the page is open elsewhere too, the newest socket plays
+                        getContext().unwatch(socket);
+                        socket.tell(new SocketFlow.Close(GameSocket.REPLACED, "Game opened on another page"), getSelf());
+                    }
+                    socket = getContext().watch(getSender());
+                    getTimers().cancel(Grace.INSTANCE);
+                    sessions.tell(new SessionRegistry.Activity(gameId), getSelf());
+                    boolean pageLoaded = connect.lastSeq == 0;
+                    redrawOnInitalize = pageLoaded && !GameStateAdapter.isGameOver(gameState);
+                    out.tell(new CommandTimeline.Attach(connect.out, connect.lastSeq,
+                            pageLoaded ? readyMessage(false) : null), getSelf());
+                })
+                .matchEquals(Spectate.INSTANCE, spectate ->
+                        spectators.tell(new Spectators.Join(readyMessage(true)), getSender()))
+                .matchEquals(SpectatorReady.INSTANCE, ready -> {
+                    // drawn in its place in the timeline, the frames played after it follow
+                    out.tell(new CommandTimeline.DrawFor(getSender()), getSelf());
+                    if (!GameStateAdapter.isGameOver(gameState)) {
+                        BoardSnapshot.draw(out, gameState);
+                    }
+                    BasicCommands.flush(out);
+                })
+                .match(Terminated.class, terminated -> {
+                    if (terminated.getActor().equals(socket)) {
+                        socket = null;
+                        out.tell(CommandTimeline.Detach.INSTANCE, getSelf());
+                        getTimers().startSingleTimer(Grace.INSTANCE, Grace.INSTANCE, reconnectGrace);
+                    }
+                })
+                .matchEquals(Grace.INSTANCE, grace -> {
+                    System.out.println("GameActor: game " + gameId + " closed, no socket for " + reconnectGrace);
+                    getContext().stop(getSelf());
+                })
                 .match(JsonNode.class, message -> {
                     System.out.println(message);
+                    sessions.tell(new SessionRegistry.Activity(gameId), getSelf());
                     processMessage(message.get("messagetype").asText(), message);
-                }).build();
+                })
+                .match(AiTurn.Decision.class, decision -> {
+                    aiTurn.onDecision(gameState, decision);
+                    BasicCommands.flush(out);
+                })
+                .match(AiTurn.Deadline.class, deadline -> {
+                    aiTurn.onDeadline(gameState, deadline);
+                    BasicCommands.flush(out);
+                })
+                .matchEquals(SessionRegistry.Evict.INSTANCE, evict -> {
+                    // the socket has been quiet for too long, the page is told not to reconnect
+                    System.out.println("GameActor: game " + gameId + " evicted");
+                    if (socket != null) {
+                        socket.tell(new SocketFlow.Close(GameSocket.EVICTED, "Game closed, idle for too long"), getSelf());
+                    }
+                    getContext().stop(getSelf());
+                })
+                .matchEquals(CommandTimeline.Overflow.INSTANCE, overflow -> {
+                    // the front-end cannot keep up with the commands, the page may reconnect
+                    if (socket != null) {
+                        System.out.println("GameActor: game " + gameId + " socket closed, it is too slow");
+                        socket.tell(PoisonPill.getInstance(), getSelf());
+                    }
+                })
+                .matchEquals(CommandTimeline.GetStats.INSTANCE, get -> out.forward(get, getContext()))
+                .matchEquals(Spectators.GetStats.INSTANCE, get -> spectators.forward(get, getContext())).build();
+    }
+
+    /**
+     * The game is over for good, stop the AI thinking and pondering for this game
+     */
+    @Override
+    public void postStop() {
+        aiTurn.stop();
     }
 
     /**
@@ -107,11 +273,34 @@ public class GameActor extends AbstractActor {
     public void processMessage(String messageType, JsonNode message) throws Exception {
 
         EventProcessor processor = eventProcessors.get(messageType);
+        if (aiTurn.isPlaying() && inputEvents.contains(messageType)) {
+            // not the human's turn
+            return;
+        }
+        if (messageType.equals("initalize")) {
+            // everything sent to the page before it was ready is dropped
+            out.tell(CommandTimeline.Redraw.INSTANCE, out);
+            if (redrawOnInitalize && !message.has("seed")) {
+                // the page has reloaded, it is shown the game it left
+                redrawOnInitalize = false;
+                BoardSnapshot.draw(out, gameState);
+                BasicCommands.flush(out);
+                return;
+            }
+            // a new game, the AI's turn in the old one is over
+            aiTurn.cancel();
+            gameState = new GameState();
+            gameState.setOut(out);
+        }
         if (processor == null) {
             // Unknown event type received
             System.err.println("GameActor: Recieved unknown event type " + messageType);
         } else {
             processor.processEvent(out, gameState, message); // process the event
+            if (messageType.equals("initalize") || inputEvents.contains(messageType)) {
+                aiTurn.ponder(gameState); // think about the AI's reply while the human plays
+            }
+            BasicCommands.flush(out); // send the commands of this event as one frame
         }
     }
 
@@ -121,5 +310,6 @@ public class GameActor extends AbstractActor {
         returnMessage.put("messagetype", "ERR");
         returnMessage.put("error", errorText);
         out.tell(returnMessage, out);
+        BasicCommands.flush(out);
     }
 }
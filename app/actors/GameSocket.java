@@ -0,0 +1,54 @@
+package actors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.actor.Terminated;
+
+/**
+ * One websocket of a game. It attaches the socket to the GameActor, passes
+ * on what the page sends, and lives as long as the socket: when it stops the
+ * game keeps running until a socket attaches again, and when the game stops
+ * it stops, which closes the socket. Told a SocketFlow.Close it closes the
+ * socket with that code, the page does not reconnect on EVICTED or REPLACED.
+ */
+public class GameSocket extends AbstractActor {
+
+    // the game has been stopped for being idle
+    public static final int EVICTED = 4000;
+    // the game is played on another page
+    public static final int REPLACED = 4001;
+
+    private final ActorRef out;
+    private final ActorRef game;
+
+    /**
+     * @param out     sends to the socket
+     * @param game    the GameActor
+     * @param lastSeq number of the last frame the page has, 0 for a page that has just loaded
+     */
+    public static Props props(ActorRef out, ActorRef game, long lastSeq) {
+        return Props.create(GameSocket.class, () -> new GameSocket(out, game, lastSeq));
+    }
+
+    public GameSocket(ActorRef out, ActorRef game, long lastSeq) {
+        this.out = out;
+        this.game = game;
+        getContext().watch(game);
+        game.tell(new GameActor.Connect(out, lastSeq), getSelf());
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(JsonNode.class, message -> game.tell(message, getSelf()))
+                .match(SocketFlow.Close.class, close -> {
+                    out.tell(new Status.Success(close), getSelf());
+                    getContext().stop(getSelf());
+                })
+                .match(Terminated.class, terminated -> getContext().stop(getSelf())).build();
+    }
+}
@@ -0,0 +1,177 @@
+package actors;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import ai.AiPlayer;
+import rules.Action;
+import rules.GameStateAdapter;
+import rules.Rules;
+import rules.RulesState;
+import structures.GameState;
+
+/**
+ * Thinks about the AI's next turn while the human player is still playing
+ * theirs, so the AI can answer at once when its turn comes. The continuation
+ * pondered is the human ending the turn on the position of the board; every
+ * action of the human changes that position and starts pondering again.
+ * <p>
+ * Pondering plays the AI's turn on the rules engine and keeps the action it
+ * chose for each position on the way, keyed by the position's hash without
+ * the human's hand, which holds whatever card the human draws and does not
+ * change during the AI's turn, and by the decision seed. Each decision is
+ * planned with the seed GameState will give the same decision of the turn,
+ * so a planned action is one the search could have chosen. AiTurn asks
+ * plannedAction before each search and plays a planned action that is still
+ * legal instead of searching.
+ * <p>
+ * Pondering is speculative and must not slow down real decisions: it runs on
+ * its own small executor, for at most the ponder time per position, and
+ * stops between decisions while any game's AI is searching. It is cancelled
+ * when the AI's turn starts or the game ends.
+ * <p>
+ * start, stop, cancel and plannedAction run on the GameActor.
+ */
+public final class Ponder {
+
+    /**
+     * What plannedAction returns for a position that was not pondered
+     */
+    public static final int NO_PLAN = -1;
+
+    //    longest turn planned, as AiTurn plays at most this many actions
+    private static final int MAX_PLAN_ACTIONS = 30;
+
+    private final Supplier<AiPlayer> ai;
+    private final ExecutorService executor;
+    private final BooleanSupplier searching;
+    private final long budgetNanos;
+
+    private long position;
+    private Future<?> task;
+    private Map<Long, Integer> plans = Collections.emptyMap();
+    private int planned;
+    private int unplanned;
+
+    /**
+     * @param ai        creates the player that plans a turn, one for each position pondered
+     * @param executor  where pondering runs
+     * @param searching whether the AI of a game is searching for a real decision
+     * @param budget    longest time spent pondering one position, zero to never ponder
+     */
+    public Ponder(Supplier<AiPlayer> ai, ExecutorService executor, BooleanSupplier searching, Duration budget) {
+        this.ai = ai;
+        this.executor = executor;
+        this.searching = searching;
+        this.budgetNanos = budget.toNanos();
+    }
+
+    /**
+     * Ponder the AI's reply to the human ending the turn now, unless this position is pondered already
+     *
+     * @param gameState with the human to play
+     */
+    public void start(GameState gameState) {
+        if (budgetNanos <= 0) {
+            return;
+        }
+        RulesState state = GameStateAdapter.snapshot(gameState, gameState.peekDecisionSeed(0));
+        if (task != null && state.getHash() == position) {
+            return;
+        }
+        stop();
+        position = state.getHash();
+        //        the seeds of the AI's next decisions, none are taken until its turn
+        long[] seeds = new long[MAX_PLAN_ACTIONS];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = gameState.peekDecisionSeed(i);
+        }
+        Map<Long, Integer> plans = new ConcurrentHashMap<>();
+        this.plans = plans;
+        long deadline = System.nanoTime() + budgetNanos;
+        try {
+            task = executor.submit(() -> plan(state, seeds, plans, deadline));
+        } catch (RejectedExecutionException e) {
+            //            every ponder thread is busy, the AI will search instead
+            task = null;
+        }
+    }
+
+    /**
+     * Stop pondering and keep the plans made so far, the AI's turn has started
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel(true);
+            task = null;
+        }
+    }
+
+    /**
+     * Stop pondering and forget the plans, the game is over or gone
+     */
+    public void cancel() {
+        stop();
+        plans = Collections.emptyMap();
+    }
+
+    /**
+     * @param state with the AI to play
+     * @return the action planned for state, NO_PLAN when there is none or it is not legal
+     */
+    public int plannedAction(RulesState state) {
+        Integer action = plans.get(key(state));
+        if (action == null || !Rules.isLegal(state, action)) {
+            unplanned++;
+            return NO_PLAN;
+        }
+        planned++;
+        return action;
+    }
+
+    /**
+     * Plays the AI's turn after the human ends theirs on state, off the GameActor
+     */
+    private void plan(RulesState state, long[] seeds, Map<Long, Integer> plans, long deadline) {
+        AiPlayer player = ai.get();
+        Rules.applyInPlace(state, Action.endTurn(), null);
+        for (int i = 0; i < MAX_PLAN_ACTIONS && !state.isGameOver(); i++) {
+            state.setSeed(seeds[i]);
+            if (Thread.currentThread().isInterrupted() || System.nanoTime() > deadline
+                    || searching.getAsBoolean()) {
+                return;
+            }
+            int action;
+            try {
+                action = player.nextAction(state);
+            } catch (RuntimeException e) {
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                //                a cut short search is no plan
+                return;
+            }
+            plans.put(key(state), action);
+            if (Action.type(action) == Action.END_TURN) {
+                return;
+            }
+            Rules.applyInPlace(state, action, null);
+        }
+    }
+
+    private static long key(RulesState state) {
+        return state.getHashWithoutHand(RulesState.HUMAN) ^ state.getSeed();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ponder: %d of %d decisions planned", planned, planned + unplanned);
+    }
+}
@@ -0,0 +1,336 @@
+package actors;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractActorWithTimers;
+import akka.actor.ActorRef;
+import akka.actor.OneForOneStrategy;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.actor.SupervisorStrategy;
+import akka.actor.Terminated;
+
+/**
+ * Keeps track of the games running on this server and starts them. The
+ * controller asks for a game before it accepts a socket, and the server is
+ * busy when max-games games are running. Each game is given a token; a socket
+ * that brings the token of a running game resumes it instead of starting a
+ * new one. A GameActor says each time its socket sends a message; games
+ * whose socket sends nothing for idle-timeout are evicted, which stops their
+ * GameActor and closes the socket. A game without a socket stops by itself
+ * after reconnect-grace, and a game that fails is stopped. A game is gone
+ * when its GameActor stops. Spectators find a running game by its id, they do
+ * not count as games.
+ * <p>
+ * Settings are read from application.conf under game.sessions.
+ */
+public class SessionRegistry extends AbstractActorWithTimers {
+
+    private static final String MAX_GAMES = "game.sessions.max-games";
+    private static final String IDLE_TIMEOUT = "game.sessions.idle-timeout";
+    private static final String RECONNECT_GRACE = "game.sessions.reconnect-grace";
+    private static final int TOKEN_BYTES = 16;
+
+    /**
+     * Ask for the game of token, or a new game if token is null or its game
+     * is gone; the reply is Admitted or Busy
+     */
+    public static final class Admit {
+        private final String token;
+
+        public Admit(String token) {
+            this.token = token;
+        }
+    }
+
+    /**
+     * The server runs as many games as it may, try again later
+     */
+    public enum Busy {
+        INSTANCE
+    }
+
+    /**
+     * The socket may play game, a new one or the one of the token it brought
+     */
+    public static final class Admitted {
+        private final long gameId;
+        private final ActorRef game;
+        private final boolean resumed;
+
+        public Admitted(long gameId, ActorRef game, boolean resumed) {
+            this.gameId = gameId;
+            this.game = game;
+            this.resumed = resumed;
+        }
+
+        public long getGameId() {
+            return gameId;
+        }
+
+        public ActorRef getGame() {
+            return game;
+        }
+
+        public boolean isResumed() {
+            return resumed;
+        }
+    }
+
+    /**
+     * Sent by the GameActor of gameId when its socket sends a message
+     */
+    public static final class Activity {
+        private final long gameId;
+
+        public Activity(long gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    /**
+     * Sent to a GameActor whose socket has been quiet for too long, it stops
+     */
+    public enum Evict {
+        INSTANCE
+    }
+
+    /**
+     * Ask for the counts of games, the reply is Stats
+     */
+    public enum GetStats {
+        INSTANCE
+    }
+
+    /**
+     * Ask for the counts of the commands sent to the socket of gameId, the
+     * reply is CommandTimeline.Stats, or a failure if the game is not running
+     */
+    public static final class GetGameStats {
+        private final long gameId;
+
+        public GetGameStats(long gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    /**
+     * Ask for the GameActor of gameId, to watch the game; the reply is the
+     * ActorRef, or a failure if the game is not running
+     */
+    public static final class FindGame {
+        private final long gameId;
+
+        public FindGame(long gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    /**
+     * Games running now, and games admitted, resumed, turned away and evicted since the server started
+     */
+    public static final class Stats {
+        private final int running;
+        private final int maxGames;
+        private final long admitted;
+        private final long resumed;
+        private final long busy;
+        private final long evicted;
+
+        public Stats(int running, int maxGames, long admitted, long resumed, long busy, long evicted) {
+            this.running = running;
+            this.maxGames = maxGames;
+            this.admitted = admitted;
+            this.resumed = resumed;
+            this.busy = busy;
+            this.evicted = evicted;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public int getMaxGames() {
+            return maxGames;
+        }
+
+        public long getAdmitted() {
+            return admitted;
+        }
+
+        public long getResumed() {
+            return resumed;
+        }
+
+        public long getBusy() {
+            return busy;
+        }
+
+        public long getEvicted() {
+            return evicted;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SessionRegistry: %d of %d games running, %d admitted, %d resumed, %d busy, %d evicted",
+                    running, maxGames, admitted, resumed, busy, evicted);
+        }
+    }
+
+    private enum Sweep {
+        INSTANCE
+    }
+
+    private static final class Session {
+        final ActorRef game;
+        final String token;
+        long lastActivity;
+
+        Session(ActorRef game, String token, long now) {
+            this.game = game;
+            this.token = token;
+            this.lastActivity = now;
+        }
+    }
+
+    private final int maxGames;
+    private final long idleNanos;
+    private final Duration reconnectGrace;
+    private final Map<Long, Session> sessions = new HashMap<>();
+    private final Map<ActorRef, Long> gameIds = new HashMap<>();
+    private final Map<String, Long> tokens = new HashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    private long nextGameId = 1;
+    private long admitted;
+    private long resumed;
+    private long busy;
+    private long evicted;
+
+    public static Props props(Config config) {
+        return Props.create(SessionRegistry.class, () -> new SessionRegistry(
+                config.hasPath(MAX_GAMES) ? config.getInt(MAX_GAMES) : 200,
+                config.hasPath(IDLE_TIMEOUT) ? config.getDuration(IDLE_TIMEOUT) : Duration.ofMinutes(10),
+                config.hasPath(RECONNECT_GRACE) ? config.getDuration(RECONNECT_GRACE) : Duration.ofSeconds(60)));
+    }
+
+    /**
+     * @param maxGames       most games running at once
+     * @param idleTimeout    longest a socket may send nothing before its game is evicted
+     * @param reconnectGrace longest a game is kept without a socket
+     */
+    public SessionRegistry(int maxGames, Duration idleTimeout, Duration reconnectGrace) {
+        this.maxGames = maxGames;
+        this.idleNanos = idleTimeout.toNanos();
+        this.reconnectGrace = reconnectGrace;
+        //        games are evicted at most a quarter of the timeout late
+        getTimers().startTimerWithFixedDelay(Sweep.INSTANCE, Sweep.INSTANCE, idleTimeout.dividedBy(4));
+    }
+
+    /**
+     * A game that throws is stopped, and its socket closed, as a game over
+     * Play's ActorFlow was
+     */
+    @Override
+    public SupervisorStrategy supervisorStrategy() {
+        return new OneForOneStrategy(false, SupervisorStrategy.makeDecider(e -> SupervisorStrategy.stop()));
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Admit.class, admit -> {
+                    Long resumedId = admit.token == null ? null : tokens.get(admit.token);
+                    if (resumedId != null) {
+                        Session session = sessions.get(resumedId);
+                        session.lastActivity = System.nanoTime();
+                        resumed++;
+                        getSender().tell(new Admitted(resumedId, session.game, true), getSelf());
+                        return;
+                    }
+                    if (sessions.size() >= maxGames) {
+                        busy++;
+                        getSender().tell(Busy.INSTANCE, getSelf());
+                        return;
+                    }
+                    long gameId = nextGameId++;
+                    String token = newToken();
+                    ActorRef game = getContext().watch(getContext().actorOf(
+                            GameActor.props(getSelf(), gameId, token, reconnectGrace)
+                                    .withDispatcher(getContext().getProps().dispatcher()), "game-" + gameId));
+                    sessions.put(gameId, new Session(game, token, System.nanoTime()));
+                    gameIds.put(game, gameId);
+                    tokens.put(token, gameId);
+                    admitted++;
+                    getSender().tell(new Admitted(gameId, game, false), getSelf());
+                })
+                .match(Activity.class, activity -> {
+                    Session session = sessions.get(activity.gameId);
+                    if (session != null) {
+                        session.lastActivity = System.nanoTime();
+                    }
+                })
+                .match(Terminated.class, terminated -> {
+                    Long gameId = gameIds.remove(terminated.getActor());
+                    if (gameId != null) {
+                        tokens.remove(sessions.remove(gameId).token);
+                    }
+                })
+                .matchEquals(GetStats.INSTANCE, get -> getSender().tell(stats(), getSelf()))
+                .match(GetGameStats.class, get -> {
+                    Session session = sessions.get(get.gameId);
+                    if (session == null) {
+                        getSender().tell(new Status.Failure(new NoSuchElementException("no game " + get.gameId)),
+                                getSelf());
+                        return;
+                    }
+                    session.game.forward(CommandTimeline.GetStats.INSTANCE, getContext());
+                })
+                .match(FindGame.class, find -> {
+                    Session session = sessions.get(find.gameId);
+                    getSender().tell(session != null ? session.game
+                            : new Status.Failure(new NoSuchElementException("no game " + find.gameId)), getSelf());
+                })
+                .matchEquals(Sweep.INSTANCE, sweep -> sweep()).build();
+    }
+
+    /**
+     * Evict the quiet games
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            if (now - session.lastActivity > idleNanos) {
+                //                the game stays counted until its actor has stopped
+                session.game.tell(Evict.INSTANCE, getSelf());
+                session.lastActivity = now;
+                evicted++;
+            }
+        }
+    }
+
+    /**
+     * @return a token no one can guess, safe in a URL
+     */
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private Stats stats() {
+        return new Stats(sessions.size(), maxGames, admitted, resumed, busy, evicted);
+    }
+
+    @Override
+    public void postStop() {
+        System.out.println(stats());
+    }
+}
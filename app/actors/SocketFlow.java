@@ -0,0 +1,138 @@
+package actors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+
+import akka.Done;
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.OneForOneStrategy;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.actor.SupervisorStrategy;
+import akka.actor.Terminated;
+import akka.japi.Pair;
+import akka.stream.CompletionStrategy;
+import akka.stream.Materializer;
+import akka.stream.OverflowStrategy;
+import akka.stream.javadsl.AsPublisher;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+
+/**
+ * A websocket flow handled by an actor, like Play's ActorFlow.actorRef, but
+ * the actor sending to the socket is told Ack once the socket has taken each
+ * message, and must not send another one before that. Up to bufferSize
+ * messages are taken while the socket is busy sending, so only a front-end
+ * that falls behind holds up the actor; Play's flow instead keeps taking
+ * messages from the actor when its buffer is full, dropping the newest.
+ * <p>
+ * The socket closes when the actor stops, and the actor is stopped when the
+ * socket closes or the actor throws. An actor that completes the socket with a
+ * Status.Success of a Close has the Close sent last, for the WebSocket
+ * acceptor to close the socket with its code.
+ */
+public final class SocketFlow {
+
+    /**
+     * The socket has taken the last message, the next one may be sent
+     */
+    public enum Ack {
+        INSTANCE
+    }
+
+    /**
+     * Close the socket with code, sent in a Status.Success to the actor sending to it
+     */
+    public static final class Close {
+        private final int code;
+        private final String reason;
+
+        public Close(int code, String reason) {
+            this.code = code;
+            this.reason = reason;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private SocketFlow() {
+    }
+
+    /**
+     * @param props      creates the Props of the actor handling the socket from the actor sending to it
+     * @param bufferSize most messages taken that the socket has not sent yet
+     * @return a flow sending what the actor sends, and a Close if it closed the socket with one
+     */
+    public static <In> Flow<In, Object, ?> actorRef(Function<ActorRef, Props> props, int bufferSize,
+                                                    ActorSystem system, Materializer materializer) {
+        // completed when the actor completes the socket, with the Close it completed it with if any
+        CompletableFuture<Optional<Close>> close = new CompletableFuture<>();
+        Pair<ActorRef, Publisher<Object>> source = Source.actorRefWithBackpressure(Ack.INSTANCE,
+                message -> {
+                    if (!(message instanceof Status.Success)) {
+                        return Optional.empty();
+                    }
+                    Object status = ((Status.Success) message).status();
+                    close.complete(status instanceof Close ? Optional.of((Close) status) : Optional.empty());
+                    return Optional.of(CompletionStrategy.draining());
+                },
+                message -> message instanceof Status.Failure
+                        ? Optional.of(((Status.Failure) message).cause()) : Optional.empty())
+                .buffer(bufferSize, OverflowStrategy.backpressure())
+                .toMat(Sink.asPublisher(AsPublisher.WITHOUT_FANOUT), Keep.both())
+                .run(materializer);
+        Props handler = props.apply(source.first());
+        ActorRef forwarder = system.actorOf(Props.create(Forwarder.class, () -> new Forwarder(handler, source.first()))
+                .withDispatcher(handler.dispatcher()));
+        Sink<In, ?> in = Sink.actorRef(forwarder, new Status.Success(Done.getInstance()));
+        Source<Object, ?> closing = Source.completionStage(close)
+                .mapConcat(closed -> closed.<List<Object>>map(Collections::singletonList).orElse(Collections.emptyList()));
+        return Flow.fromSinkAndSource(in, Source.fromPublisher(source.second()).concat(closing));
+    }
+
+    /**
+     * Parent of the actor handling the socket, passes it what the socket sends
+     */
+    private static final class Forwarder extends AbstractActor {
+        private final ActorRef handler;
+        private final ActorRef out;
+
+        Forwarder(Props handler, ActorRef out) {
+            this.handler = getContext().watch(getContext().actorOf(handler, "handler"));
+            this.out = out;
+        }
+
+        @Override
+        public SupervisorStrategy supervisorStrategy() {
+            return new OneForOneStrategy(false, SupervisorStrategy.makeDecider(e -> SupervisorStrategy.stop()));
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .match(Status.Success.class, closed -> handler.tell(PoisonPill.getInstance(), getSelf()))
+                    .match(Status.Failure.class, failed -> handler.tell(PoisonPill.getInstance(), getSelf()))
+                    .match(Terminated.class, terminated -> {
+                        out.tell(new Status.Success(Done.getInstance()), getSelf());
+                        getContext().stop(getSelf());
+                    })
+                    .matchAny(message -> handler.tell(message, getSender())).build();
+        }
+    }
+}
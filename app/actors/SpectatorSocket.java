@@ -0,0 +1,99 @@
+package actors;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import akka.actor.AbstractActorWithTimers;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.util.ByteString;
+
+/**
+ * The websocket of one spectator of a game. It joins the game's Spectators,
+ * asks for the board once the page is ready and ignores everything else the
+ * page sends, a spectator cannot play. The frames it is told are already
+ * written to bytes and are sent as they are, one at a time as the socket
+ * takes them, with the pauses of the board snapshot between them. A socket
+ * more than maxBehind frames behind is closed, so a slow spectator never holds
+ * up the game; its page reconnects and is drawn the board again.
+ */
+public class SpectatorSocket extends AbstractActorWithTimers {
+
+    private enum Resume {
+        INSTANCE
+    }
+
+    private final ActorRef out;
+    private final ActorRef game;
+    private final int maxBehind;
+    // frames and CommandTimeline.Pauses not sent yet
+    private final Deque<Object> frames = new ArrayDeque<>();
+    private boolean awaitingAck = false;
+    private boolean paused = false;
+
+    /**
+     * @param out       sends to the socket
+     * @param game      the GameActor
+     * @param maxBehind most frames waiting for the socket before it is closed
+     */
+    public static Props props(ActorRef out, ActorRef game, int maxBehind) {
+        return Props.create(SpectatorSocket.class, () -> new SpectatorSocket(out, game, maxBehind));
+    }
+
+    public SpectatorSocket(ActorRef out, ActorRef game, int maxBehind) {
+        this.out = out;
+        this.game = game;
+        this.maxBehind = maxBehind;
+        getContext().watch(game);
+        game.tell(GameActor.Spectate.INSTANCE, getSelf());
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(ByteString.class, this::add)
+                .match(CommandTimeline.Pause.class, this::add)
+                .matchEquals(SocketFlow.Ack.INSTANCE, ack -> {
+                    awaitingAck = false;
+                    send();
+                })
+                .matchEquals(Resume.INSTANCE, resume -> {
+                    paused = false;
+                    send();
+                })
+                .match(JsonNode.class, message -> {
+                    if (message.path("messagetype").asText().equals("initalize")) {
+                        game.tell(GameActor.SpectatorReady.INSTANCE, getSelf());
+                    }
+                })
+                .match(Terminated.class, terminated -> getContext().stop(getSelf())).build();
+    }
+
+    private void add(Object frame) {
+        frames.add(frame);
+        if (frames.size() > maxBehind) {
+            System.out.println("SpectatorSocket: closed, " + frames.size() + " frames behind");
+            getContext().stop(getSelf());
+            return;
+        }
+        send();
+    }
+
+    private void send() {
+        while (!awaitingAck && !paused && !frames.isEmpty()) {
+            Object frame = frames.poll();
+            if (frame instanceof CommandTimeline.Pause) {
+                paused = true;
+                getTimers().startSingleTimer(Resume.INSTANCE, Resume.INSTANCE,
+                        Duration.ofMillis(((CommandTimeline.Pause) frame).getMillis()));
+            } else {
+                out.tell(frame, getSelf());
+                awaitingAck = true;
+            }
+        }
+    }
+}
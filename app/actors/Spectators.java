@@ -0,0 +1,216 @@
+package actors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.util.ByteString;
+import play.libs.Json;
+
+/**
+ * The spectators of one game. The CommandTimeline tells it every frame it
+ * plays, as the players' page is shown it, and each frame is written to bytes
+ * once and the same bytes are told to the SpectatorSocket of every spectator
+ * watching, however many there are. A SpectatorSocket keeps the frames its
+ * socket has not taken, so a slow spectator only falls behind itself.
+ * <p>
+ * A spectator joins with the hello its page needs to load, and watches from
+ * the Snapshot of the board drawn for it once the page is ready. The hello is
+ * the same for every spectator, and so is the board until the next frame is
+ * played, so spectators joining together share those bytes too. When the
+ * timeline drops frames not played yet, for a new game or a page of the
+ * players that reloads, every spectator is told to resync and its page
+ * reloads and joins again.
+ */
+public class Spectators extends AbstractActor {
+
+    private static final ObjectMapper mapper = Json.mapper();
+
+    /**
+     * Sent by the GameActor for a SpectatorSocket, the sender, that has just
+     * connected; hello is sent to its page
+     */
+    public static final class Join {
+        private final ObjectNode hello;
+
+        public Join(ObjectNode hello) {
+            this.hello = hello;
+        }
+    }
+
+    /**
+     * The frames that draw the board for the page of socket, with the Pauses
+     * between them; the frames the timeline plays after it are sent to socket too
+     */
+    public static final class Snapshot {
+        private final ActorRef socket;
+        private final List<Object> frames;
+
+        public Snapshot(ActorRef socket, List<Object> frames) {
+            this.socket = socket;
+            this.frames = frames;
+        }
+    }
+
+    /**
+     * Frames the spectators have not been sent were dropped, they draw the board again
+     */
+    public enum Resync {
+        INSTANCE
+    }
+
+    /**
+     * Ask for the counts of spectators and of the frames sent to them, the reply is Stats
+     */
+    public enum GetStats {
+        INSTANCE
+    }
+
+    /**
+     * Spectators watching now, and spectators joined, frames written and
+     * bytes and frames sent to spectators since the game started
+     */
+    public static final class Stats {
+        private final int watching;
+        private final long joined;
+        private final long frames;
+        private final long bytes;
+        private final long sent;
+
+        public Stats(int watching, long joined, long frames, long bytes, long sent) {
+            this.watching = watching;
+            this.joined = joined;
+            this.frames = frames;
+            this.bytes = bytes;
+            this.sent = sent;
+        }
+
+        public int getWatching() {
+            return watching;
+        }
+
+        public long getJoined() {
+            return joined;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Spectators: %d watching, %d joined, %d frames written (%d bytes), %d sent",
+                    watching, joined, frames, bytes, sent);
+        }
+    }
+
+    // the sockets of every spectator, and of those shown the board
+    private final Set<ActorRef> sockets = new HashSet<>();
+    private final Set<ActorRef> watching = new HashSet<>();
+    private ByteString hello = null;
+    // the last board drawn as written, while no frame has been played since
+    private List<Object> board = null;
+    private long joined;
+    private long frames;
+    private long bytes;
+    private long sent;
+
+    public static Props props() {
+        return Props.create(Spectators.class, Spectators::new);
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(JsonNode.class, frame -> {
+                    if (watching.isEmpty()) {
+                        return;
+                    }
+                    board = null;
+                    ByteString written = write(frame);
+                    for (ActorRef socket : watching) {
+                        socket.tell(written, getSelf());
+                    }
+                    sent += watching.size();
+                })
+                .match(Join.class, join -> {
+                    sockets.add(getContext().watch(getSender()));
+                    joined++;
+                    if (hello == null) {
+                        hello = write(join.hello);
+                    }
+                    getSender().tell(hello, getSelf());
+                })
+                .match(Snapshot.class, snapshot -> {
+                    if (!sockets.contains(snapshot.socket)) {
+                        return;
+                    }
+                    if (board == null) {
+                        board = new ArrayList<>();
+                        for (Object frame : snapshot.frames) {
+                            board.add(frame instanceof JsonNode ? write((JsonNode) frame) : frame);
+                        }
+                    }
+                    for (Object frame : board) {
+                        snapshot.socket.tell(frame, getSelf());
+                    }
+                    watching.add(snapshot.socket);
+                })
+                .matchEquals(Resync.INSTANCE, resync -> {
+                    if (sockets.isEmpty()) {
+                        return;
+                    }
+                    ObjectNode command = Json.newObject();
+                    command.put("messagetype", "resync");
+                    ByteString written = write(command);
+                    for (ActorRef socket : sockets) {
+                        socket.tell(written, getSelf());
+                    }
+                    watching.clear();
+                    board = null;
+                })
+                .match(Terminated.class, terminated -> {
+                    sockets.remove(terminated.getActor());
+                    watching.remove(terminated.getActor());
+                })
+                .matchEquals(GetStats.INSTANCE, get -> getSender().tell(stats(), getSelf())).build();
+    }
+
+    /**
+     * @return frame as the bytes of a websocket message, shared by every socket it is sent to
+     */
+    private ByteString write(JsonNode frame) throws Exception {
+        ByteString written = ByteString.fromArrayUnsafe(mapper.writeValueAsBytes(frame));
+        frames++;
+        bytes += written.size();
+        return written;
+    }
+
+    private Stats stats() {
+        return new Stats(watching.size(), joined, frames, bytes, sent);
+    }
+
+    @Override
+    public void postStop() {
+        if (joined > 0) {
+            System.out.println(stats());
+        }
+    }
+}
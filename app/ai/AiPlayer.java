@@ -0,0 +1,18 @@
+package ai;
+
+import rules.RulesState;
+
+/**
+ * Chooses the actions of a computer player. AiTurn asks for one action at
+ * a time, on a fresh snapshot of the game, until the player ends its turn.
+ * The search runs on a thread of the AI executor and should return early
+ * once that thread is interrupted.
+ */
+public interface AiPlayer {
+
+    /**
+     * @param state game with the AI's side to play, must not be modified
+     * @return one of Rules.legalActions(state), Action.END_TURN to end the turn
+     */
+    int nextAction(RulesState state);
+}
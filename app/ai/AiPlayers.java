@@ -0,0 +1,197 @@
+package ai;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.typesafe.config.Config;
+
+/**
+ * Creates the AI player chosen in application.conf under game.ai, and the
+ * executors its searches and its pondering run on
+ */
+public final class AiPlayers {
+
+    private static final String ENGINE = "game.ai.engine";
+    private static final String BUDGET = "game.ai.budget-millis";
+    private static final String TURN = "game.ai.turn-millis";
+    private static final String THREADS = "game.ai.threads";
+    private static final String SEARCH_THREADS = "game.ai.search-threads";
+    private static final String QUEUE = "game.ai.queue-size";
+    private static final String PONDER_TIME = "game.ai.ponder-millis";
+    private static final String PONDER_THREADS = "game.ai.ponder-threads";
+    private static final String LETHAL_CHECK = "game.ai.lethal-check";
+
+    private static ThreadPoolExecutor executor;
+    private static ForkJoinPool searchPool;
+    private static ExecutorService ponderExecutor;
+    private static ForkJoinPool ponderSearchPool;
+
+    private AiPlayers() {
+    }
+
+    public static AiPlayer fromConfig(Config config) {
+        return create(config, false);
+    }
+
+    /**
+     * The same player as fromConfig, searching on the ponder threads only
+     *
+     * @param config
+     * @return
+     */
+    public static AiPlayer forPondering(Config config) {
+        return create(config, true);
+    }
+
+    private static AiPlayer create(Config config, boolean pondering) {
+        String engine = engine(config);
+        int budgetMillis = config.hasPath(BUDGET) ? config.getInt(BUDGET) : 200;
+        AiPlayer search;
+        switch (engine) {
+            case "random":
+                return new RandomAi();
+            case "mcts":
+                search = pondering
+                        ? new MctsAi(budgetMillis, ponderSearchPool(config), 1, Evaluation.fromConfig(config))
+                        : new MctsAi(budgetMillis, searchThreads(config) > 1 ? searchPool(config) : null,
+                        searchThreads(config), Evaluation.fromConfig(config));
+                break;
+            case "alphabeta":
+                search = new AlphaBetaAi(budgetMillis, Evaluation.fromConfig(config));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown " + ENGINE + ": " + engine);
+        }
+        boolean lethalCheck = !config.hasPath(LETHAL_CHECK) || config.getBoolean(LETHAL_CHECK);
+        return lethalCheck ? new LethalCheckAi(search) : search;
+    }
+
+    private static String engine(Config config) {
+        return config.hasPath(ENGINE) ? config.getString(ENGINE) : "random";
+    }
+
+    /**
+     * Longest time the AI can spend on one turn
+     *
+     * @param config
+     * @return
+     */
+    public static Duration turnTime(Config config) {
+        return Duration.ofMillis(config.hasPath(TURN) ? config.getLong(TURN) : 10_000);
+    }
+
+    /**
+     * The bounded pool shared by the AI searches of all games, so thinking
+     * never runs on an actor dispatcher. A search submitted to a full queue
+     * is rejected.
+     *
+     * @param config
+     * @return
+     */
+    public static synchronized ExecutorService executor(Config config) {
+        if (executor == null) {
+            int threads = config.hasPath(THREADS) ? config.getInt(THREADS) : Runtime.getRuntime().availableProcessors();
+            executor = boundedPool("ai-", threads, queueSize(config), Thread.NORM_PRIORITY);
+        }
+        return executor;
+    }
+
+    /**
+     * Where MCTS grows the trees of one decision in parallel, shared by all
+     * games and as big as the trees of a decision. With one tree there is no
+     * pool, it is grown on the AI executor.
+     */
+    private static synchronized ForkJoinPool searchPool(Config config) {
+        if (searchPool == null) {
+            searchPool = forkJoinPool("ai-search-", searchThreads(config), Thread.NORM_PRIORITY);
+        }
+        return searchPool;
+    }
+
+    private static int searchThreads(Config config) {
+        return config.hasPath(SEARCH_THREADS) ? config.getInt(SEARCH_THREADS) : 1;
+    }
+
+    /**
+     * @return true while the AI of any game is searching for a decision
+     */
+    public static synchronized boolean isSearching() {
+        return executor != null && executor.getActiveCount() > 0;
+    }
+
+    /**
+     * Longest time spent pondering one position of the human's turn, zero when
+     * the AI does not ponder. The random AI never ponders: it decides at once,
+     * and its turn plan is made at its first decision, so a turn started from
+     * a planned action would go on differently.
+     *
+     * @param config
+     * @return
+     */
+    public static Duration ponderTime(Config config) {
+        if (!config.hasPath(PONDER_TIME) || "random".equals(engine(config))) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(config.getLong(PONDER_TIME));
+    }
+
+    /**
+     * The pool shared by the pondering of all games, with fewer threads than
+     * the AI executor and at the lowest priority. Pondering submitted to a
+     * full queue is rejected.
+     *
+     * @param config
+     * @return
+     */
+    public static synchronized ExecutorService ponderExecutor(Config config) {
+        if (ponderExecutor == null) {
+            ponderExecutor = boundedPool("ponder-", ponderThreads(config), queueSize(config), Thread.MIN_PRIORITY);
+        }
+        return ponderExecutor;
+    }
+
+    /**
+     * Where MCTS grows its trees when pondering, as big as the ponder executor
+     */
+    private static synchronized ForkJoinPool ponderSearchPool(Config config) {
+        if (ponderSearchPool == null) {
+            ponderSearchPool = forkJoinPool("ponder-search-", ponderThreads(config), Thread.MIN_PRIORITY);
+        }
+        return ponderSearchPool;
+    }
+
+    private static int ponderThreads(Config config) {
+        return config.hasPath(PONDER_THREADS) ? config.getInt(PONDER_THREADS) : 1;
+    }
+
+    private static int queueSize(Config config) {
+        return config.hasPath(QUEUE) ? config.getInt(QUEUE) : 64;
+    }
+
+    private static ForkJoinPool forkJoinPool(String name, int threads, int priority) {
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + thread.getPoolIndex());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        }, null, false);
+    }
+
+    private static ThreadPoolExecutor boundedPool(String name, int threads, int queueSize, int priority) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, name + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(priority);
+                    return thread;
+                });
+    }
+}
@@ -0,0 +1,319 @@
+package ai;
+
+import rules.Action;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Depth-limited search over the rules engine: alpha-beta over the players'
+ * actions and expectimax over the card drawn at the end of a turn, which
+ * is a chance node averaging the card ids left in the deck by how often they
+ * occur. Scores are Evaluation scores for the AI, WIN for a won game.
+ * <p>
+ * Iterative deepening searches depth 1, 2, ... until the wall-clock budget
+ * is spent, and plays the best action of the deepest search that finished.
+ * Results are kept in a TranspositionTable keyed by the Zobrist hash of the
+ * position, which both orders the actions of the next iteration and skips
+ * positions already searched deep enough.
+ */
+public class AlphaBetaAi implements AiPlayer {
+
+    private static final int MAX_DEPTH = 32;
+    private static final double WIN = 1000;
+    //    scores at least this far from 0 are wins or losses, WIN less the plies to the end
+    private static final double WON = WIN - (MAX_DEPTH + 2);
+    //    nodes between two looks at the clock and for a cancelled search
+    private static final int CLOCK_INTERVAL = 1024;
+
+    //    shared by all games, 2^18 entries of 16 bytes
+    private static final TranspositionTable sharedTable = new TranspositionTable(18);
+
+    private final long budgetNanos;
+    private final TranspositionTable table;
+    private final Evaluation evaluation;
+    private final RulesState[] stack = new RulesState[MAX_DEPTH + 2];
+    private final int[][] drawCounts = new int[MAX_DEPTH + 2][];
+    private final int[][] actionBuffers = new int[MAX_DEPTH + 2][MoveGenerator.MAX_ACTIONS];
+
+    private long deadline;
+    private boolean aborted;
+    private int rootAction;
+
+    private long decisions;
+    private long nodes;
+    private long probes;
+    private long hits;
+    private long depths;
+    private long searchNanos;
+
+    public AlphaBetaAi(int budgetMillis) {
+        this(budgetMillis, sharedTable);
+    }
+
+    public AlphaBetaAi(int budgetMillis, Evaluation evaluation) {
+        this(budgetMillis, sharedTable, evaluation);
+    }
+
+    public AlphaBetaAi(int budgetMillis, TranspositionTable table) {
+        this(budgetMillis, table, Evaluation.DEFAULT);
+    }
+
+    public AlphaBetaAi(int budgetMillis, TranspositionTable table, Evaluation evaluation) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + budgetMillis);
+        }
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.table = table;
+        this.evaluation = evaluation;
+    }
+
+    @Override
+    public int nextAction(RulesState state) {
+        int[] actions = Rules.legalActions(state);
+        if (actions.length == 1) {
+            return actions[0];
+        }
+        long start = System.nanoTime();
+        deadline = start + budgetNanos;
+        aborted = false;
+        if (stack[0] == null || stack[0].getCatalog() != state.getCatalog()) {
+            for (int i = 0; i < stack.length; i++) {
+                stack[i] = state.copy();
+                drawCounts[i] = new int[state.getCatalog().size()];
+            }
+        }
+
+        int best = actions[0];
+        int depth = 0;
+        while (depth < MAX_DEPTH && System.nanoTime() < deadline) {
+            stack[0].copyFrom(state);
+            rootAction = Action.endTurn();
+            search(0, depth + 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            if (aborted) {
+                break;
+            }
+            best = rootAction;
+            depth++;
+        }
+        decisions++;
+        depths += depth;
+        searchNanos += System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Value of stack[ply] for the AI
+     */
+    private double search(int ply, int depth, double alpha, double beta) {
+        RulesState state = stack[ply];
+        if (++nodes % CLOCK_INTERVAL == 0
+                && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (state.isGameOver()) {
+            //            a sooner win is a better win
+            return state.getWinner() == RulesState.AI ? WIN - ply : ply - WIN;
+        }
+        if (depth == 0) {
+            return evaluation.score(state, RulesState.AI);
+        }
+
+        long hash = state.getHash();
+        long entry = table.probe(hash);
+        probes++;
+        int hashAction = TranspositionTable.NO_ACTION;
+        if (entry != 0) {
+            hits++;
+            hashAction = TranspositionTable.action(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                double score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+
+        int[] actions = actionBuffers[ply];
+        int n = MoveGenerator.generate(state, actions);
+        order(actions, n, hashAction);
+        boolean maximise = state.getCurrentSide() == RulesState.AI;
+        double best = maximise ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int bestAction = actions[0];
+        double originalAlpha = alpha;
+        double originalBeta = beta;
+        for (int i = 0; i < n; i++) {
+            int action = actions[i];
+            double value = Action.type(action) == Action.END_TURN
+                    ? endTurn(ply, depth, alpha, beta)
+                    : child(ply, depth, action, alpha, beta);
+            if (aborted) {
+                return 0;
+            }
+            if (maximise ? value > best : value < best) {
+                best = value;
+                bestAction = action;
+            }
+            if (maximise) {
+                alpha = Math.max(alpha, best);
+            } else {
+                beta = Math.min(beta, best);
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= originalBeta ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+        table.store(hash, depth, bound, (float) toTable(best, ply), bestAction);
+        if (ply == 0) {
+            rootAction = bestAction;
+        }
+        return best;
+    }
+
+    /**
+     * A win or loss as the table keeps it, counted from the node at ply
+     * instead of from the root, so the position scores the same at any ply
+     */
+    private static double toTable(double score, int ply) {
+        return score >= WON ? score + ply : score <= -WON ? score - ply : score;
+    }
+
+    /**
+     * A win or loss kept in the table, counted from the root again
+     */
+    private static double fromTable(double score, int ply) {
+        return score >= WON ? score - ply : score <= -WON ? score + ply : score;
+    }
+
+    private double child(int ply, int depth, int action, double alpha, double beta) {
+        stack[ply + 1].copyFrom(stack[ply]);
+        Rules.applyInPlace(stack[ply + 1], action, null);
+        return search(ply + 1, depth - 1, alpha, beta);
+    }
+
+    /**
+     * Chance node: the player ending the turn draws one of the cards left in its deck
+     */
+    private double endTurn(int ply, int depth, double alpha, double beta) {
+        RulesState state = stack[ply];
+        int side = state.getCurrentSide();
+        int size = state.getDeckSize(side);
+        if (size == 0 || handIsFull(state, side)) {
+            //            the game ends or the card is discarded, either way only one outcome
+            return child(ply, depth, Action.endTurn(), alpha, beta);
+        }
+
+        int[] counts = drawCounts[ply];
+        for (int i = 0; i < size; i++) {
+            counts[state.getDeckCard(side, i)]++;
+        }
+        double expected = 0;
+        for (int i = 0; i < size && !aborted; i++) {
+            int cardId = state.getDeckCard(side, i);
+            int count = counts[cardId];
+            if (count == 0) {
+                continue;
+            }
+            counts[cardId] = 0;
+            stack[ply + 1].copyFrom(state);
+            stack[ply + 1].forceNextDraw(cardId);
+            Rules.applyInPlace(stack[ply + 1], Action.endTurn(), null);
+            expected += (double) count / size
+                    * search(ply + 1, depth - 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        for (int i = 0; i < size; i++) {
+            counts[state.getDeckCard(side, i)] = 0;
+        }
+        return expected;
+    }
+
+    private static boolean handIsFull(RulesState state, int side) {
+        for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+            if (state.getHandCard(side, slot) == RulesState.EMPTY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The table's best action first, then attacks, spells, summons, moves,
+     * and ending the turn, the most expensive to search, last
+     */
+    private static void order(int[] actions, int n, int hashAction) {
+        for (int i = 1; i < n; i++) {
+            int action = actions[i];
+            int priority = priority(action, hashAction);
+            int j = i - 1;
+            while (j >= 0 && priority(actions[j], hashAction) < priority) {
+                actions[j + 1] = actions[j];
+                j--;
+            }
+            actions[j + 1] = action;
+        }
+    }
+
+    private static int priority(int action, int hashAction) {
+        if (action == hashAction) {
+            return 5;
+        }
+        switch (Action.type(action)) {
+            case Action.ATTACK:
+                return 4;
+            case Action.SPELL:
+                return 3;
+            case Action.SUMMON:
+                return 2;
+            case Action.MOVE:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public double getNodesPerSecond() {
+        return searchNanos == 0 ? 0 : nodes * 1e9 / searchNanos;
+    }
+
+    /**
+     * Share of table probes that found an entry for the position
+     *
+     * @return
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Average depth of the deepest finished search per decision
+     *
+     * @return
+     */
+    public double getAverageDepth() {
+        return decisions == 0 ? 0 : (double) depths / decisions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AlphaBetaAi: %d decisions, %.0f nodes/s, %.1f%% table hits, depth %.1f",
+                decisions, getNodesPerSecond(), 100 * getHitRate(), getAverageDepth());
+    }
+}
@@ -0,0 +1,180 @@
+package ai;
+
+import com.typesafe.config.Config;
+
+import rules.RulesState;
+import structures.BoardGeometry;
+
+/**
+ * Static evaluation of a position that is not over yet, used where a search
+ * stops before the end of the game. The score of a side is a weighted sum of
+ * terms, minus the same sum for the other side:
+ * <ul>
+ * <li>the health of its avatar</li>
+ * <li>the attack and the health of its other units on the board</li>
+ * <li>its units, other than the avatar, standing next to an enemy unit</li>
+ * <li>the enemy units standing next to one of its provoke units</li>
+ * <li>the mana it has not spent</li>
+ * <li>the mana cost of the cards in its hand</li>
+ * </ul>
+ * Unit and hand totals are kept up to date by the rules engine as actions
+ * are applied, so score only adds a few numbers and runs over the unit
+ * bitboards for the two neighbour terms. scoreFromScratch works every term
+ * out from the units and cards themselves, to check and to compare with.
+ * <p>
+ * Weights are read from application.conf under game.ai.evaluation.
+ */
+public final class Evaluation {
+
+    /**
+     * Avatar health and half the attack and health of the units, with small
+     * weights for the other terms
+     */
+    public static final Evaluation DEFAULT = new Evaluation(1.0, 0.5, 0.5, -0.25, 0.25, -0.1, 0.1);
+
+    private static final String WEIGHTS = "game.ai.evaluation";
+    private static final BoardGeometry geometry = RulesState.getGeometry();
+    //    score difference that counts as a 73% chance to win
+    private static final double SCALE = 10.0;
+
+    private final double avatarHealth;
+    private final double unitAttack;
+    private final double unitHealth;
+    private final double threatenedUnits;
+    private final double provokedEnemies;
+    private final double unspentMana;
+    private final double handCost;
+
+    public Evaluation(double avatarHealth, double unitAttack, double unitHealth, double threatenedUnits,
+                      double provokedEnemies, double unspentMana, double handCost) {
+        this.avatarHealth = avatarHealth;
+        this.unitAttack = unitAttack;
+        this.unitHealth = unitHealth;
+        this.threatenedUnits = threatenedUnits;
+        this.provokedEnemies = provokedEnemies;
+        this.unspentMana = unspentMana;
+        this.handCost = handCost;
+    }
+
+    /**
+     * The weights under game.ai.evaluation, DEFAULT's for those not set
+     *
+     * @param config
+     * @return
+     */
+    public static Evaluation fromConfig(Config config) {
+        if (!config.hasPath(WEIGHTS)) {
+            return DEFAULT;
+        }
+        Config weights = config.getConfig(WEIGHTS);
+        return new Evaluation(
+                weight(weights, "avatar-health", DEFAULT.avatarHealth),
+                weight(weights, "unit-attack", DEFAULT.unitAttack),
+                weight(weights, "unit-health", DEFAULT.unitHealth),
+                weight(weights, "threatened-units", DEFAULT.threatenedUnits),
+                weight(weights, "provoked-enemies", DEFAULT.provokedEnemies),
+                weight(weights, "unspent-mana", DEFAULT.unspentMana),
+                weight(weights, "hand-cost", DEFAULT.handCost));
+    }
+
+    private static double weight(Config weights, String name, double defaultWeight) {
+        return weights.hasPath(name) ? weights.getDouble(name) : defaultWeight;
+    }
+
+    /**
+     * @param state
+     * @param side
+     * @return score of side minus score of the other side
+     */
+    public double score(RulesState state, int side) {
+        int other = RulesState.otherSide(side);
+        return avatarHealth * (state.getPlayerHealth(side) - state.getPlayerHealth(other))
+                + unitAttack * (state.getTotalUnitAttack(side) - state.getTotalUnitAttack(other))
+                + unitHealth * (state.getTotalUnitHealth(side) - state.getTotalUnitHealth(other))
+                + neighbourTerms(state, side) - neighbourTerms(state, other)
+                + unspentMana * (state.getMana(side) - state.getMana(other))
+                + handCost * (state.getHandCost(side) - state.getHandCost(other));
+    }
+
+    /**
+     * Same as score, without the totals the rules engine keeps
+     *
+     * @param state
+     * @param side
+     * @return
+     */
+    public double scoreFromScratch(RulesState state, int side) {
+        double score = neighbourTerms(state, side) - neighbourTerms(state, RulesState.otherSide(side));
+        for (int player = RulesState.HUMAN; player <= RulesState.AI; player++) {
+            double sign = player == side ? 1 : -1;
+            score += sign * (avatarHealth * state.getPlayerHealth(player) + unspentMana * state.getMana(player));
+            for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+                int cardId = state.getHandCard(player, slot);
+                if (cardId != RulesState.EMPTY) {
+                    score += sign * handCost * state.getCatalog().getCost(cardId);
+                }
+            }
+        }
+        for (long rest = state.getOccupied() & ~avatars(state); rest != 0; rest &= rest - 1) {
+            int cell = Long.numberOfTrailingZeros(rest);
+            double material = unitAttack * state.getUnitAttack(cell) + unitHealth * state.getUnitHealth(cell);
+            score += state.getUnitOwner(cell) == side ? material : -material;
+        }
+        return score;
+    }
+
+    /**
+     * Threatened units and provoked enemies of side, weighted
+     */
+    private double neighbourTerms(RulesState state, int side) {
+        if (threatenedUnits == 0 && provokedEnemies == 0) {
+            return 0;
+        }
+        long enemies = state.getUnits(RulesState.otherSide(side));
+        long threatened = state.getUnits(side) & ~avatars(state) & reach(enemies);
+        long provoked = enemies & reach(state.getProvokers(side));
+        return threatenedUnits * Long.bitCount(threatened) + provokedEnemies * Long.bitCount(provoked);
+    }
+
+    /**
+     * The cells next to one of units
+     */
+    private static long reach(long units) {
+        long reach = 0;
+        for (long rest = units; rest != 0; rest &= rest - 1) {
+            reach |= geometry.neighbourMask(Long.numberOfTrailingZeros(rest));
+        }
+        return reach;
+    }
+
+    private static long avatars(RulesState state) {
+        long avatars = 0;
+        for (int side = RulesState.HUMAN; side <= RulesState.AI; side++) {
+            if (state.getAvatarCell(side) != RulesState.EMPTY) {
+                avatars |= BoardGeometry.bit(state.getAvatarCell(side));
+            }
+        }
+        return avatars;
+    }
+
+    /**
+     * Chance that side wins, 1 or 0 once the game is over
+     *
+     * @param state
+     * @param side
+     * @return
+     */
+    public double winProbability(RulesState state, int side) {
+        if (state.isGameOver()) {
+            return state.getWinner() == side ? 1 : 0;
+        }
+        return 1 / (1 + Math.exp(-score(state, side) / SCALE));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Evaluation: avatar health %.2f, unit attack %.2f, unit health %.2f, "
+                        + "threatened units %.2f, provoked enemies %.2f, unspent mana %.2f, hand cost %.2f",
+                avatarHealth, unitAttack, unitHealth, threatenedUnits, provokedEnemies, unspentMana, handCost);
+    }
+}
@@ -0,0 +1,91 @@
+package ai;
+
+import rules.Action;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Asks a LethalSolver before searching: plays a lethal line at once when
+ * there is one, and searches with the player it wraps otherwise. When that
+ * player ends the turn and the enemy then has a lethal line, it plays the
+ * first action after which ending the turn leaves no lethal line instead,
+ * if there is one.
+ */
+public class LethalCheckAi implements AiPlayer {
+
+    private final AiPlayer ai;
+    private final LethalSolver solver = new LethalSolver();
+    private RulesState child;
+    private final int[] actions = new int[MoveGenerator.MAX_ACTIONS];
+
+    private long decisions;
+    private long lethals;
+    private long defences;
+    private long solverNanos;
+
+    public LethalCheckAi(AiPlayer ai) {
+        this.ai = ai;
+    }
+
+    @Override
+    public int nextAction(RulesState state) {
+        decisions++;
+        long start = System.nanoTime();
+        int lethal = solver.findLethal(state);
+        solverNanos += System.nanoTime() - start;
+        if (lethal != LethalSolver.NO_LETHAL) {
+            lethals++;
+            return lethal;
+        }
+        int action = ai.nextAction(state);
+        if (Action.type(action) == Action.END_TURN && !Thread.currentThread().isInterrupted()) {
+            start = System.nanoTime();
+            int defence = defence(state);
+            solverNanos += System.nanoTime() - start;
+            if (defence != Action.endTurn()) {
+                defences++;
+                return defence;
+            }
+        }
+        return action;
+    }
+
+    /**
+     * The first action after which ending the turn leaves the enemy no lethal line, END_TURN if there is none or no need
+     */
+    private int defence(RulesState state) {
+        if (!solver.isThreatened(state)) {
+            return Action.endTurn();
+        }
+        if (child == null || child.getCatalog() != state.getCatalog()) {
+            child = state.copy();
+        }
+        int n = MoveGenerator.generate(state, actions);
+        for (int i = 0; i < n; i++) {
+            int action = actions[i];
+            if (Action.type(action) == Action.END_TURN) {
+                continue;
+            }
+            child.copyFrom(state);
+            Rules.applyInPlace(child, action, null);
+            if (child.isGameOver() ? child.getWinner() == state.getCurrentSide() : !solver.isThreatened(child)) {
+                return action;
+            }
+        }
+        return Action.endTurn();
+    }
+
+    /**
+     * @return the player searching when there is no lethal line
+     */
+    public AiPlayer getPlayer() {
+        return ai;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s; lethal check: %d lethal and %d defending of %d decisions, %.1f us/decision",
+                ai, lethals, defences, decisions, decisions == 0 ? 0 : solverNanos / 1e3 / decisions);
+    }
+}
@@ -0,0 +1,265 @@
+package ai;
+
+import rules.Action;
+import rules.CardCatalog;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+import structures.BoardGeometry;
+
+/**
+ * Finds out cheaply whether the side to play can kill the enemy avatar this
+ * turn, and whether the other side could on its next turn. Only the actions
+ * that deal damage are tried:
+ * <ul>
+ * <li>attacks on the enemy avatar, from where a unit stands or after a move</li>
+ * <li>damage spells on the enemy avatar</li>
+ * <li>attacks and spells on enemy provoke units, which keep units next to
+ * them from attacking anything else</li>
+ * </ul>
+ * They are played on the rules engine, so strike backs, the avatars' player
+ * attack and the unit triggers count as they do in the game, and a line the
+ * solver finds always wins. Before trying anything it adds up the most
+ * damage the side could still do, the attack of every unit that can reach
+ * the avatar and the spells it can pay for, and gives up when that is less
+ * than the avatar's health, which is the answer in most positions.
+ * <p>
+ * Attacks on the avatar are tried in the order of the attackers' cells, as
+ * attacks by different units rarely depend on their order, and the search
+ * stops after MAX_NODES positions, so a lethal line that needs another order
+ * or more positions is missed.
+ * <p>
+ * States and action buffers are allocated once per catalog, so a solver
+ * does not allocate and must be used by one thread at a time.
+ */
+public final class LethalSolver {
+
+    /**
+     * What findLethal returns when it finds no lethal line
+     */
+    public static final int NO_LETHAL = -1;
+
+    //    a turn has far fewer damaging actions than this
+    private static final int MAX_PLY = 24;
+    private static final int MAX_NODES = 20_000;
+    //    damage of a DAMAGE_ENEMY spell, see Rules.spell
+    private static final int SPELL_DAMAGE = 2;
+    //    unit 4 gets +2 attack whenever the human avatar hits, see Rules.hit
+    private static final int AVATAR_FAN = 4;
+    private static final int FAN_ATTACK = 2;
+
+    private static final BoardGeometry geometry = RulesState.getGeometry();
+
+    private final RulesState[] stack = new RulesState[MAX_PLY + 1];
+    private final int[][] actions = new int[MAX_PLY][MoveGenerator.MAX_ACTIONS];
+    //    the position after the side to play ends its turn
+    private RulesState next;
+
+    private int side;
+    private int nodes;
+    private int lethalAction;
+
+    /**
+     * @param state
+     * @return the first action of a line that kills the enemy avatar this turn, NO_LETHAL if none was found
+     */
+    public int findLethal(RulesState state) {
+        prepare(state);
+        stack[0].copyFrom(state);
+        return solve();
+    }
+
+    /**
+     * @param state
+     * @return true if the other side has a lethal line on its next turn when the side to play ends its turn now
+     */
+    public boolean isThreatened(RulesState state) {
+        prepare(state);
+        next.copyFrom(state);
+        Rules.applyInPlace(next, Action.endTurn(), null);
+        if (next.isGameOver()) {
+            return next.getWinner() != state.getCurrentSide();
+        }
+        stack[0].copyFrom(next);
+        return solve() != NO_LETHAL;
+    }
+
+    private void prepare(RulesState state) {
+        if (next == null || next.getCatalog() != state.getCatalog()) {
+            next = state.copy();
+            for (int i = 0; i < stack.length; i++) {
+                stack[i] = state.copy();
+            }
+        }
+    }
+
+    private int solve() {
+        RulesState root = stack[0];
+        if (root.isGameOver()) {
+            return NO_LETHAL;
+        }
+        side = root.getCurrentSide();
+        nodes = 0;
+        lethalAction = NO_LETHAL;
+        return search(0, -1) ? lethalAction : NO_LETHAL;
+    }
+
+    /**
+     * @param lastAttacker cell of the last unit to attack the avatar, attacks from lower cells are not tried
+     */
+    private boolean search(int ply, int lastAttacker) {
+        RulesState state = stack[ply];
+        if (state.isGameOver()) {
+            return state.getWinner() == side;
+        }
+        if (ply == MAX_PLY || ++nodes > MAX_NODES) {
+            return false;
+        }
+        int enemy = RulesState.otherSide(side);
+        int avatar = state.getAvatarCell(enemy);
+        if (maxDamage(state, avatar) < state.getPlayerHealth(enemy)) {
+            return false;
+        }
+        long provokers = state.getProvokers(enemy);
+        int[] buffer = actions[ply];
+        int n = MoveGenerator.generate(state, buffer);
+        for (int i = 0; i < n; i++) {
+            int action = buffer[i];
+            int attacker = lastAttacker;
+            switch (Action.type(action)) {
+                case Action.ATTACK:
+                    if (Action.c(action) == avatar) {
+                        if (Action.a(action) < lastAttacker) {
+                            continue;
+                        }
+                        attacker = Action.a(action);
+                    } else if ((provokers & BoardGeometry.bit(Action.c(action))) == 0) {
+                        continue;
+                    }
+                    break;
+                case Action.SPELL:
+                    if (!isDamageSpell(state, action, avatar, provokers)) {
+                        continue;
+                    }
+                    break;
+                default:
+                    continue;
+            }
+            RulesState child = stack[ply + 1];
+            child.copyFrom(state);
+            Rules.applyInPlace(child, action, null);
+            if (search(ply + 1, attacker)) {
+                lethalAction = action;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDamageSpell(RulesState state, int action, int avatar, long provokers) {
+        int cardId = state.getHandCard(side, Action.a(action));
+        int target = Action.b(action);
+        switch (state.getCatalog().getSpellEffect(cardId)) {
+            case CardCatalog.DAMAGE_ENEMY:
+                return target == avatar || (provokers & BoardGeometry.bit(target)) != 0;
+            case CardCatalog.DESTROY_NON_AVATAR:
+                return (provokers & BoardGeometry.bit(target)) != 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The most damage the side to play can still do to the avatar this turn:
+     * every attack left of every unit that could reach it, were no provoke
+     * unit in the way, and the damage spells it can pay for. Unit 4 gains
+     * attack each time the human avatar hits, when it attacks or strikes back,
+     * so its attacks count the most it could have gained.
+     */
+    private int maxDamage(RulesState state, int avatar) {
+        int damage = 0;
+        int avatarHits = 0;
+        int otherAttacks = 0;
+        int fanAttacks = 0;
+        for (long rest = state.getUnits(side); rest != 0; rest &= rest - 1) {
+            int cell = Long.numberOfTrailingZeros(rest);
+            int attacks = attacksOn(state, cell, avatar);
+            if (attacks == 0) {
+                continue;
+            }
+            if ((state.getUnitFlags(cell) & CardCatalog.AVATAR) != 0) {
+                damage += attacks * state.getPlayerAttack(side);
+                avatarHits = attacks;
+            } else {
+                damage += attacks * state.getUnitAttack(cell);
+                otherAttacks += attacks;
+                if (state.getUnitId(cell) == AVATAR_FAN) {
+                    fanAttacks += attacks;
+                }
+            }
+        }
+        if (side == RulesState.AI) {
+            //            the human avatar strikes back at most once per attack on it
+            avatarHits = otherAttacks;
+        }
+        damage += fanAttacks * avatarHits * FAN_ATTACK;
+        return damage + SPELL_DAMAGE * affordableDamageSpells(state);
+    }
+
+    /**
+     * The attacks the unit on cell has left, if it can reach avatar this turn, else 0
+     */
+    private static int attacksOn(RulesState state, int cell, int avatar) {
+        int unitState = state.getUnitState(cell);
+        if (unitState != RulesState.READY && unitState != RulesState.HAS_MOVED) {
+            return 0;
+        }
+        int flags = state.getUnitFlags(cell);
+        boolean reaches;
+        if ((flags & CardCatalog.RANGED) != 0 || geometry.isAdjacent(cell, avatar)) {
+            reaches = true;
+        } else if (unitState == RulesState.HAS_MOVED) {
+            reaches = false;
+        } else {
+            long moveRange = (flags & CardCatalog.REMOTE_MOVE) != 0
+                    ? geometry.getAllMask() & ~state.getOccupied()
+                    : geometry.moveRange(cell, state.getOccupied());
+            reaches = (geometry.attackRange(cell, moveRange) & BoardGeometry.bit(avatar)) != 0;
+        }
+        return reaches ? state.getUnitAttacks(cell) : 0;
+    }
+
+    /**
+     * How many of the side to play's damage spells it can pay for, cheapest first
+     */
+    private int affordableDamageSpells(RulesState state) {
+        CardCatalog catalog = state.getCatalog();
+        int mana = state.getMana(side);
+        int used = 0;
+        int count = 0;
+        while (true) {
+            int cheapest = -1;
+            for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+                int cardId = state.getHandCard(side, slot);
+                if ((used & 1 << slot) == 0 && cardId != RulesState.EMPTY
+                        && catalog.getSpellEffect(cardId) == CardCatalog.DAMAGE_ENEMY
+                        && (cheapest == -1 || catalog.getCost(cardId) < catalog.getCost(state.getHandCard(side, cheapest)))) {
+                    cheapest = slot;
+                }
+            }
+            if (cheapest == -1 || catalog.getCost(state.getHandCard(side, cheapest)) > mana) {
+                return count;
+            }
+            mana -= catalog.getCost(state.getHandCard(side, cheapest));
+            used |= 1 << cheapest;
+            count++;
+        }
+    }
+
+    /**
+     * @return positions searched by the last call
+     */
+    public int getNodes() {
+        return nodes;
+    }
+}
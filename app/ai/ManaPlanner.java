@@ -0,0 +1,221 @@
+package ai;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import rules.CardCatalog;
+import rules.RulesState;
+import structures.BoardGeometry;
+
+/**
+ * Chooses which cards of the hand the side to play plays this turn: the
+ * cards that spend the most mana, and of those the ones with the biggest
+ * units. A card only counts if it can be played:
+ * <ul>
+ * <li>units need an empty cell next to one of their side's units, or any
+ * empty cell for airdrop, one cell each</li>
+ * <li>spells need a target, an enemy unit to damage, an enemy unit other
+ * than the avatar to destroy, or their side's avatar to buff</li>
+ * </ul>
+ * The hand holds at most HAND_SIZE cards, so every subset is tried. Plans
+ * are remembered by hand, mana and the few facts about the board above, in
+ * a fixed-size table that threads share without locks, so a plan costs a
+ * table lookup when it is asked for again, as it is after each card played.
+ * <p>
+ * Only the random AI plays by the plan. MCTS and alpha-beta search their
+ * card plays like any other action; the plan did not make either stronger,
+ * as the card choice of MCTS playouts or as a move ordering hint.
+ * <p>
+ * Cards are played units first, so later cards have more cells to go to,
+ * airdrop units after the others, spells last, the dearest card first in
+ * each group.
+ */
+public final class ManaPlanner {
+
+    //    the plan of no cards, what plan returns with nothing to play
+    public static final int NO_CARDS = 0;
+
+    private static final int TABLE_LOG2 = 14;
+    private static final int HAND = RulesState.HAND_SIZE;
+    //    bits per card id in a key, ids are shifted by one so EMPTY is 0
+    private static final int ID_BITS = 6;
+    private static final int MAX_MANA = 63;
+    private static final long VALID = 1L << 63;
+    private static final int PLAN_BITS = HAND;
+    private static final long KEY_MASK = (1L << (63 - PLAN_BITS)) - 1;
+
+    private static final BoardGeometry geometry = RulesState.getGeometry();
+    private static final Map<CardCatalog, ManaPlanner> planners = new ConcurrentHashMap<>();
+
+    private final CardCatalog catalog;
+    //    valid bit, key and plan in one long, so an entry is never torn
+    private final AtomicLongArray plans = new AtomicLongArray(1 << TABLE_LOG2);
+
+    private ManaPlanner(CardCatalog catalog) {
+        if (catalog.size() >= 1 << ID_BITS) {
+            throw new IllegalArgumentException("Card ids must be below " + (1 << ID_BITS) + ": " + catalog.size());
+        }
+        this.catalog = catalog;
+    }
+
+    /**
+     * The planner for the cards of catalog, shared by every thread
+     *
+     * @param catalog
+     * @return
+     */
+    public static ManaPlanner forCatalog(CardCatalog catalog) {
+        return planners.computeIfAbsent(catalog, ManaPlanner::new);
+    }
+
+    /**
+     * @param state
+     * @return the hand slots of the side to play to play this turn, bit i for slot i
+     */
+    public int plan(RulesState state) {
+        int side = state.getCurrentSide();
+        int mana = Math.min(MAX_MANA, state.getMana(side));
+        int cells = nearCells(state, side);
+        int emptyCells = Math.min(HAND, Long.bitCount(geometry.getAllMask() & ~state.getOccupied()));
+        int targets = spellTargets(state, side);
+
+        long key = 0;
+        for (int slot = 0; slot < HAND; slot++) {
+            key = key << ID_BITS | (state.getHandCard(side, slot) + 1);
+        }
+        key = ((key << 6 | mana) << 3 | cells) << 3 | emptyCells;
+        //        spell effects are numbered from 1
+        key = key << 4 | targets >>> 1;
+
+        int index = (int) (mix(key) >>> (64 - TABLE_LOG2));
+        long entry = plans.get(index);
+        if ((entry & VALID) != 0 && ((entry >>> PLAN_BITS) & KEY_MASK) == key) {
+            return (int) entry & ((1 << PLAN_BITS) - 1);
+        }
+        int plan = solve(state, side, mana, cells, emptyCells, targets);
+        plans.set(index, VALID | key << PLAN_BITS | plan);
+        return plan;
+    }
+
+    /**
+     * @param state
+     * @return the slot of the card to play next, RulesState.EMPTY when the plan has no card left
+     */
+    public int nextCard(RulesState state) {
+        int plan = plan(state);
+        int side = state.getCurrentSide();
+        int best = RulesState.EMPTY;
+        int bestRank = -1;
+        for (int rest = plan; rest != 0; rest &= rest - 1) {
+            int slot = Integer.numberOfTrailingZeros(rest);
+            int cardId = state.getHandCard(side, slot);
+            int group = catalog.isSpell(cardId) ? 0 : (catalog.getFlags(cardId) & CardCatalog.AIRDROP) != 0 ? 1 : 2;
+            int rank = group * 64 + catalog.getCost(cardId);
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Same as plan, without the table
+     *
+     * @param state
+     * @return
+     */
+    public int solve(RulesState state) {
+        int side = state.getCurrentSide();
+        return solve(state, side, state.getMana(side), nearCells(state, side),
+                Long.bitCount(geometry.getAllMask() & ~state.getOccupied()), spellTargets(state, side));
+    }
+
+    /**
+     * @param cells      empty cells next to side's units
+     * @param emptyCells empty cells on the board
+     * @param targets    the spell effects with a target, bit e for effect e
+     */
+    private int solve(RulesState state, int side, int mana, int cells, int emptyCells, int targets) {
+        int cards = 0;
+        for (int slot = 0; slot < HAND; slot++) {
+            if (isPlayable(state.getHandCard(side, slot), targets)) {
+                cards |= 1 << slot;
+            }
+        }
+        int best = NO_CARDS;
+        int bestScore = 0;
+        //        every subset of the playable cards but the empty one
+        for (int subset = cards; subset != 0; subset = (subset - 1) & cards) {
+            int cost = 0;
+            int stats = 0;
+            int units = 0;
+            int nearUnits = 0;
+            for (int rest = subset; rest != 0; rest &= rest - 1) {
+                int cardId = state.getHandCard(side, Integer.numberOfTrailingZeros(rest));
+                cost += catalog.getCost(cardId);
+                if (!catalog.isSpell(cardId)) {
+                    stats += catalog.getAttack(cardId) + catalog.getHealth(cardId);
+                    units++;
+                    if ((catalog.getFlags(cardId) & CardCatalog.AIRDROP) == 0) {
+                        nearUnits++;
+                    }
+                }
+            }
+            if (cost > mana || nearUnits > cells || units > emptyCells) {
+                continue;
+            }
+            int score = cost * 1024 + stats;
+            if (score > bestScore) {
+                bestScore = score;
+                best = subset;
+            }
+        }
+        return best;
+    }
+
+    private boolean isPlayable(int cardId, int targets) {
+        if (cardId == RulesState.EMPTY) {
+            return false;
+        }
+        return !catalog.isSpell(cardId) || (targets & 1 << catalog.getSpellEffect(cardId)) != 0;
+    }
+
+    /**
+     * The spell effects side has a useful target for, bit e for effect e
+     */
+    private static int spellTargets(RulesState state, int side) {
+        int other = RulesState.otherSide(side);
+        int targets = 1 << CardCatalog.HEAL_UNIT;
+        long enemies = state.getUnits(other);
+        if (enemies != 0) {
+            targets |= 1 << CardCatalog.DAMAGE_ENEMY;
+        }
+        int enemyAvatar = state.getAvatarCell(other);
+        long enemyAvatarBit = enemyAvatar == RulesState.EMPTY ? 0 : BoardGeometry.bit(enemyAvatar);
+        if ((enemies & ~enemyAvatarBit) != 0) {
+            targets |= 1 << CardCatalog.DESTROY_NON_AVATAR;
+        }
+        if (state.getAvatarCell(side) != RulesState.EMPTY) {
+            targets |= 1 << CardCatalog.BUFF_AVATAR;
+        }
+        return targets;
+    }
+
+    /**
+     * Empty cells next to one of side's units, at most HAND_SIZE
+     */
+    private static int nearCells(RulesState state, int side) {
+        long near = 0;
+        for (long rest = state.getUnits(side); rest != 0; rest &= rest - 1) {
+            near |= geometry.neighbourMask(Long.numberOfTrailingZeros(rest));
+        }
+        return Math.min(HAND, Long.bitCount(near & ~state.getOccupied()));
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return key ^ (key >>> 33);
+    }
+}
@@ -0,0 +1,325 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import rules.Action;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Monte Carlo Tree Search over the rules engine. Each decision searches for
+ * a fixed wall-clock budget with root parallelism: every worker grows its own
+ * tree from the current position on the ForkJoinPool it is given, and the
+ * visit counts of the first actions are added up to pick the move. Without a
+ * pool a single tree is grown on the thread asking for the decision.
+ * <p>
+ * Trees are open loop: a node stands for a sequence of actions, not for a
+ * position, and every iteration reseeds the card draws, so the search
+ * averages over the deck orders it cannot see. Each tree's random numbers
+ * come from a stream split from the seed of the position. Playouts are random and stop
+ * after a few turns, where Evaluation estimates who is winning.
+ */
+public class MctsAi implements AiPlayer {
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    //    turn ends played by a random playout before it is evaluated
+    private static final int PLAYOUT_TURNS = 4;
+    private static final int MAX_PLAYOUT_ACTIONS = 400;
+
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+    private final int workers;
+    private final Evaluation evaluation;
+
+    private final LongAdder decisions = new LongAdder();
+    private final LongAdder playouts = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    public MctsAi(int budgetMillis) {
+        this(budgetMillis, Evaluation.DEFAULT);
+    }
+
+    public MctsAi(int budgetMillis, Evaluation evaluation) {
+        this(budgetMillis, null, 1, evaluation);
+    }
+
+    public MctsAi(int budgetMillis, ForkJoinPool pool, int workers) {
+        this(budgetMillis, pool, workers, Evaluation.DEFAULT);
+    }
+
+    /**
+     * @param budgetMillis wall-clock time for each decision
+     * @param pool         where the workers run, null to search on the calling thread
+     * @param workers      number of trees searched in parallel, 1 without a pool
+     * @param evaluation   scores the positions where playouts stop
+     */
+    public MctsAi(int budgetMillis, ForkJoinPool pool, int workers, Evaluation evaluation) {
+        if (budgetMillis <= 0 || workers <= 0) {
+            throw new IllegalArgumentException("Budget and workers must be positive: " + budgetMillis + ", " + workers);
+        }
+        if (pool == null && workers != 1) {
+            throw new IllegalArgumentException("Workers without a pool: " + workers);
+        }
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.pool = pool;
+        this.workers = workers;
+        this.evaluation = evaluation;
+    }
+
+    @Override
+    public int nextAction(RulesState state) {
+        int[] actions = Rules.legalActions(state);
+        if (actions.length == 1) {
+            return actions[0];
+        }
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        List<Search> searches = new ArrayList<>(workers);
+        List<Future<Search>> results = new ArrayList<>(workers);
+        SplittableRandom seeds = new SplittableRandom(state.getSeed()).split();
+        long[] visits = new long[actions.length];
+        try {
+            for (int i = 0; i < workers; i++) {
+                Search search = new Search(state, deadline, seeds.split().nextLong(), evaluation);
+                searches.add(search);
+                results.add(pool == null ? CompletableFuture.completedFuture(search.call()) : pool.submit(search));
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            for (Future<Search> result : results) {
+                Node root = result.get().root;
+                playouts.add(root.visits);
+                for (int i = 0; i < root.childCount; i++) {
+                    int index = indexOf(actions, root.childActions[i]);
+                    if (index >= 0) {
+                        visits[index] += root.children[i].visits;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            //            the decision was cancelled, stop the workers too
+            for (Search search : searches) {
+                search.stopped = true;
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("AI search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("AI search failed", e.getCause());
+        }
+        decisions.increment();
+        searchNanos.add(System.nanoTime() - start);
+
+        int best = 0;
+        for (int i = 1; i < actions.length; i++) {
+            if (visits[i] > visits[best]) {
+                best = i;
+            }
+        }
+        return actions[best];
+    }
+
+    private static int indexOf(int[] actions, int action) {
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i] == action) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getDecisions() {
+        return decisions.sum();
+    }
+
+    public long getPlayouts() {
+        return playouts.sum();
+    }
+
+    /**
+     * Wall-clock time spent searching, over all decisions
+     *
+     * @return
+     */
+    public long getSearchNanos() {
+        return searchNanos.sum();
+    }
+
+    /**
+     * Playouts per second of wall-clock search time, over all workers
+     *
+     * @return
+     */
+    public double getPlayoutsPerSecond() {
+        long nanos = getSearchNanos();
+        return nanos == 0 ? 0 : getPlayouts() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MctsAi: %d decisions, %d playouts, %.0f playouts/s on %d workers",
+                getDecisions(), getPlayouts(), getPlayoutsPerSecond(), workers);
+    }
+
+    /**
+     * One action after the sequence of its parent, played by side
+     */
+    private static final class Node {
+        final int action;
+        final int side;
+        int visits;
+        //        summed reward for side
+        double reward;
+        int[] childActions = new int[8];
+        Node[] children = new Node[8];
+        int childCount;
+
+        Node(int action, int side) {
+            this.action = action;
+            this.side = side;
+        }
+
+        Node child(int action) {
+            for (int i = 0; i < childCount; i++) {
+                if (childActions[i] == action) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(int action, int side) {
+            if (childCount == children.length) {
+                childActions = Arrays.copyOf(childActions, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            Node child = new Node(action, side);
+            childActions[childCount] = action;
+            children[childCount++] = child;
+            return child;
+        }
+    }
+
+    /**
+     * One worker's tree, searched until the deadline or until it is stopped
+     * or its thread interrupted
+     */
+    private static final class Search implements Callable<Search> {
+        private final RulesState rootState;
+        private final RulesState state;
+        private final long deadline;
+        private final Evaluation evaluation;
+        //        set when the decision is cancelled
+        private volatile boolean stopped;
+        private final Node root = new Node(-1, -1);
+        private final Node[] path = new Node[MAX_PLAYOUT_ACTIONS];
+        private final int[] actions = new int[MoveGenerator.MAX_ACTIONS];
+        private long random;
+
+        Search(RulesState rootState, long deadline, long seed, Evaluation evaluation) {
+            this.rootState = rootState;
+            this.state = rootState.copy();
+            this.deadline = deadline;
+            this.evaluation = evaluation;
+            this.random = seed;
+        }
+
+        @Override
+        public Search call() {
+            do {
+                iterate();
+            } while (System.nanoTime() < deadline && !stopped && !Thread.currentThread().isInterrupted());
+            return this;
+        }
+
+        private void iterate() {
+            state.copyFrom(rootState);
+            state.setSeed(nextLong());
+            Node node = root;
+            int depth = 0;
+            path[depth++] = root;
+
+            //            selection, down to the first action this tree has not tried yet
+            while (!state.isGameOver() && depth < path.length) {
+                int n = MoveGenerator.generate(state, actions);
+                int untried = 0;
+                int chosen = -1;
+                Node best = null;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                double logVisits = Math.log(node.visits + 1);
+                for (int i = 0; i < n; i++) {
+                    int action = actions[i];
+                    Node child = node.child(action);
+                    if (child == null) {
+                        if (nextInt(++untried) == 0) {
+                            chosen = action;
+                        }
+                    } else if (untried == 0) {
+                        double score = child.reward / child.visits
+                                + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                        if (score > bestScore) {
+                            bestScore = score;
+                            best = child;
+                        }
+                    }
+                }
+                int side = state.getCurrentSide();
+                if (untried > 0) {
+                    Rules.applyInPlace(state, chosen, null);
+                    node = node.addChild(chosen, side);
+                    path[depth++] = node;
+                    break;
+                }
+                Rules.applyInPlace(state, best.action, null);
+                node = best;
+                path[depth++] = node;
+            }
+
+            double aiWins = playout();
+            for (int i = 0; i < depth; i++) {
+                Node visited = path[i];
+                visited.visits++;
+                visited.reward += visited.side == RulesState.AI ? aiWins : 1 - aiWins;
+            }
+        }
+
+        /**
+         * Random actions for a few turns
+         *
+         * @return the AI's chance of winning from there
+         */
+        private double playout() {
+            int turns = PLAYOUT_TURNS;
+            for (int i = 0; i < MAX_PLAYOUT_ACTIONS && turns > 0 && !state.isGameOver(); i++) {
+                int action = actions[nextInt(MoveGenerator.generate(state, actions))];
+                if (Action.type(action) == Action.END_TURN) {
+                    turns--;
+                }
+                Rules.applyInPlace(state, action, null);
+            }
+            return evaluation.winProbability(state, RulesState.AI);
+        }
+
+        private long nextLong() {
+            random += 0x9E3779B97F4A7C15L;
+            long z = random;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        private int nextInt(int bound) {
+            return (int) ((nextLong() >>> 33) % bound);
+        }
+    }
+}
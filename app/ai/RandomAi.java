@@ -0,0 +1,107 @@
+package ai;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import rules.Action;
+import rules.MoveGenerator;
+import rules.RulesState;
+
+/**
+ * The original opponent: each turn it picks one of a few plans (move, attack,
+ * play cards, in some order) and plays a random legal action for each step.
+ * The cards it plays are the ones ManaPlanner picks to spend the most mana,
+ * each on a random cell.
+ * <p>
+ * Its random numbers for a turn come from its own seed and the seed of the
+ * position the turn starts on, so in a game replayed from its seed it makes
+ * the same choices.
+ */
+public class RandomAi implements AiPlayer {
+
+    // 1 move, 2 attack, 3 summon or spell
+    private static final int[][] PLANS = new int[][]{{1, 2, 3}, {1, 3, 2}, {2, 3}, {3, 1, 2}, {3, 2}};
+    private static final int CARDS = 3;
+
+    private final long seed;
+    private SplittableRandom random;
+    private final int[] actions = new int[MoveGenerator.MAX_ACTIONS];
+    private int planTurn = -1;
+    private int[] plan;
+    private int step;
+
+    public RandomAi() {
+        this(0);
+    }
+
+    public RandomAi(Random random) {
+        this(random.nextLong());
+    }
+
+    public RandomAi(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public int nextAction(RulesState state) {
+        int turn = state.getTurn() * 2 + state.getCurrentSide();
+        if (turn != planTurn) {
+            planTurn = turn;
+            //            split, so the numbers are not the ones the state draws its cards with
+            random = new SplittableRandom(seed ^ state.getSeed()).split();
+            plan = PLANS[random.nextInt(PLANS.length)];
+            step = 0;
+        }
+        int n = MoveGenerator.generate(state, actions);
+        for (; step < plan.length; step++) {
+            int action = plan[step] == CARDS ? pickCard(state, actions, n) : pick(actions, n, plan[step]);
+            if (action != -1) {
+                if (plan[step] != CARDS) {
+                    step++;
+                }
+                return action;
+            }
+        }
+        return Action.endTurn();
+    }
+
+    /**
+     * A summon or spell of the card the mana plan plays next, -1 when it has none
+     */
+    private int pickCard(RulesState state, int[] actions, int n) {
+        int slot = ManaPlanner.forCatalog(state.getCatalog()).nextCard(state);
+        if (slot == RulesState.EMPTY) {
+            return -1;
+        }
+        int count = 0;
+        int chosen = -1;
+        for (int i = 0; i < n; i++) {
+            int action = actions[i];
+            int type = Action.type(action);
+            if ((type == Action.SUMMON || type == Action.SPELL) && Action.a(action) == slot
+                    && random.nextInt(++count) == 0) {
+                chosen = action;
+            }
+        }
+        return chosen;
+    }
+
+    private int pick(int[] actions, int n, int kind) {
+        int count = 0;
+        int chosen = -1;
+        for (int i = 0; i < n; i++) {
+            int action = actions[i];
+            boolean matches = Action.type(action) == (kind == 1 ? Action.MOVE : Action.ATTACK);
+            //            reservoir sampling, one pass and no list
+            if (matches && random.nextInt(++count) == 0) {
+                chosen = action;
+            }
+        }
+        return chosen;
+    }
+
+    @Override
+    public String toString() {
+        return "RandomAi";
+    }
+}
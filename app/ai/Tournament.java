@@ -0,0 +1,206 @@
+package ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+import rules.Action;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Plays complete games between two AI policies on the rules engine, with the
+ * decks of OrderedCardLoader, and no browser or actor attached. Games are
+ * split over a ForkJoinPool, which steals work from threads whose games
+ * happen to be long.
+ * <p>
+ * Game i is seeded with seed + i, which fixes both the deck order and the
+ * seed each policy is created with, so a tournament is repeatable with
+ * deterministic policies. The policies change seats every game, so neither
+ * gets the first turn or a deck more often.
+ */
+public final class Tournament {
+
+    //    a game this long is counted as a draw
+    private static final int MAX_ACTIONS = 2_000;
+
+    private final LongFunction<AiPlayer> first;
+    private final LongFunction<AiPlayer> second;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param first  creates the first policy for a game, from the game's seed
+     * @param second creates the second policy for a game, from the game's seed
+     * @param pool   where the games are played
+     */
+    public Tournament(LongFunction<AiPlayer> first, LongFunction<AiPlayer> second, ForkJoinPool pool) {
+        this.first = first;
+        this.second = second;
+        this.pool = pool;
+    }
+
+    public Result play(int games, long seed) {
+        if (games <= 0) {
+            throw new IllegalArgumentException("Games must be positive: " + games);
+        }
+        long start = System.nanoTime();
+        Result result = pool.invoke(new Games(seed, 0, games));
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private Result playGame(long seed, int game) {
+        long gameSeed = seed + game;
+        //        the first policy takes the human seat in even games
+        boolean firstIsHuman = (game & 1) == 0;
+        AiPlayer[] players = new AiPlayer[2];
+        players[firstIsHuman ? RulesState.HUMAN : RulesState.AI] = first.apply(gameSeed);
+        players[firstIsHuman ? RulesState.AI : RulesState.HUMAN] = second.apply(gameSeed);
+
+        RulesState state = RulesState.newGame(gameSeed);
+        Result result = new Result();
+        result.games = 1;
+        for (int i = 0; i < MAX_ACTIONS && !state.isGameOver(); i++) {
+            int action = players[state.getCurrentSide()].nextAction(state);
+            Rules.applyInPlace(state, action, null);
+            result.actions++;
+            if (Action.type(action) == Action.END_TURN) {
+                result.turns++;
+            }
+        }
+        if (!state.isGameOver()) {
+            result.draws = 1;
+        } else if ((state.getWinner() == RulesState.HUMAN) == firstIsHuman) {
+            result.firstWins = 1;
+        } else {
+            result.secondWins = 1;
+        }
+        return result;
+    }
+
+    /**
+     * Games from to to, split in halves until there is one game to play
+     */
+    private final class Games extends RecursiveTask<Result> {
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        Games(long seed, int from, int to) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from == 1) {
+                return playGame(seed, from);
+            }
+            int middle = (from + to) >>> 1;
+            Games left = new Games(seed, from, middle);
+            left.fork();
+            Result right = new Games(seed, middle, to).compute();
+            return right.add(left.join());
+        }
+    }
+
+    /**
+     * Totals over the games played
+     */
+    public static final class Result {
+        private int games;
+        private int firstWins;
+        private int secondWins;
+        private int draws;
+        private long actions;
+        private long turns;
+        private long nanos;
+
+        private Result add(Result other) {
+            games += other.games;
+            firstWins += other.firstWins;
+            secondWins += other.secondWins;
+            draws += other.draws;
+            actions += other.actions;
+            turns += other.turns;
+            return this;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public int getFirstWins() {
+            return firstWins;
+        }
+
+        public int getSecondWins() {
+            return secondWins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public long getActions() {
+            return actions;
+        }
+
+        /**
+         * Share of the points the second policy scored, a draw is half a point
+         *
+         * @return
+         */
+        public double getSecondWinRate() {
+            return (secondWins + 0.5 * draws) / games;
+        }
+
+        /**
+         * Half the width of the 95% Wilson score interval around getSecondWinRate
+         *
+         * @return
+         */
+        public double getConfidence() {
+            double z = 1.96;
+            double p = getSecondWinRate();
+            double z2n = z * z / games;
+            return z / (1 + z2n) * Math.sqrt(p * (1 - p) / games + z2n / (4 * games));
+        }
+
+        /**
+         * Centre of the 95% Wilson score interval, which is pulled towards 50% for few games
+         *
+         * @return
+         */
+        public double getConfidenceCentre() {
+            double z2n = 1.96 * 1.96 / games;
+            return (getSecondWinRate() + z2n / 2) / (1 + z2n);
+        }
+
+        /**
+         * Turns per game, each player's turn counts once
+         *
+         * @return
+         */
+        public double getAverageTurns() {
+            return (double) turns / games;
+        }
+
+        public double getGamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1e9 / nanos;
+        }
+
+        public double getActionsPerSecond() {
+            return nanos == 0 ? 0 : actions * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games: %d-%d, %d draws, second wins %.1f%% (95%% interval %.1f%% +- %.1f%%), "
+                            + "%.1f turns/game, %.1f games/s, %.0f actions/s",
+                    games, firstWins, secondWins, draws, 100 * getSecondWinRate(), 100 * getConfidenceCentre(),
+                    100 * getConfidence(), getAverageTurns(), getGamesPerSecond(), getActionsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size hash table of search results keyed by RulesState.getHash().
+ * Each entry is two longs, the key XOR the data and the data, so it can be
+ * read and written by several search threads without locks: an entry torn
+ * by two threads writing at once no longer matches its key and is treated
+ * as a miss.
+ * <p>
+ * Data packs the score as a float, the depth it was searched to, what kind
+ * of bound the score is and the best action found.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 0;
+    //    the score is at least this, the search failed high
+    public static final int LOWER = 1;
+    //    the score is at most this, the search failed low
+    public static final int UPPER = 2;
+
+    public static final int NO_ACTION = (1 << 21) - 1;
+
+    private static final long VALID = 1L << 63;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * @param sizeLog2 the table holds 2^sizeLog2 entries of 16 bytes
+     */
+    public TranspositionTable(int sizeLog2) {
+        if (sizeLog2 < 1 || sizeLog2 > 28) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^28 entries: 2^" + sizeLog2);
+        }
+        this.entries = new AtomicLongArray(2 << sizeLog2);
+        this.mask = (1 << sizeLog2) - 1;
+    }
+
+    /**
+     * @param hash
+     * @return the entry's data, 0 if there is none for hash
+     */
+    public long probe(long hash) {
+        int index = ((int) hash & mask) << 1;
+        long data = entries.get(index + 1);
+        return (entries.get(index) ^ data) == hash ? data : 0;
+    }
+
+    /**
+     * Store a result, unless the slot holds a deeper search of the same position
+     *
+     * @param hash
+     * @param depth  depth searched, 0 to 255
+     * @param bound  EXACT, LOWER or UPPER
+     * @param score
+     * @param action best action, or NO_ACTION
+     */
+    public void store(long hash, int depth, int bound, float score, int action) {
+        int index = ((int) hash & mask) << 1;
+        long old = entries.get(index + 1);
+        if ((entries.get(index) ^ old) == hash && depth(old) > depth) {
+            return;
+        }
+        long data = VALID
+                | (Float.floatToRawIntBits(score) & 0xFFFFFFFFL)
+                | (long) (depth & 0xFF) << 32
+                | (long) (bound & 0x3) << 40
+                | (long) (action & NO_ACTION) << 42;
+        entries.set(index, hash ^ data);
+        entries.set(index + 1, data);
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+
+    public int size() {
+        return mask + 1;
+    }
+
+    public static float score(long data) {
+        return Float.intBitsToFloat((int) data);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    public static int action(long data) {
+        return (int) (data >>> 42) & NO_ACTION;
+    }
+}
@@ -52,6 +52,18 @@ function setup() {
   g.state = play;
 }
 
+// The server sends the commands produced by one event as a single JSON array
+// frame, commands sent on their own still arrive as plain objects
+function forEachCommand(frame, handler) {
+	if (Array.isArray(frame)) {
+		for (var i = 0; i < frame.length; i++) {
+			handler(frame[i]);
+		}
+	} else {
+		handler(frame);
+	}
+}
+
 function bgClicked(eventData) {
 	ws.send(JSON.stringify({
     		messagetype: "otherclicked"
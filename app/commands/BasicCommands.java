@@ -3,6 +3,7 @@ package commands;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import actors.CommandTimeline;
 import akka.actor.ActorRef;
 import play.libs.Json;
 import structures.basic.Card;
@@ -43,7 +44,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "drawTile");
-			returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(tile)));
+			returnMessage.put("tile", tile.toJson());
 			returnMessage.put("mode", mode);
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
@@ -65,8 +66,8 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "drawUnit");
-			returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(tile)));
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
+			returnMessage.put("tile", tile.toJson());
+			returnMessage.put("unit", unit.toJson());
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -86,7 +87,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "setUnitAttack");
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
+			returnMessage.put("unit", unit.toJson());
 			returnMessage.put("attack", attack);
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
@@ -107,7 +108,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "setUnitHealth");
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
+			returnMessage.put("unit", unit.toJson());
 			returnMessage.put("health", health);
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
@@ -128,8 +129,8 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "moveUnitToTile");
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
-			returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(tile)));
+			returnMessage.put("unit", unit.toJson());
+			returnMessage.put("tile", tile.toJson());
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -152,8 +153,8 @@ public class BasicCommands {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "moveUnitToTile");
 			returnMessage.put("yfirst", yfirst);
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
-			returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(tile)));
+			returnMessage.put("unit", unit.toJson());
+			returnMessage.put("tile", tile.toJson());
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -177,7 +178,7 @@ public class BasicCommands {
 			
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "playUnitAnimation");
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
+			returnMessage.put("unit", unit.toJson());
 			returnMessage.put("animation", animationToPlay.toString());
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
@@ -197,7 +198,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "deleteUnit");
-			returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
+			returnMessage.put("unit", unit.toJson());
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -217,7 +218,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "setPlayer1Health");
-			returnMessage.put("player", mapper.readTree(mapper.writeValueAsString(player)));
+			returnMessage.put("player", mapper.valueToTree(player));
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -237,7 +238,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "setPlayer2Health");
-			returnMessage.put("player", mapper.readTree(mapper.writeValueAsString(player)));
+			returnMessage.put("player", mapper.valueToTree(player));
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -257,7 +258,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "setPlayer1Mana");
-			returnMessage.put("player", mapper.readTree(mapper.writeValueAsString(player)));
+			returnMessage.put("player", mapper.valueToTree(player));
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -277,7 +278,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "setPlayer2Mana");
-			returnMessage.put("player", mapper.readTree(mapper.writeValueAsString(player)));
+			returnMessage.put("player", mapper.valueToTree(player));
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -299,7 +300,7 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "drawCard");
-			returnMessage.put("card", mapper.readTree(mapper.writeValueAsString(card)));
+			returnMessage.put("card", mapper.valueToTree(card));
 			returnMessage.put("position", position);
 			returnMessage.put("mode", mode);
 			if (altTell!=null) altTell.tell(returnMessage);
@@ -338,8 +339,8 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "playEffectAnimation");
-			returnMessage.put("effect", mapper.readTree(mapper.writeValueAsString(effect)));
-			returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(tile)));
+			returnMessage.put("effect", mapper.valueToTree(effect));
+			returnMessage.put("tile", tile.toJson());
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -379,10 +380,10 @@ public class BasicCommands {
 		try {
 			ObjectNode returnMessage = Json.newObject();
 			returnMessage.put("messagetype", "drawProjectile");
-			returnMessage.put("effect", mapper.readTree(mapper.writeValueAsString(effect)));
-			returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(startTile)));
-			returnMessage.put("targetTile", mapper.readTree(mapper.writeValueAsString(targetTile)));
-			returnMessage.put("mode", mapper.readTree(mapper.writeValueAsString(mode)));
+			returnMessage.put("effect", mapper.valueToTree(effect));
+			returnMessage.put("tile", startTile.toJson());
+			returnMessage.put("targetTile", targetTile.toJson());
+			returnMessage.put("mode", mode);
 			if (altTell!=null) altTell.tell(returnMessage);
 			else out.tell(returnMessage, out);
 		} catch (Exception e) {
@@ -390,4 +391,29 @@ public class BasicCommands {
 		}
 	}
 	
+	/**
+	 * Holds back the commands sent after this one for the given time, so the UI has
+	 * time to play an animation (a move, an attack, a death) before the next command.
+	 * The game logic carries on straight away, the delay is scheduled by the
+	 * CommandTimeline actor that out points to. With an altTell there is no
+	 * timeline, and the pause is skipped.
+	 * @param out
+	 * @param millis
+	 */
+	public static void pause(ActorRef out, int millis) {
+		if (altTell!=null) return;
+		out.tell(new CommandTimeline.Pause(millis), out);
+	}
+	
+	/**
+	 * Sends the commands buffered since the last flush to the front-end as one frame.
+	 * The GameActor calls this once an event has been processed. With an altTell
+	 * commands are not buffered, and there is nothing to flush.
+	 * @param out
+	 */
+	public static void flush(ActorRef out) {
+		if (altTell!=null) return;
+		out.tell(CommandTimeline.Flush.INSTANCE, out);
+	}
+	
 }
@@ -0,0 +1,61 @@
+package commands;
+
+import akka.actor.ActorRef;
+import structures.GameState;
+import structures.basic.Card;
+import structures.basic.Player;
+import structures.basic.Tile;
+import structures.basic.Unit;
+
+/**
+ * Draws a running game on a page that has just loaded, from the GameState
+ * alone: the tiles, the units with their attack and health, both players'
+ * health and mana and the human's hand. A page that reloads during a game is
+ * sent this instead of the whole game, and needs no new game.
+ */
+public class BoardSnapshot {
+
+	// the page draws a unit a moment after drawUnit, its attack and health are set after that
+	private static final int DRAW_UNITS_MILLIS = 500;
+
+	public static void draw(ActorRef out, GameState gameState) {
+		Tile[][] board = gameState.getBoard();
+		for (Tile[] column : board) {
+			for (Tile tile : column) {
+				BasicCommands.drawTile(out, tile, 0);
+			}
+		}
+		for (Tile[] column : board) {
+			for (Tile tile : column) {
+				if (tile.getUnitOnTile() != null) {
+					BasicCommands.drawUnit(out, tile.getUnitOnTile(), tile);
+				}
+			}
+		}
+
+		Player human = gameState.getPlayerContainers()[0];
+		Player ai = gameState.getPlayerContainers()[1];
+		BasicCommands.setPlayer1Health(out, human);
+		BasicCommands.setPlayer2Health(out, ai);
+		BasicCommands.setPlayer1Mana(out, human);
+		BasicCommands.setPlayer2Mana(out, ai);
+		Card[] hand = human.getHandCards();
+		for (int i = 0; i < hand.length; i++) {
+			if (hand[i] != null) {
+				BasicCommands.drawCard(out, hand[i], i + 1, 0);
+			}
+		}
+		BasicCommands.addPlayer1Notification(out, gameState.getCurrentPlayer() == human ? "Player turn" : "AI turn", 2);
+
+		BasicCommands.pause(out, DRAW_UNITS_MILLIS);
+		for (Tile[] column : board) {
+			for (Tile tile : column) {
+				Unit unit = tile.getUnitOnTile();
+				if (unit != null) {
+					BasicCommands.setUnitAttack(out, unit, unit.getAttack());
+					BasicCommands.setUnitHealth(out, unit, unit.getHealth());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package commands;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import play.libs.Json;
+
+/**
+ * Buffer for the commands of one game. Commands are collected while an event
+ * is processed and sent to the front-end as one websocket frame, a JSON array
+ * of commands, instead of one frame each. A batch of a single command is sent
+ * as the plain command.
+ * <p>
+ * Keeps simple size metrics of the frames it produced.
+ */
+public class CommandBatch {
+
+	private ArrayNode commands = Json.newArray();
+
+	private long flushCount = 0;
+	private long commandCount = 0;
+	private int lastFlushSize = 0;
+	private int maxFlushSize = 0;
+
+	public void add(JsonNode command) {
+		commands.add(command);
+	}
+
+	public boolean isEmpty() {
+		return commands.size() == 0;
+	}
+
+	public int size() {
+		return commands.size();
+	}
+
+	/**
+	 * Empty the buffer without sending what it holds
+	 */
+	public void clear() {
+		commands = Json.newArray();
+	}
+
+	/**
+	 * Take the buffered commands as one frame and empty the buffer
+	 * @return the frame to send, or null if nothing was buffered
+	 */
+	public JsonNode flush() {
+		int size = commands.size();
+		if (size == 0) {
+			return null;
+		}
+		JsonNode frame = size == 1 ? commands.get(0) : commands;
+		commands = Json.newArray();
+
+		flushCount++;
+		commandCount += size;
+		lastFlushSize = size;
+		maxFlushSize = Math.max(maxFlushSize, size);
+		return frame;
+	}
+
+	public long getFlushCount() {
+		return flushCount;
+	}
+
+	public long getCommandCount() {
+		return commandCount;
+	}
+
+	public int getLastFlushSize() {
+		return lastFlushSize;
+	}
+
+	public int getMaxFlushSize() {
+		return maxFlushSize;
+	}
+
+	public double getAverageFlushSize() {
+		return flushCount == 0 ? 0 : (double) commandCount / flushCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d commands in %d frames (avg %.1f, max %d)",
+				commandCount, flushCount, getAverageFlushSize(), maxFlushSize);
+	}
+}
@@ -0,0 +1,197 @@
+package commands;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Commands of one game waiting for a slow front-end to take the last frame.
+ * A command that only sets a state, a tile redraw, a unit's attack or health,
+ * a player's health or mana, replaces the waiting command of an earlier frame
+ * that set the same state in its place, and a newer notification replaces an
+ * older one. When more than maxQueued commands wait, the oldest animation,
+ * projectile or notification is dropped; the other commands change the board
+ * and are always kept, so isOverflowing tells when a front-end is too far
+ * behind to keep up.
+ * <p>
+ * Keeps counts of the commands coalesced and dropped.
+ */
+public class CommandQueue {
+
+	private final int maxQueued;
+	private final List<JsonNode> commands = new ArrayList<>();
+	// index in commands of the waiting command that last set each state, in the frames before this one
+	private final Map<String, Integer> latest = new HashMap<>();
+	// and in this frame, commands of one frame never replace each other
+	private final Map<String, Integer> frameStates = new HashMap<>();
+
+	private long coalescedCount = 0;
+	private long droppedCount = 0;
+	private int maxDepth = 0;
+
+	/**
+	 * @param maxQueued most commands waiting before animations are dropped
+	 */
+	public CommandQueue(int maxQueued) {
+		this.maxQueued = maxQueued;
+	}
+
+	public void add(JsonNode command) {
+		String type = command.path("messagetype").asText();
+		String key = stateKey(type, command);
+		if (key != null && !frameStates.containsKey(key)) {
+			Integer index = latest.remove(key);
+			if (index != null) {
+				commands.set(index, command);
+				frameStates.put(key, index);
+				if (isDroppable(type)) {
+					droppedCount++; // a stale notification
+				} else {
+					coalescedCount++;
+				}
+				return;
+			}
+		}
+		if (type.equals("deleteUnit")) {
+			// updates of a unit deleted before them must not move in front of the delete
+			String id = command.path("unit").path("id").asText();
+			for (String state : new String[]{"setUnitAttack " + id, "setUnitHealth " + id}) {
+				latest.remove(state);
+				frameStates.remove(state);
+			}
+		}
+		commands.add(command);
+		if (key != null) {
+			frameStates.put(key, commands.size() - 1);
+		}
+		if (commands.size() > maxQueued) {
+			dropAnimation();
+		}
+		maxDepth = Math.max(maxDepth, commands.size());
+	}
+
+	/**
+	 * The commands added since the last endFrame were one frame, later commands may replace them
+	 */
+	public void endFrame() {
+		latest.putAll(frameStates);
+		frameStates.clear();
+	}
+
+	private void dropAnimation() {
+		for (int i = 0; i < commands.size(); i++) {
+			if (isDroppable(commands.get(i).path("messagetype").asText())) {
+				commands.remove(i);
+				droppedCount++;
+				shift(latest, i);
+				shift(frameStates, i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Fix the indices of states after the command removed at removed
+	 */
+	private static void shift(Map<String, Integer> states, int removed) {
+		for (Iterator<Map.Entry<String, Integer>> it = states.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<String, Integer> state = it.next();
+			if (state.getValue() == removed) {
+				it.remove();
+			} else if (state.getValue() > removed) {
+				state.setValue(state.getValue() - 1);
+			}
+		}
+	}
+
+	/**
+	 * @return the state command sets, or null if it is not only setting a state
+	 */
+	private static String stateKey(String type, JsonNode command) {
+		switch (type) {
+			case "drawTile":
+				JsonNode tile = command.path("tile");
+				return type + " " + tile.path("tilex").asInt() + "," + tile.path("tiley").asInt();
+			case "setUnitAttack":
+			case "setUnitHealth":
+				return type + " " + command.path("unit").path("id").asText();
+			case "setPlayer1Health":
+			case "setPlayer2Health":
+			case "setPlayer1Mana":
+			case "setPlayer2Mana":
+			case "addPlayer1Notification":
+				return type;
+			default:
+				return null;
+		}
+	}
+
+	private static boolean isDroppable(String type) {
+		switch (type) {
+			case "playUnitAnimation":
+			case "playEffectAnimation":
+			case "drawProjectile":
+			case "addPlayer1Notification":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	public boolean isEmpty() {
+		return commands.isEmpty();
+	}
+
+	public int size() {
+		return commands.size();
+	}
+
+	/**
+	 * @param limit most commands a front-end may be behind
+	 * @return whether more than limit commands that cannot be dropped are waiting
+	 */
+	public boolean isOverflowing(int limit) {
+		return commands.size() > limit;
+	}
+
+	/**
+	 * Move the waiting commands to batch, in order, and empty the queue
+	 */
+	public void drainTo(CommandBatch batch) {
+		for (JsonNode command : commands) {
+			batch.add(command);
+		}
+		clear();
+	}
+
+	/**
+	 * Empty the queue, the commands waiting are not needed any more
+	 */
+	public void clear() {
+		commands.clear();
+		latest.clear();
+		frameStates.clear();
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount;
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d waiting (max %d), %d coalesced, %d dropped",
+				commands.size(), maxDepth, coalescedCount, droppedCount);
+	}
+}
@@ -1,30 +1,87 @@
 package controllers;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.typesafe.config.Config;
 
-import actors.GameActor;
+import actors.GameSocket;
+import actors.SessionRegistry;
+import actors.SocketFlow;
+import actors.SpectatorSocket;
+import actors.Spectators;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
+import akka.pattern.Patterns;
 import akka.stream.Materializer;
+import akka.stream.javadsl.Flow;
+import akka.util.ByteString;
+import play.api.http.websocket.CloseCodes;
 import play.data.Form;
 import play.data.FormFactory;
-import play.libs.streams.ActorFlow;
+import play.http.websocket.Message;
+import play.libs.F;
+import play.libs.Json;
+import play.libs.Scala;
 import play.mvc.Controller;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.WebSocket;
 import structures.User;
+import utils.BasicObjectBuilders;
+import utils.ImageListForPreLoad;
 
 /**
- * This is the Controller class for the game. 
+ * This is the Controller class for the game. It is a singleton, as it owns the
+ * SessionRegistry that admits the games of all sockets.
  * @author Dr. Richard McCreadie
  *
  */
+@Singleton
 public class GameScreenController extends Controller {
 
+	// longest wait for the SessionRegistry before a socket is turned away
+	private static final Duration ADMIT_TIMEOUT = Duration.ofSeconds(5);
+	// seconds a busy server asks a player to wait before trying again
+	private static final String RETRY_SECONDS = "30";
+	// dispatchers of application.conf, so games, spectators and file IO never hold up serving pages
+	private static final String GAME_DISPATCHER = "game.dispatchers.game";
+	private static final String SPECTATOR_DISPATCHER = "game.dispatchers.spectators";
+	private static final String BLOCKING_IO_DISPATCHER = "game.dispatchers.blocking-io";
+	private static final String GAME_CONFS = "conf/gameconfs";
+	private static final String BUFFERED_FRAMES = "game.socket.buffered-frames";
+	private static final String MAX_BEHIND = "game.spectators.max-behind";
+
+	// pages send JSON, as with Play's WebSocket.Json, and a socket may be closed with a SocketFlow.Close
+	private static final scala.PartialFunction<Message, F.Either<JsonNode, Message>> JSON_IN = Scala.partialFunction(message -> {
+		if (message instanceof Message.Text) {
+			try {
+				return F.Either.Left(Json.parse(((Message.Text) message).data()));
+			} catch (RuntimeException e) {
+				return F.Either.Right(new Message.Close(CloseCodes.Unacceptable(), "Unable to parse JSON message"));
+			}
+		}
+		throw Scala.noMatch();
+	});
+	private static final WebSocket.MappedWebSocketAcceptor<JsonNode, Object> GAME_SOCKET =
+			new WebSocket.MappedWebSocketAcceptor<>(JSON_IN, out -> out instanceof SocketFlow.Close
+					? close((SocketFlow.Close) out) : new Message.Text(Json.stringify((JsonNode) out)));
+	// spectators are sent each frame as the bytes written once for all of them
+	private static final WebSocket.MappedWebSocketAcceptor<JsonNode, Object> SPECTATOR_SOCKET =
+			new WebSocket.MappedWebSocketAcceptor<>(JSON_IN, out -> out instanceof SocketFlow.Close
+					? close((SocketFlow.Close) out) : new Message.Binary((ByteString) out));
+
 	private final ActorSystem actorSystem;
 	private final Materializer materializer;
+	private final ActorRef sessions;
+	private final int bufferedFrames;
+	private final int maxBehind;
 	Form<User> userForm = null;
 	
 	
@@ -32,17 +89,100 @@ public class GameScreenController extends Controller {
 	public GameScreenController(FormFactory formFactory, ActorSystem actorSystem, Materializer materializer) {
 		this.actorSystem = actorSystem;
 		this.materializer = materializer;
+		this.sessions = actorSystem.actorOf(
+				SessionRegistry.props(actorSystem.settings().config()).withDispatcher(GAME_DISPATCHER), "sessions");
+		Config config = actorSystem.settings().config();
+		this.bufferedFrames = config.hasPath(BUFFERED_FRAMES) ? config.getInt(BUFFERED_FRAMES) : 16;
+		this.maxBehind = config.hasPath(MAX_BEHIND) ? config.getInt(MAX_BEHIND) : 64;
 		userForm = formFactory.form(User.class);
+
+		// read the configuration files now, so the first games do not read them on the game dispatcher
+		CompletableFuture.runAsync(() -> {
+			int files = BasicObjectBuilders.preload(GAME_CONFS);
+			int images = ImageListForPreLoad.getImageListForPreLoad().size();
+			System.out.println("GameScreenController: read " + files + " configuration files, " + images + " images to preload");
+		}, actorSystem.dispatchers().lookup(BLOCKING_IO_DISPATCHER)).exceptionally(e -> {
+			System.err.println("GameScreenController: could not read the configuration files: " + e);
+			return null;
+		});
 	}
 
 	/**
-	 * This responds to the request for creation of the Websocket 
+	 * This responds to the request for creation of the Websocket. A page that has played
+	 * on this server brings the token of its game, and the number of the last frame it was
+	 * sent if it still shows the game; the socket resumes that game if it is still running.
+	 * Otherwise the socket is only accepted if the SessionRegistry admits a new game, or
+	 * the server is busy
 	 * @return
 	 */
 	public WebSocket socket() {
 
-		return WebSocket.Json.accept(
-				request -> ActorFlow.actorRef(this::createGameActor, actorSystem, materializer));
+		return GAME_SOCKET.acceptOrResult(request -> Patterns.ask(sessions,
+				new SessionRegistry.Admit(request.queryString("token").orElse(null)), ADMIT_TIMEOUT)
+				.handle((reply, failure) -> {
+					if (reply instanceof SessionRegistry.Admitted) {
+						SessionRegistry.Admitted admitted = (SessionRegistry.Admitted) reply;
+						long lastSeq = admitted.isResumed() ? lastSeq(request) : 0;
+						Flow<JsonNode, Object, ?> flow = SocketFlow.actorRef(
+								out -> createGameSocket(out, admitted.getGame(), lastSeq),
+								bufferedFrames, actorSystem, materializer);
+						return F.Either.<Result, Flow<JsonNode, Object, ?>>Right(flow);
+					}
+					return F.Either.<Result, Flow<JsonNode, Object, ?>>Left(
+							status(SERVICE_UNAVAILABLE, "Server busy, try again later").withHeader(RETRY_AFTER, RETRY_SECONDS));
+				}));
+	}
+
+	/**
+	 * This responds to the request for the Websocket of a spectator of a running game. The
+	 * socket cannot play, it is drawn the board and then shown the game as it is played
+	 * @param gameId
+	 * @return
+	 */
+	public WebSocket watchSocket(long gameId) {
+
+		return SPECTATOR_SOCKET.acceptOrResult(request -> Patterns.ask(sessions,
+				new SessionRegistry.FindGame(gameId), ADMIT_TIMEOUT)
+				.handle((game, failure) -> {
+					if (game instanceof ActorRef) {
+						Flow<JsonNode, Object, ?> flow = SocketFlow.actorRef(
+								out -> SpectatorSocket.props(out, (ActorRef) game, maxBehind).withDispatcher(SPECTATOR_DISPATCHER),
+								bufferedFrames, actorSystem, materializer);
+						return F.Either.<Result, Flow<JsonNode, Object, ?>>Right(flow);
+					}
+					return F.Either.<Result, Flow<JsonNode, Object, ?>>Left(notFound("No game " + gameId));
+				}));
+	}
+
+	/**
+	 * The number of games running on this server, as JSON
+	 * @return
+	 */
+	public CompletionStage<Result> sessions() {
+		return Patterns.ask(sessions, SessionRegistry.GetStats.INSTANCE, ADMIT_TIMEOUT)
+				.thenApply(stats -> ok(Json.toJson(stats)));
+	}
+
+	/**
+	 * The commands waiting for the socket of a game and the commands it has
+	 * sent, coalesced and dropped, as JSON
+	 * @param gameId
+	 * @return
+	 */
+	public CompletionStage<Result> gameStats(long gameId) {
+		return Patterns.ask(sessions, new SessionRegistry.GetGameStats(gameId), ADMIT_TIMEOUT)
+				.handle((stats, failure) -> failure == null ? ok(Json.toJson(stats)) : notFound("No game " + gameId));
+	}
+
+	/**
+	 * The spectators of a game and the frames sent to them, as JSON
+	 * @param gameId
+	 * @return
+	 */
+	public CompletionStage<Result> spectatorStats(long gameId) {
+		return Patterns.ask(sessions, new SessionRegistry.FindGame(gameId), ADMIT_TIMEOUT)
+				.thenCompose(game -> Patterns.ask((ActorRef) game, Spectators.GetStats.INSTANCE, ADMIT_TIMEOUT))
+				.handle((stats, failure) -> failure == null ? ok(Json.toJson(stats)) : notFound("No game " + gameId));
 	}
 
 	/**
@@ -51,10 +191,35 @@ public class GameScreenController extends Controller {
 	 * @return
 	 */
 	public Result index(Http.Request request) {
-		return ok(views.html.gamescreen.render(request, null));
+		return ok(views.html.gamescreen.render(request, null, null));
+	}
+
+	/**
+	 * The /game screen of a spectator of a running game
+	 * @param request
+	 * @param gameId
+	 * @return
+	 */
+	public Result watch(Http.Request request, long gameId) {
+		return ok(views.html.gamescreen.render(request, null, gameId));
 	}
 	
-	public Props createGameActor(ActorRef out) {
-		return Props.create(GameActor.class, out); // calls the constructor for Game Actor
+	public Props createGameSocket(ActorRef out, ActorRef game, long lastSeq) {
+		return GameSocket.props(out, game, lastSeq).withDispatcher(GAME_DISPATCHER); // attaches the socket to the Game Actor
+	}
+
+	private static Message close(SocketFlow.Close close) {
+		return new Message.Close(close.getCode(), close.getReason());
+	}
+
+	/**
+	 * @return the number of the last frame the page has, 0 if it has none
+	 */
+	private static long lastSeq(Http.RequestHeader request) {
+		try {
+			return Math.max(0, Long.parseLong(request.queryString("seq").orElse("0")));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
 	}
 }
\ No newline at end of file
@@ -24,12 +24,6 @@ public class CardClicked implements EventProcessor {
     public void processEvent(ActorRef out, GameState gameState, JsonNode message) {
 
         int handPosition = message.get("position").asInt();
-        //set currentState
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
 //        if player's turn, continue
         if (gameState.getCurrentPlayer() != gameState.getPlayerContainers()[1]) {
             gameState.getCurrentPlayer().cardSelected(handPosition, out);
@@ -4,11 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 
 import akka.actor.ActorRef;
 import commands.BasicCommands;
+import rules.Action;
+import rules.GameStateAdapter;
 import structures.GameState;
-import structures.basic.Unit;
-
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Indicates that the user has clicked an object on the game canvas, in this case
@@ -29,11 +27,8 @@ public class EndTurnClicked implements EventProcessor {
         // if human player turn, change to AI player turn
         if (gameState.getCurrentPlayer() == gameState.getPlayerContainers()[0]) {
             BasicCommands.addPlayer1Notification(out, "player turn over", 2);
-//            clear mana
-            gameState.getCurrentPlayer().setMana(0);
-            gameState.getCurrentPlayer().drawCard(out);
-            gameState.setCurrentPlayer(gameState.getPlayerContainers()[1]);
-            gameState.setCurrentState(null);
+//            clear mana, draw a card and leave the AI's turn to the heartbeat
+            GameStateAdapter.perform(gameState, Action.endTurn());
 //            if human player click this button during AI's turn
         } else BasicCommands.addPlayer1Notification(out, "not your turn", 2);
     }
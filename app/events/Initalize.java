@@ -1,25 +1,27 @@
 package events;
 
+import java.util.SplittableRandom;
+
 import com.fasterxml.jackson.databind.JsonNode;
 
 import akka.actor.ActorRef;
 import commands.BasicCommands;
 import structures.GameState;
 import structures.basic.*;
+import structures.event.GameEvent;
+import structures.event.SummonEvent;
 import utils.BasicObjectBuilders;
 import utils.StaticConfFiles;
 
 import utils.OrderedCardLoader;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Indicates that both the core game loop in the browser is starting, meaning
  * that it is ready to recieve commands from the back-end.
  * <p>
  * {
  * messageType = “initalize”
+ * seed = the game's seed, optional, to replay a game
  * }
  *
  * @author Dr. Richard McCreadie
@@ -29,20 +31,21 @@ public class Initalize implements EventProcessor {
     @Override
     public void processEvent(ActorRef out, GameState gameState, JsonNode message) {
 
+        // every card drawn and AI decision comes from the seed, logged so the game can be replayed
+        long seed = message.has("seed") ? message.get("seed").asLong() : new SplittableRandom().nextLong();
+        gameState.setSeed(seed);
+        System.out.println("Initalize: game seed " + seed);
+
         // start
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 5; j++) {
+        for (int i = 0; i < GameState.BOARD_WIDTH; i++) {
+            for (int j = 0; j < GameState.BOARD_HEIGHT; j++) {
                 Tile tile = BasicObjectBuilders.loadTile(StaticConfFiles.tileConf, i, j, gameState);
                 gameState.add(tile);
                 BasicCommands.drawTile(out, tile, 0);
             }
         }
 
-        try {
-            Thread.sleep(300);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        BasicCommands.pause(out, 300);
 
 
         Player Player = new Player(20, 2, 0, gameState);
@@ -56,8 +59,6 @@ public class Initalize implements EventProcessor {
 
         BasicCommands.addPlayer1Notification(out, "Player turn", 2);
 
-        Map<String, Object> parameters = new HashMap<>();
-
         Unit humanAvatar = BasicObjectBuilders.loadUnit(
                 StaticConfFiles.humanAvatar,
                 99, Unit.class,
@@ -74,12 +75,7 @@ public class Initalize implements EventProcessor {
         humanAvatar.setMaxHealth(Player.getHealth());
         humanAvatar.setHealth(Player.getHealth());
         humanAvatar.setAttack(Player.getAttack());
-        parameters = new HashMap<>();
-        parameters.put("type", "summon");
-        parameters.put("tilex", 1);
-        parameters.put("tiley", 2);
-        parameters.put("unit", humanAvatar);
-        gameState.broadcastEvent(Tile.class, parameters);
+        gameState.sendTileEvent(new SummonEvent(1, 2, humanAvatar));
 
         Unit AiAvatar = BasicObjectBuilders.loadUnit(
                 StaticConfFiles.aiAvatar,
@@ -95,12 +91,7 @@ public class Initalize implements EventProcessor {
         AiAvatar.setHealth(AIPlayer.getHealth());
         AiAvatar.setAttack(AIPlayer.getAttack());
 
-        parameters = new HashMap<>();
-        parameters.put("type", "summon");
-        parameters.put("tilex", 7);
-        parameters.put("tiley", 2);
-        parameters.put("unit", AiAvatar);
-        gameState.broadcastEvent(Tile.class, parameters);
+        gameState.sendTileEvent(new SummonEvent(7, 2, AiAvatar));
 
         gameState.addPlayers(Player, AIPlayer);
 
@@ -112,9 +103,7 @@ public class Initalize implements EventProcessor {
         AIPlayer.drawCard(out);
         AIPlayer.drawCard(out);
 
-        parameters = new HashMap<>();
-        parameters.put("type", "unitBeReady");
-        gameState.broadcastEvent(Unit.class, parameters);
+        gameState.broadcastEvent(GameEvent.UNIT_BE_READY);
 
         gameState.callbacks();
     }
@@ -6,11 +6,10 @@ import akka.actor.ActorRef;
 import commands.BasicCommands;
 import structures.GameState;
 import structures.basic.Card;
-import structures.basic.Tile;
 import structures.basic.Unit;
-
-import java.util.HashMap;
-import java.util.Map;
+import structures.event.EventType;
+import structures.event.OperateUnitEvent;
+import structures.event.SummonEvent;
 
 /**
  * Indicates that the user has clicked an object on the game canvas, in this case a tile.
@@ -32,12 +31,7 @@ public class TileClicked implements EventProcessor {
         int tilex = message.get("tilex").asInt();
         int tiley = message.get("tiley").asInt();
 
-        Map<String, Object> parameters;
-
-
         if (gameState.getCurrentState().equals(GameState.CurrentState.SELECTED_CARD)) {
-            parameters = new HashMap<>();
-
             Card cardSelected = gameState.getCardSelected();
 //            check if the card is a creature 1 or spell -1
             if (cardSelected.isCOrS() == 1) {
@@ -45,32 +39,16 @@ public class TileClicked implements EventProcessor {
 
                 unit.setOwner(gameState.getCurrentPlayer());
                 gameState.add(unit);
-                parameters.put("type", "summon");
-                parameters.put("tilex", tilex);
-                parameters.put("tiley", tiley);
-                parameters.put("unit", unit);
-                gameState.broadcastEvent(Tile.class, parameters);
+                gameState.sendTileEvent(new SummonEvent(tilex, tiley, unit));
 
             } else {
                 BasicCommands.addPlayer1Notification(out, "Player spell " + cardSelected.getCardname(), 2);
-                parameters.put("type", "spell");
-                parameters.put("tilex", tilex);
-                parameters.put("tiley", tiley);
-                gameState.broadcastEvent(Tile.class, parameters);
+                gameState.sendTileEvent(EventType.SPELL, tilex, tiley);
             }
         } else if (gameState.getCurrentState().equals(GameState.CurrentState.READY)) {
-            parameters = new HashMap<>();
-            parameters.put("type", "firstClickTile");
-            parameters.put("tilex", tilex);
-            parameters.put("tiley", tiley);
-            gameState.broadcastEvent(Tile.class, parameters);
+            gameState.sendTileEvent(EventType.FIRST_CLICK_TILE, tilex, tiley);
         } else if (gameState.getCurrentState().equals(GameState.CurrentState.SELECTED_UNIT)) {
-            parameters = new HashMap<>();
-            parameters.put("type", "operateUnit");
-            parameters.put("tilex", tilex);
-            parameters.put("tiley", tiley);
-            parameters.put("originTileSelected", gameState.getTileSelected());
-            gameState.broadcastEvent(Tile.class, parameters);
+            gameState.sendTileEvent(new OperateUnitEvent(tilex, tiley, gameState.getTileSelected()));
         }
     }
 }
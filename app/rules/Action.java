@@ -0,0 +1,91 @@
+package rules;
+
+/**
+ * Actions are packed into one int so lists of them are plain int arrays:
+ * the type in bits 0-2, then three 6 bit operands a, b and c.
+ * <ul>
+ * <li>END_TURN</li>
+ * <li>MOVE: a = from cell, b = to cell</li>
+ * <li>ATTACK: a = attacker cell, b = cell to move to first (a if the
+ * attack is made from where the unit stands), c = target cell</li>
+ * <li>SUMMON: a = hand slot, b = cell</li>
+ * <li>SPELL: a = hand slot, b = target cell</li>
+ * </ul>
+ */
+public final class Action {
+
+    public static final int END_TURN = 0;
+    public static final int MOVE = 1;
+    public static final int ATTACK = 2;
+    public static final int SUMMON = 3;
+    public static final int SPELL = 4;
+
+    private static final int TYPE_MASK = 0x7;
+    private static final int OPERAND_MASK = 0x3F;
+
+    private Action() {
+    }
+
+    public static int endTurn() {
+        return END_TURN;
+    }
+
+    public static int move(int from, int to) {
+        return encode(MOVE, from, to, 0);
+    }
+
+    public static int attack(int from, int target) {
+        return encode(ATTACK, from, from, target);
+    }
+
+    public static int moveAndAttack(int from, int via, int target) {
+        return encode(ATTACK, from, via, target);
+    }
+
+    public static int summon(int slot, int cell) {
+        return encode(SUMMON, slot, cell, 0);
+    }
+
+    public static int spell(int slot, int cell) {
+        return encode(SPELL, slot, cell, 0);
+    }
+
+    static int encode(int type, int a, int b, int c) {
+        return type | a << 3 | b << 9 | c << 15;
+    }
+
+    public static int type(int action) {
+        return action & TYPE_MASK;
+    }
+
+    public static int a(int action) {
+        return action >>> 3 & OPERAND_MASK;
+    }
+
+    public static int b(int action) {
+        return action >>> 9 & OPERAND_MASK;
+    }
+
+    public static int c(int action) {
+        return action >>> 15 & OPERAND_MASK;
+    }
+
+    public static String toString(int action) {
+        switch (type(action)) {
+            case END_TURN:
+                return "END_TURN";
+            case MOVE:
+                return "MOVE " + a(action) + "->" + b(action);
+            case ATTACK:
+                return a(action) == b(action)
+                        ? "ATTACK " + a(action) + "->" + c(action)
+                        : "ATTACK " + a(action) + "->" + b(action) + "->" + c(action);
+            case SUMMON:
+                return "SUMMON slot " + a(action) + " at " + b(action);
+            case SPELL:
+                return "SPELL slot " + a(action) + " on " + b(action);
+            default:
+                return "UNKNOWN " + action;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package rules;
+
+import java.util.List;
+
+/**
+ * What Rules.apply returns: the state after the action and what happened on the way
+ */
+public final class ActionResult {
+
+    private final RulesState state;
+    private final List<PresentationEvent> events;
+
+    public ActionResult(RulesState state, List<PresentationEvent> events) {
+        this.state = state;
+        this.events = events;
+    }
+
+    public RulesState getState() {
+        return state;
+    }
+
+    public List<PresentationEvent> getEvents() {
+        return events;
+    }
+}
@@ -0,0 +1,150 @@
+package rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import structures.basic.Card;
+import utils.OrderedCardLoader;
+
+/**
+ * Read only table of what the rules need to know about each card, indexed by
+ * card id: cost, unit stats and abilities, or the spell effect. It is built
+ * from the Card objects by reading the rules text the same way
+ * GameState.cardToUnit and Player.validRange do.
+ */
+public final class CardCatalog {
+
+    //    unit flags, also stored per unit in RulesState
+    public static final int RANGED = 1;
+    public static final int TWICE = 2;
+    public static final int PROVOKE = 4;
+    public static final int AVATAR = 8;
+    public static final int REMOTE_MOVE = 16;
+    public static final int AIRDROP = 32;
+
+    //    spell effects
+    public static final int NOT_A_SPELL = 0;
+    public static final int DAMAGE_ENEMY = 1;
+    public static final int DESTROY_NON_AVATAR = 2;
+    public static final int HEAL_UNIT = 3;
+    public static final int BUFF_AVATAR = 4;
+
+    private static volatile CardCatalog standard;
+
+    private final String[] names;
+    private final int[] cost;
+    private final int[] attack;
+    private final int[] health;
+    private final int[] flags;
+    private final int[] spell;
+
+    /**
+     * The catalog of the two decks from OrderedCardLoader
+     *
+     * @return
+     */
+    public static CardCatalog standard() {
+        if (standard == null) {
+            synchronized (CardCatalog.class) {
+                if (standard == null) {
+                    List<Card> cards = new ArrayList<>(OrderedCardLoader.getPlayer1Cards());
+                    cards.addAll(OrderedCardLoader.getPlayer2Cards());
+                    standard = new CardCatalog(cards);
+                }
+            }
+        }
+        return standard;
+    }
+
+    public CardCatalog(List<Card> cards) {
+        int size = 0;
+        for (Card card : cards) {
+            size = Math.max(size, card.getId() + 1);
+        }
+        names = new String[size];
+        cost = new int[size];
+        attack = new int[size];
+        health = new int[size];
+        flags = new int[size];
+        spell = new int[size];
+
+        for (Card card : cards) {
+            int id = card.getId();
+            names[id] = card.getCardname();
+            cost[id] = card.getManacost();
+            attack[id] = card.getBigCard().getAttack();
+            health[id] = card.getBigCard().getHealth();
+            String[] rows = card.getBigCard().getRulesTextRows();
+            String rule = rows != null && rows.length > 0 ? rows[0].toLowerCase(Locale.ROOT) : "";
+            if (card.isCOrS() == -1) {
+                spell[id] = spellEffect(rule);
+            } else {
+                flags[id] = unitFlags(rule);
+            }
+        }
+    }
+
+    private static int unitFlags(String rule) {
+        int flags = 0;
+        if (rule.contains("ranged")) {
+            flags |= RANGED;
+        }
+        if (rule.contains("twice")) {
+            flags |= TWICE;
+        }
+        if (rule.contains("provoke")) {
+            flags |= PROVOKE;
+        }
+        if (rule.contains("airdrop")) {
+            flags |= AIRDROP;
+        }
+        //        cardToUnit compares the lower case rule with "remoteMove", so no card gets it
+        return flags;
+    }
+
+    private static int spellEffect(String rule) {
+        if (rule.contains("enemy")) {
+            return DAMAGE_ENEMY;
+        } else if (rule.contains("non-avatar")) {
+            return DESTROY_NON_AVATAR;
+        } else if (rule.contains("health")) {
+            return HEAL_UNIT;
+        } else if (rule.contains("gains")) {
+            return BUFF_AVATAR;
+        }
+        return NOT_A_SPELL;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int cardId) {
+        return names[cardId];
+    }
+
+    public int getCost(int cardId) {
+        return cost[cardId];
+    }
+
+    public boolean isSpell(int cardId) {
+        return attack[cardId] == -1;
+    }
+
+    public int getAttack(int cardId) {
+        return attack[cardId];
+    }
+
+    public int getHealth(int cardId) {
+        return health[cardId];
+    }
+
+    public int getFlags(int cardId) {
+        return flags[cardId];
+    }
+
+    public int getSpellEffect(int cardId) {
+        return spell[cardId];
+    }
+}
@@ -0,0 +1,194 @@
+package rules;
+
+import java.util.List;
+
+import akka.actor.ActorRef;
+import commands.BasicCommands;
+import structures.GameState;
+import structures.basic.Card;
+import structures.basic.Player;
+import structures.basic.Tile;
+import structures.basic.Unit;
+import structures.event.EventType;
+import structures.event.GameEvent;
+import structures.event.SummonEvent;
+
+/**
+ * Connects the rules engine to the game being played: snapshot reads a
+ * GameState into a RulesState, perform plays an Action on the GameState
+ * through the tiles, units and players, so the front-end gets the same
+ * commands and animations as when the human clicks.
+ */
+public final class GameStateAdapter {
+
+    private GameStateAdapter() {
+    }
+
+    /**
+     * The game is over once GameState.clear() has removed the players
+     *
+     * @param gameState
+     * @return
+     */
+    public static boolean isGameOver(GameState gameState) {
+        return gameState.getPlayerContainers()[0] == null || gameState.getPlayerContainers()[1] == null;
+    }
+
+    /**
+     * Copy the board, players, hands and decks of a running game
+     *
+     * @param gameState
+     * @param seed      seed for the cards the engine draws, the deck order is not known
+     * @return
+     */
+    public static RulesState snapshot(GameState gameState, long seed) {
+        CardCatalog catalog = CardCatalog.standard();
+        RulesState state = new RulesState(catalog);
+        state.seed = seed;
+        state.turn = gameState.getTurnCount();
+
+        Player[] players = gameState.getPlayerContainers();
+        for (int side = RulesState.HUMAN; side <= RulesState.AI; side++) {
+            Player player = players[side];
+            state.health[side] = player.getHealth();
+            state.mana[side] = player.getMana();
+            state.playerAttack[side] = player.getAttack();
+            Card[] handCards = player.getHandCards();
+            for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+                state.hand[side * RulesState.HAND_SIZE + slot] =
+                        handCards[slot] == null ? RulesState.EMPTY : handCards[slot].getId();
+            }
+            List<Card> deck = player.getDeck();
+            int[] cardIds = new int[deck.size()];
+            for (int i = 0; i < cardIds.length; i++) {
+                cardIds[i] = deck.get(i).getId();
+            }
+            state.setDeck(side, cardIds);
+        }
+        state.current = gameState.sideOf(gameState.getCurrentPlayer());
+
+        for (long rest = gameState.getOccupiedMask(); rest != 0; rest &= rest - 1) {
+            int cell = Long.numberOfTrailingZeros(rest);
+            Unit unit = gameState.getTile(cell).getUnitOnTile();
+            int side = gameState.sideOf(unit.getOwner());
+            int flags = 0;
+            if (unit.isRemoteAttack()) {
+                flags |= CardCatalog.RANGED;
+            }
+            if (unit.getMaxAttackNum() > 1) {
+                flags |= CardCatalog.TWICE;
+            }
+            if (unit.getCanProvoke()) {
+                flags |= CardCatalog.PROVOKE;
+            }
+            if (unit.isRemoteMove()) {
+                flags |= CardCatalog.REMOTE_MOVE;
+            }
+            if (unit.getId() >= RulesState.HUMAN_AVATAR) {
+                flags |= CardCatalog.AVATAR;
+                state.avatarCell[side] = cell;
+            }
+            int base = cell * RulesState.STRIDE;
+            state.units[base + RulesState.ID] = unit.getId();
+            state.units[base + RulesState.OWNER] = side;
+            state.units[base + RulesState.ATTACK] = unit.getAttack();
+            state.units[base + RulesState.HEALTH] = unit.getHealth();
+            state.units[base + RulesState.MAX_HEALTH] = unit.getMaxHealth();
+            state.units[base + RulesState.FLAGS] = flags;
+            state.units[base + RulesState.MOVES] = unit.getMoveNum();
+            state.units[base + RulesState.ATTACKS] = unit.getAttackNum();
+            state.units[base + RulesState.STATE] = unit.getCurrentState().ordinal();
+            state.units[base + RulesState.SUMMON_TURN] = unit.getUnitSummonTurn();
+            state.place(cell, side, unit.getCanProvoke());
+        }
+        state.recount();
+        return state;
+    }
+
+    /**
+     * Play an action for the current player of a running game
+     *
+     * @param gameState
+     * @param action    one of Rules.legalActions of its snapshot
+     */
+    public static void perform(GameState gameState, int action) {
+        int a = Action.a(action);
+        int b = Action.b(action);
+        Player player = gameState.getCurrentPlayer();
+        switch (Action.type(action)) {
+            case Action.END_TURN:
+                endTurn(gameState);
+                break;
+            case Action.MOVE: {
+                Tile origin = gameState.getTile(a);
+                gameState.getTile(b).move(origin.getUnitOnTile(), origin, false);
+                break;
+            }
+            case Action.ATTACK: {
+                Tile origin = gameState.getTile(a);
+                Unit unit = origin.getUnitOnTile();
+                if (a != b) {
+                    gameState.getTile(b).move(unit, origin, false);
+                }
+                gameState.getTile(Action.c(action)).attackedBroadcast(unit);
+                break;
+            }
+            case Action.SUMMON: {
+                Card card = player.getHandCards()[a];
+                gameState.setCardSelected(card);
+                if (player.isHumanOrAI()) {
+                    //                    the tile only accepts a human summon on a highlighted tile
+                    player.validRange(card);
+                }
+                Unit unit = gameState.cardToUnit(card);
+                unit.setOwner(player);
+                gameState.add(unit);
+                Tile tile = gameState.getTile(b);
+                gameState.sendTileEvent(new SummonEvent(tile.getTilex(), tile.getTiley(), unit));
+                break;
+            }
+            case Action.SPELL: {
+                Card card = player.getHandCards()[a];
+                gameState.setCardSelected(card);
+                //                the spell only takes effect on a highlighted tile
+                player.validRange(card);
+                Tile tile = gameState.getTile(b);
+                gameState.sendTileEvent(EventType.SPELL, tile.getTilex(), tile.getTiley());
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown action: " + action);
+        }
+    }
+
+    /**
+     * End the current player's turn: the human's turn ends with the AI to
+     * play on the next heartbeat, the AI's turn ends with the human's units readied
+     */
+    private static void endTurn(GameState gameState) {
+        ActorRef out = gameState.getOut();
+        gameState.record(Action.endTurn());
+        Player currentPlayer = gameState.getCurrentPlayer();
+        currentPlayer.setMana(0);
+        currentPlayer.drawCard(out);
+        if (isGameOver(gameState)) {
+            return;
+        }
+
+        if (currentPlayer.isHumanOrAI()) {
+            gameState.setCurrentPlayer(gameState.getPlayerContainers()[1]);
+            gameState.setCurrentState(null);
+            return;
+        }
+        BasicCommands.pause(out, 1500);
+
+        Player humanPlayer = gameState.getPlayerContainers()[0];
+        gameState.setCurrentPlayer(humanPlayer);
+        humanPlayer.setMana(gameState.getTurnCount());
+        gameState.setCurrentState(GameState.CurrentState.READY);
+
+        gameState.broadcastEvent(GameEvent.UNIT_BE_READY);
+
+        BasicCommands.addPlayer1Notification(out, "Player turn", 2);
+    }
+}
@@ -0,0 +1,242 @@
+package rules;
+
+import structures.BoardGeometry;
+
+/**
+ * Lists the legal actions of the side to play as Action ints, into a buffer
+ * the caller owns, so a search can generate the actions of every node
+ * without allocating. The same generator answers what the UI highlights when
+ * a unit or card is selected, so the board offers exactly the actions the
+ * rules engine and the AI consider legal:
+ * <ul>
+ * <li>only READY units move, READY and HAS_MOVED units attack, so a unit
+ * summoned this turn does nothing until its owner's next turn</li>
+ * <li>a unit twice as fast stays READY until it has used both moves</li>
+ * <li>a unit next to an enemy provoke unit can only attack those units</li>
+ * <li>ranged units attack any enemy without moving</li>
+ * <li>airdrop units can be summoned on any empty cell</li>
+ * </ul>
+ */
+public final class MoveGenerator {
+
+    /**
+     * Upper bound on the number of legal actions. A unit moves to empty cells
+     * and attacks enemy cells, with at most one action per cell, and a card
+     * is played on at most one action per cell.
+     */
+    public static final int MAX_ACTIONS = 1 + RulesState.CELLS * RulesState.CELLS
+            + RulesState.HAND_SIZE * RulesState.CELLS;
+    //    bound on the actions of one unit or one card
+    private static final int MAX_CELL_ACTIONS = RulesState.CELLS;
+
+    private static final BoardGeometry geometry = RulesState.geometry;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Write every action the side to play can take into buffer, END_TURN first.
+     * A unit that can reach an enemy by moving gets one combined
+     * move-and-attack per target, other ways of getting there are a MOVE
+     * followed by an ATTACK.
+     *
+     * @param state
+     * @param buffer at least MAX_ACTIONS long
+     * @return the number of actions written, 0 once the game is over
+     */
+    public static int generate(RulesState state, int[] buffer) {
+        if (state.isGameOver()) {
+            return 0;
+        }
+        int n = 0;
+        buffer[n++] = Action.endTurn();
+        for (long own = state.sideUnits[state.current]; own != 0; own &= own - 1) {
+            n = unitActions(state, Long.numberOfTrailingZeros(own), buffer, n);
+        }
+        for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+            n = cardActions(state, slot, buffer, n);
+        }
+        return n;
+    }
+
+    /**
+     * Write the moves and attacks of the unit on cell, if it belongs to the side to play
+     *
+     * @param state
+     * @param cell
+     * @param buffer
+     * @param n      where in buffer to start
+     * @return n plus the number of actions written
+     */
+    public static int unitActions(RulesState state, int cell, int[] buffer, int n) {
+        int side = state.current;
+        if ((state.sideUnits[side] & BoardGeometry.bit(cell)) == 0) {
+            return n;
+        }
+        int base = cell * RulesState.STRIDE;
+        int unitState = state.units[base + RulesState.STATE];
+        if (unitState != RulesState.READY && unitState != RulesState.HAS_MOVED) {
+            return n;
+        }
+        int enemySide = RulesState.otherSide(side);
+        long enemies = state.sideUnits[enemySide];
+        long neighbours = geometry.neighbourMask(cell);
+        long provoking = state.provokers[enemySide] & neighbours;
+        if (provoking != 0) {
+            return attacks(cell, provoking, buffer, n);
+        }
+        if (unitState == RulesState.HAS_MOVED) {
+            return attacks(cell, enemies & neighbours, buffer, n);
+        }
+
+        int flags = state.units[base + RulesState.FLAGS];
+        long moveRange = (flags & CardCatalog.REMOTE_MOVE) != 0
+                ? geometry.getAllMask() & ~state.occupied
+                : geometry.moveRange(cell, state.occupied);
+        for (long rest = moveRange; rest != 0; rest &= rest - 1) {
+            buffer[n++] = Action.move(cell, Long.numberOfTrailingZeros(rest));
+        }
+        if ((flags & CardCatalog.RANGED) != 0) {
+            return attacks(cell, enemies, buffer, n);
+        }
+        n = attacks(cell, enemies & neighbours, buffer, n);
+        for (long rest = enemies & geometry.attackRange(cell, moveRange) & ~neighbours; rest != 0; rest &= rest - 1) {
+            int target = Long.numberOfTrailingZeros(rest);
+            int via = Long.numberOfTrailingZeros(moveRange & geometry.neighbourMask(target));
+            buffer[n++] = Action.moveAndAttack(cell, via, target);
+        }
+        return n;
+    }
+
+    private static int attacks(int cell, long targets, int[] buffer, int n) {
+        for (long rest = targets; rest != 0; rest &= rest - 1) {
+            buffer[n++] = Action.attack(cell, Long.numberOfTrailingZeros(rest));
+        }
+        return n;
+    }
+
+    /**
+     * Write the summons or spells of the card in slot of the side to play, if it can pay for it
+     *
+     * @param state
+     * @param slot
+     * @param buffer
+     * @param n      where in buffer to start
+     * @return n plus the number of actions written
+     */
+    public static int cardActions(RulesState state, int slot, int[] buffer, int n) {
+        int side = state.current;
+        int cardId = state.hand[side * RulesState.HAND_SIZE + slot];
+        CardCatalog catalog = state.catalog;
+        if (cardId == RulesState.EMPTY || catalog.getCost(cardId) > state.mana[side]) {
+            return n;
+        }
+        boolean spell = catalog.isSpell(cardId);
+        long targets = spell ? spellTargets(state, cardId) : summonRange(state, cardId);
+        for (long rest = targets; rest != 0; rest &= rest - 1) {
+            int cell = Long.numberOfTrailingZeros(rest);
+            buffer[n++] = spell ? Action.spell(slot, cell) : Action.summon(slot, cell);
+        }
+        return n;
+    }
+
+    /**
+     * The cells the unit on cell can move to, for highlighting
+     *
+     * @param state
+     * @param cell
+     * @return
+     */
+    public static long moveTargets(RulesState state, int cell) {
+        int[] buffer = new int[MAX_CELL_ACTIONS];
+        int n = unitActions(state, cell, buffer, 0);
+        long targets = 0;
+        for (int i = 0; i < n; i++) {
+            if (Action.type(buffer[i]) == Action.MOVE) {
+                targets |= BoardGeometry.bit(Action.b(buffer[i]));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * The enemy units the unit on cell can attack, from where it stands or after a move, for highlighting
+     *
+     * @param state
+     * @param cell
+     * @return
+     */
+    public static long attackTargets(RulesState state, int cell) {
+        int[] buffer = new int[MAX_CELL_ACTIONS];
+        int n = unitActions(state, cell, buffer, 0);
+        long targets = 0;
+        for (int i = 0; i < n; i++) {
+            if (Action.type(buffer[i]) == Action.ATTACK) {
+                targets |= BoardGeometry.bit(Action.c(buffer[i]));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * The cells the card in slot can be summoned on or cast at, for highlighting
+     *
+     * @param state
+     * @param slot
+     * @return
+     */
+    public static long cardTargets(RulesState state, int slot) {
+        int[] buffer = new int[MAX_CELL_ACTIONS];
+        int n = cardActions(state, slot, buffer, 0);
+        long targets = 0;
+        for (int i = 0; i < n; i++) {
+            targets |= BoardGeometry.bit(Action.b(buffer[i]));
+        }
+        return targets;
+    }
+
+    /**
+     * Where the current player can summon a unit card: any empty cell for
+     * airdrop, otherwise the empty cells next to one of its units
+     */
+    static long summonRange(RulesState state, int cardId) {
+        long empty = geometry.getAllMask() & ~state.occupied;
+        if ((state.catalog.getFlags(cardId) & CardCatalog.AIRDROP) != 0) {
+            return empty;
+        }
+        long range = 0;
+        for (long rest = state.sideUnits[state.current]; rest != 0; rest &= rest - 1) {
+            range |= geometry.neighbourMask(Long.numberOfTrailingZeros(rest));
+        }
+        return range & empty;
+    }
+
+    /**
+     * The units a spell card of the current player can target
+     */
+    static long spellTargets(RulesState state, int cardId) {
+        int side = state.current;
+        switch (state.catalog.getSpellEffect(cardId)) {
+            case CardCatalog.DAMAGE_ENEMY:
+                return state.sideUnits[RulesState.otherSide(side)];
+            case CardCatalog.DESTROY_NON_AVATAR:
+                return state.occupied & ~avatars(state);
+            case CardCatalog.HEAL_UNIT:
+                return state.occupied;
+            case CardCatalog.BUFF_AVATAR:
+                return state.avatarCell[side] == RulesState.EMPTY ? 0 : BoardGeometry.bit(state.avatarCell[side]);
+            default:
+                return 0;
+        }
+    }
+
+    private static long avatars(RulesState state) {
+        long avatars = 0;
+        for (int side = RulesState.HUMAN; side <= RulesState.AI; side++) {
+            if (state.avatarCell[side] != RulesState.EMPTY) {
+                avatars |= BoardGeometry.bit(state.avatarCell[side]);
+            }
+        }
+        return avatars;
+    }
+}
@@ -0,0 +1,71 @@
+package rules;
+
+/**
+ * Something the rules did that a front-end may want to show, in the order it
+ * happened. The meaning of a, b and c depends on the type. Sides are
+ * RulesState.HUMAN or RulesState.AI, cells are BoardGeometry cells.
+ */
+public final class PresentationEvent {
+
+    public enum Type {
+        /** a = from cell, b = to cell, c = unit id */
+        UNIT_MOVED,
+        /** a = attacker cell, b = target cell */
+        UNIT_ATTACKED,
+        /** a = cell, b = new health */
+        UNIT_HEALTH,
+        /** a = cell, b = new attack */
+        UNIT_ATTACK,
+        /** a = cell, b = unit id, c = side */
+        UNIT_SUMMONED,
+        /** a = cell, b = unit id */
+        UNIT_DIED,
+        /** a = side, b = hand slot, c = card id */
+        CARD_DRAWN,
+        /** a = side, b = card id, the hand was full */
+        CARD_DISCARDED,
+        /** a = side, b = hand slot, c = card id */
+        CARD_PLAYED,
+        /** a = side, b = mana */
+        MANA,
+        /** a = side, b = health */
+        PLAYER_HEALTH,
+        /** a = side, b = turn count */
+        TURN_STARTED,
+        /** a = winning side */
+        GAME_OVER
+    }
+
+    private final Type type;
+    private final int a;
+    private final int b;
+    private final int c;
+
+    public PresentationEvent(Type type, int a, int b, int c) {
+        this.type = type;
+        this.a = a;
+        this.b = b;
+        this.c = c;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getA() {
+        return a;
+    }
+
+    public int getB() {
+        return b;
+    }
+
+    public int getC() {
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + a + ", " + b + ", " + c + ")";
+    }
+}
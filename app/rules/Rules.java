@@ -0,0 +1,427 @@
+package rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import structures.BoardGeometry;
+
+/**
+ * The game rules without the front-end: applies an Action to a RulesState
+ * and reports what happened as PresentationEvents. Nothing here sends
+ * commands, sleeps or touches an ActorRef, so games can be simulated as fast
+ * as the state can be updated.
+ * <p>
+ * The rules are the ones the Tile, Unit and Player observers play by,
+ * including the unit triggers registered in GameState.callbacks(), which are
+ * looked up by unit id in the same way:
+ * <ul>
+ * <li>summoning unit 3 gives its owner's avatar 3 health, up to its maximum</li>
+ * <li>summoning unit 14 makes both players draw a card</li>
+ * <li>when unit 15 dies the player whose turn it is draws a card</li>
+ * <li>every spell gives unit 2 +1/+1, unless it is its owner's turn</li>
+ * <li>when the human avatar attacks, unit 4 gets +2 attack</li>
+ * </ul>
+ */
+public final class Rules {
+
+    //    ModifyUnitEvent.Limit
+    private static final int LIMIT_NONE = 0;
+    private static final int LIMIT_MAX = 1;
+    private static final int LIMIT_ENEMY_TURN = 2;
+
+    private static final BoardGeometry geometry = RulesState.geometry;
+
+    //    for legalActions and isLegal, which copy out what they need
+    private static final ThreadLocal<int[]> scratch =
+            ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_ACTIONS]);
+
+    private Rules() {
+    }
+
+    /**
+     * Apply an action to a copy of state. state itself is not changed.
+     *
+     * @param state
+     * @param action one of legalActions(state)
+     * @return the new state and the events that led to it
+     */
+    public static ActionResult apply(RulesState state, int action) {
+        RulesState next = state.copy();
+        List<PresentationEvent> events = new ArrayList<>();
+        applyInPlace(next, action, events);
+        return new ActionResult(next, Collections.unmodifiableList(events));
+    }
+
+    /**
+     * Apply an action to state itself. This is what search uses: together with
+     * RulesState.copyFrom it does not allocate when events is null.
+     * The action is not checked, it must be one of legalActions(state).
+     *
+     * @param state
+     * @param action
+     * @param events list to add the events to, or null if they are not needed
+     */
+    public static void applyInPlace(RulesState state, int action, List<PresentationEvent> events) {
+        if (state.isGameOver()) {
+            throw new IllegalStateException("The game is over: " + Action.toString(action));
+        }
+        int a = Action.a(action);
+        int b = Action.b(action);
+        switch (Action.type(action)) {
+            case Action.END_TURN:
+                endTurn(state, events);
+                break;
+            case Action.MOVE:
+                move(state, a, b, events);
+                break;
+            case Action.ATTACK:
+                if (a != b) {
+                    move(state, a, b, events);
+                }
+                attack(state, b, Action.c(action), events);
+                break;
+            case Action.SUMMON:
+                summon(state, a, b, events);
+                break;
+            case Action.SPELL:
+                spell(state, a, b, events);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action: " + action);
+        }
+    }
+
+    public static boolean isLegal(RulesState state, int action) {
+        int[] buffer = scratch.get();
+        int n = MoveGenerator.generate(state, buffer);
+        for (int i = 0; i < n; i++) {
+            if (buffer[i] == action) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every action the side to play can take, END_TURN first, in a new array.
+     * Search should use MoveGenerator.generate with a buffer it keeps instead.
+     *
+     * @param state
+     * @return empty once the game is over
+     */
+    public static int[] legalActions(RulesState state) {
+        int[] buffer = scratch.get();
+        return Arrays.copyOf(buffer, MoveGenerator.generate(state, buffer));
+    }
+
+    private static void endTurn(RulesState state, List<PresentationEvent> events) {
+        int side = state.current;
+        setMana(state, side, 0, events);
+        drawCard(state, side, events);
+        if (state.isGameOver()) {
+            return;
+        }
+        int next = RulesState.otherSide(side);
+        state.current = next;
+        state.hash ^= RulesState.sideKey(side) ^ RulesState.sideKey(next);
+        setMana(state, next, state.turn, events);
+        if (next == RulesState.AI) {
+            state.turn++;
+        } else {
+            //            units are readied when the human player's turn starts
+            for (long rest = state.occupied; rest != 0; rest &= rest - 1) {
+                ready(state, Long.numberOfTrailingZeros(rest));
+            }
+        }
+        emit(events, PresentationEvent.Type.TURN_STARTED, next, state.turn, 0);
+    }
+
+    static void ready(RulesState state, int cell) {
+        int base = cell * RulesState.STRIDE;
+        int actions = (state.units[base + RulesState.FLAGS] & CardCatalog.TWICE) != 0 ? 2 : 1;
+        state.unitOut(cell);
+        state.units[base + RulesState.STATE] = RulesState.READY;
+        state.units[base + RulesState.MOVES] = actions;
+        state.units[base + RulesState.ATTACKS] = actions;
+        state.unitIn(cell);
+    }
+
+    /**
+     * Draw a random card from side's deck into the first free hand slot. The
+     * card is lost if the hand is full, and the player loses if the deck is empty.
+     */
+    static void drawCard(RulesState state, int side, List<PresentationEvent> events) {
+        int size = state.deckSize[side];
+        if (size == 0) {
+            gameOver(state, RulesState.otherSide(side), events);
+            return;
+        }
+        int deckBase = side * RulesState.MAX_DECK;
+        int index = deckBase + drawIndex(state, side, size);
+        int cardId = state.deck[index];
+        state.deck[index] = state.deck[deckBase + size - 1];
+        state.deckSize[side] = size - 1;
+
+        int handBase = side * RulesState.HAND_SIZE;
+        for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+            if (state.hand[handBase + slot] == RulesState.EMPTY) {
+                state.hand[handBase + slot] = cardId;
+                state.handChanged(side, slot, cardId, 1);
+                emit(events, PresentationEvent.Type.CARD_DRAWN, side, slot, cardId);
+                return;
+            }
+        }
+        emit(events, PresentationEvent.Type.CARD_DISCARDED, side, cardId, 0);
+    }
+
+    /**
+     * Deck position of the next card drawn: the forced draw if there is one, else random
+     */
+    private static int drawIndex(RulesState state, int side, int size) {
+        int forced = state.forcedDraw[side];
+        if (forced != RulesState.EMPTY) {
+            state.forcedDraw[side] = RulesState.EMPTY;
+            int deckBase = side * RulesState.MAX_DECK;
+            for (int i = 0; i < size; i++) {
+                if (state.deck[deckBase + i] == forced) {
+                    return i;
+                }
+            }
+        }
+        return state.nextInt(size);
+    }
+
+    private static void move(RulesState state, int from, int to, List<PresentationEvent> events) {
+        int source = from * RulesState.STRIDE;
+        int target = to * RulesState.STRIDE;
+        state.unitOut(from);
+        System.arraycopy(state.units, source, state.units, target, RulesState.STRIDE);
+        int side = state.units[target + RulesState.OWNER];
+        state.remove(from);
+        state.place(to, side, (state.units[target + RulesState.FLAGS] & CardCatalog.PROVOKE) != 0);
+        if (state.avatarCell[side] == from) {
+            state.avatarCell[side] = to;
+        }
+        emit(events, PresentationEvent.Type.UNIT_MOVED, from, to, state.units[target + RulesState.ID]);
+
+        if (--state.units[target + RulesState.MOVES] < 1) {
+            state.units[target + RulesState.STATE] = RulesState.HAS_MOVED;
+        }
+        state.unitIn(to);
+    }
+
+    private static void attack(RulesState state, int attacker, int target, List<PresentationEvent> events) {
+        hit(state, attacker, target, events);
+        //        the target strikes back once if it survived and stands next to the attacker
+        if (!state.isGameOver() && state.hasUnit(target) && state.hasUnit(attacker)
+                && geometry.isAdjacent(target, attacker)) {
+            hit(state, target, attacker, events);
+        }
+        if (!state.isGameOver() && state.hasUnit(attacker)) {
+            int base = attacker * RulesState.STRIDE;
+            state.unitOut(attacker);
+            if (--state.units[base + RulesState.ATTACKS] < 1) {
+                state.units[base + RulesState.STATE] = RulesState.HAS_ATTACKED;
+            }
+            state.unitIn(attacker);
+        }
+    }
+
+    private static void hit(RulesState state, int attacker, int target, List<PresentationEvent> events) {
+        int attackerBase = attacker * RulesState.STRIDE;
+        int targetBase = target * RulesState.STRIDE;
+        int attackerId = state.units[attackerBase + RulesState.ID];
+        if (attackerId == RulesState.HUMAN_AVATAR) {
+            modifyUnits(state, 4, 2, 0, LIMIT_NONE, events);
+        }
+        emit(events, PresentationEvent.Type.UNIT_ATTACKED, attacker, target, 0);
+
+        boolean avatars = (state.units[attackerBase + RulesState.FLAGS] & CardCatalog.AVATAR) != 0
+                && (state.units[targetBase + RulesState.FLAGS] & CardCatalog.AVATAR) != 0;
+        if (avatars) {
+            //            avatar against avatar uses the players' attack, not the avatar's
+            int targetSide = state.units[targetBase + RulesState.OWNER];
+            int attackerSide = state.units[attackerBase + RulesState.OWNER];
+            changeHealth(state, target, state.health[targetSide] - state.playerAttack[attackerSide], false, events);
+        } else {
+            changeHealth(state, target,
+                    state.units[targetBase + RulesState.HEALTH] - state.units[attackerBase + RulesState.ATTACK],
+                    true, events);
+        }
+    }
+
+    /**
+     * Unit.changeHealth: set the health of the unit on cell, up to its
+     * maximum unless canTakeOverMax, and remove it if it drops below 1
+     */
+    private static void changeHealth(RulesState state, int cell, int health, boolean canTakeOverMax,
+                                     List<PresentationEvent> events) {
+        int base = cell * RulesState.STRIDE;
+        int max = state.units[base + RulesState.MAX_HEALTH];
+        if (health > max && !canTakeOverMax) {
+            health = max;
+        }
+        if (health >= 1) {
+            setUnitHealth(state, cell, health, events);
+            return;
+        }
+
+        int unitId = state.units[base + RulesState.ID];
+        if (unitId == 15) {
+            drawCard(state, state.current, events);
+        }
+        setUnitHealth(state, cell, 0, events);
+        emit(events, PresentationEvent.Type.UNIT_DIED, cell, unitId, 0);
+        state.unitOut(cell);
+        state.remove(cell);
+        if ((state.units[base + RulesState.FLAGS] & CardCatalog.AVATAR) != 0) {
+            int side = state.units[base + RulesState.OWNER];
+            state.avatarCell[side] = RulesState.EMPTY;
+            gameOver(state, RulesState.otherSide(side), events);
+        }
+    }
+
+    private static void setUnitHealth(RulesState state, int cell, int health, List<PresentationEvent> events) {
+        int base = cell * RulesState.STRIDE;
+        state.unitOut(cell);
+        state.units[base + RulesState.HEALTH] = health;
+        state.unitIn(cell);
+        emit(events, PresentationEvent.Type.UNIT_HEALTH, cell, health, 0);
+        if ((state.units[base + RulesState.FLAGS] & CardCatalog.AVATAR) != 0) {
+            int side = state.units[base + RulesState.OWNER];
+            state.health[side] = health;
+            emit(events, PresentationEvent.Type.PLAYER_HEALTH, side, health, 0);
+        }
+    }
+
+    /**
+     * ModifyUnitEvent: add attack and health to every unit with unitId
+     */
+    private static void modifyUnits(RulesState state, int unitId, int attack, int health, int limit,
+                                    List<PresentationEvent> events) {
+        for (long rest = state.occupied; rest != 0; rest &= rest - 1) {
+            int cell = Long.numberOfTrailingZeros(rest);
+            int base = cell * RulesState.STRIDE;
+            if (state.units[base + RulesState.ID] != unitId) {
+                continue;
+            }
+            if (limit == LIMIT_ENEMY_TURN && state.units[base + RulesState.OWNER] == state.current) {
+                continue;
+            }
+            int newHealth = state.units[base + RulesState.HEALTH] + health;
+            if (limit == LIMIT_MAX) {
+                newHealth = Math.min(newHealth, state.units[base + RulesState.MAX_HEALTH]);
+            }
+            setUnitHealth(state, cell, newHealth, events);
+            state.unitOut(cell);
+            state.units[base + RulesState.ATTACK] += attack;
+            state.unitIn(cell);
+            emit(events, PresentationEvent.Type.UNIT_ATTACK, cell, state.units[base + RulesState.ATTACK], 0);
+        }
+    }
+
+    private static void summon(RulesState state, int slot, int cell, List<PresentationEvent> events) {
+        int side = state.current;
+        int cardId = playCard(state, slot, events);
+        CardCatalog catalog = state.catalog;
+        int flags = catalog.getFlags(cardId);
+        int actions = (flags & CardCatalog.TWICE) != 0 ? 2 : 1;
+
+        int base = cell * RulesState.STRIDE;
+        state.units[base + RulesState.ID] = cardId;
+        state.units[base + RulesState.OWNER] = side;
+        state.units[base + RulesState.ATTACK] = catalog.getAttack(cardId);
+        state.units[base + RulesState.HEALTH] = catalog.getHealth(cardId);
+        state.units[base + RulesState.MAX_HEALTH] = catalog.getHealth(cardId);
+        state.units[base + RulesState.FLAGS] = flags;
+        state.units[base + RulesState.MOVES] = actions;
+        state.units[base + RulesState.ATTACKS] = actions;
+        state.units[base + RulesState.STATE] = RulesState.NOT_READY;
+        state.units[base + RulesState.SUMMON_TURN] = state.turn;
+        state.place(cell, side, (flags & CardCatalog.PROVOKE) != 0);
+        state.unitIn(cell);
+        emit(events, PresentationEvent.Type.UNIT_SUMMONED, cell, cardId, side);
+        emit(events, PresentationEvent.Type.UNIT_HEALTH, cell, catalog.getHealth(cardId), 0);
+        emit(events, PresentationEvent.Type.UNIT_ATTACK, cell, catalog.getAttack(cardId), 0);
+
+        if (cardId == 3) {
+            int avatarId = side == RulesState.HUMAN ? RulesState.HUMAN_AVATAR : RulesState.AI_AVATAR;
+            modifyUnits(state, avatarId, 0, 3, LIMIT_MAX, events);
+        } else if (cardId == 14) {
+            drawCard(state, RulesState.HUMAN, events);
+            if (!state.isGameOver()) {
+                drawCard(state, RulesState.AI, events);
+            }
+        }
+    }
+
+    private static void spell(RulesState state, int slot, int cell, List<PresentationEvent> events) {
+        int cardId = state.hand[state.current * RulesState.HAND_SIZE + slot];
+        modifyUnits(state, 2, 1, 1, LIMIT_ENEMY_TURN, events);
+
+        int base = cell * RulesState.STRIDE;
+        boolean avatar = (state.units[base + RulesState.FLAGS] & CardCatalog.AVATAR) != 0;
+        switch (state.catalog.getSpellEffect(cardId)) {
+            case CardCatalog.DAMAGE_ENEMY:
+                changeHealth(state, cell, state.units[base + RulesState.HEALTH] - 2, false, events);
+                break;
+            case CardCatalog.DESTROY_NON_AVATAR:
+                if (!avatar) {
+                    changeHealth(state, cell, 0, false, events);
+                }
+                break;
+            case CardCatalog.HEAL_UNIT:
+                changeHealth(state, cell, state.units[base + RulesState.HEALTH] + 5, false, events);
+                break;
+            case CardCatalog.BUFF_AVATAR:
+                if (avatar) {
+                    state.unitOut(cell);
+                    state.units[base + RulesState.ATTACK] += 2;
+                    state.unitIn(cell);
+                    emit(events, PresentationEvent.Type.UNIT_ATTACK, cell, state.units[base + RulesState.ATTACK], 0);
+                }
+                break;
+            default:
+                break;
+        }
+        playCard(state, slot, events);
+    }
+
+    /**
+     * Player.removeHandCards: pay for the card in slot and take it out of the hand
+     *
+     * @return the card id
+     */
+    private static int playCard(RulesState state, int slot, List<PresentationEvent> events) {
+        int side = state.current;
+        int index = side * RulesState.HAND_SIZE + slot;
+        int cardId = state.hand[index];
+        state.hand[index] = RulesState.EMPTY;
+        state.handChanged(side, slot, cardId, -1);
+        emit(events, PresentationEvent.Type.CARD_PLAYED, side, slot, cardId);
+        setMana(state, side, state.mana[side] - state.catalog.getCost(cardId), events);
+        return cardId;
+    }
+
+    private static void setMana(RulesState state, int side, int mana, List<PresentationEvent> events) {
+        int newMana = Math.min(mana, RulesState.MAX_MANA);
+        state.hash ^= RulesState.manaKey(side, state.mana[side]) ^ RulesState.manaKey(side, newMana);
+        state.mana[side] = newMana;
+        emit(events, PresentationEvent.Type.MANA, side, state.mana[side], 0);
+    }
+
+    private static void gameOver(RulesState state, int winner, List<PresentationEvent> events) {
+        if (state.winner == RulesState.NOBODY) {
+            state.winner = winner;
+            emit(events, PresentationEvent.Type.GAME_OVER, winner, 0, 0);
+        }
+    }
+
+    private static void emit(List<PresentationEvent> events, PresentationEvent.Type type, int a, int b, int c) {
+        if (events != null) {
+            events.add(new PresentationEvent(type, a, b, c));
+        }
+    }
+}
@@ -0,0 +1,613 @@
+package rules;
+
+import java.util.Arrays;
+
+import structures.BoardGeometry;
+import structures.GameState;
+
+/**
+ * Compact copy of everything the rules look at: units by board cell, both
+ * players' health, mana, hand and deck, whose turn it is and the random
+ * number generator used for drawing cards. It holds no objects other than
+ * int and long arrays, so it can be copied in a few array copies and the
+ * AI can play thousands of games with it.
+ * <p>
+ * Cells are BoardGeometry cells of the 9x5 board, sides are HUMAN (player 1)
+ * and AI (player 2), as in structures.Bitboard.
+ * <p>
+ * Only Rules changes a RulesState, everything else reads it.
+ */
+public final class RulesState {
+
+    public static final int HUMAN = 0;
+    public static final int AI = 1;
+    public static final int NOBODY = -1;
+
+    public static final int HAND_SIZE = 6;
+    public static final int MAX_DECK = 40;
+    public static final int MAX_MANA = 9;
+    public static final int EMPTY = -1;
+
+    public static final int HUMAN_AVATAR = 99;
+    public static final int AI_AVATAR = 100;
+
+    //    unit states, same order as Unit.UnitState
+    public static final int NOT_READY = 0;
+    public static final int READY = 1;
+    public static final int HAS_MOVED = 2;
+    public static final int HAS_ATTACKED = 3;
+
+    //    fields of a unit in units[], STRIDE ints per cell
+    static final int ID = 0;
+    static final int OWNER = 1;
+    static final int ATTACK = 2;
+    static final int HEALTH = 3;
+    static final int MAX_HEALTH = 4;
+    static final int FLAGS = 5;
+    static final int MOVES = 6;
+    static final int ATTACKS = 7;
+    static final int STATE = 8;
+    static final int SUMMON_TURN = 9;
+    static final int STRIDE = 10;
+
+    //    Zobrist keys: per cell, field and value of a unit, per side and mana, per hand slot and card
+    private static final int KEY_VALUES = 128;
+    private static final int[] HASHED_FIELDS = new int[]{ID, OWNER, ATTACK, HEALTH, MOVES, ATTACKS, STATE};
+    private static final long[] unitKeys;
+    private static final long[] manaKeys;
+    private static final long[] handKeys;
+    private static final long sideKey;
+
+    static final BoardGeometry geometry = BoardGeometry.forBoard(GameState.BOARD_WIDTH, GameState.BOARD_HEIGHT);
+    public static final int CELLS = GameState.BOARD_WIDTH * GameState.BOARD_HEIGHT;
+
+    static {
+        long random = 0x5EED;
+        unitKeys = new long[CELLS * STRIDE * KEY_VALUES];
+        for (int i = 0; i < unitKeys.length; i++) {
+            unitKeys[i] = random = splitMix(random);
+        }
+        manaKeys = new long[2 * 16];
+        for (int i = 0; i < manaKeys.length; i++) {
+            manaKeys[i] = random = splitMix(random);
+        }
+        handKeys = new long[2 * HAND_SIZE * KEY_VALUES];
+        for (int i = 0; i < handKeys.length; i++) {
+            handKeys[i] = random = splitMix(random);
+        }
+        sideKey = splitMix(random);
+    }
+
+    final CardCatalog catalog;
+
+    final int[] units = new int[CELLS * STRIDE];
+    long occupied;
+    final long[] sideUnits = new long[2];
+    final long[] provokers = new long[2];
+    final int[] avatarCell = new int[2];
+
+    final int[] health = new int[2];
+    final int[] mana = new int[2];
+    final int[] playerAttack = new int[2];
+    final int[] hand = new int[2 * HAND_SIZE];
+    final int[] deck = new int[2 * MAX_DECK];
+    final int[] deckSize = new int[2];
+
+    int current = HUMAN;
+    //    GameState.getTurnCount(), the mana the next player gets
+    int turn;
+    int winner = NOBODY;
+    long seed;
+    //    card each side's next draw takes, for a search that goes through each possible draw
+    final int[] forcedDraw = {EMPTY, EMPTY};
+    //    Zobrist hash of units, mana, hands and side to play, kept up to date by Rules
+    long hash;
+    //    totals over each side's units other than the avatar and over its hand, kept up to date by Rules
+    final int[] unitCount = new int[2];
+    final int[] unitAttack = new int[2];
+    final int[] unitHealth = new int[2];
+    final int[] handCost = new int[2];
+
+    RulesState(CardCatalog catalog) {
+        this.catalog = catalog;
+        Arrays.fill(hand, EMPTY);
+        Arrays.fill(avatarCell, EMPTY);
+    }
+
+    /**
+     * Set up a new game the way Initalize does: avatars at (1,2) and (7,2),
+     * 20 health and 2 attack each, the human to play with 2 mana, and three
+     * cards drawn by each player.
+     *
+     * @param catalog
+     * @param humanDeck card ids of player 1's deck
+     * @param aiDeck    card ids of player 2's deck
+     * @param seed      seed for the card draws
+     * @return
+     */
+    public static RulesState newGame(CardCatalog catalog, int[] humanDeck, int[] aiDeck, long seed) {
+        RulesState state = new RulesState(catalog);
+        state.seed = seed;
+        state.setDeck(HUMAN, humanDeck);
+        state.setDeck(AI, aiDeck);
+        state.turn = 2;
+        for (int side = HUMAN; side <= AI; side++) {
+            state.health[side] = 20;
+            state.playerAttack[side] = 2;
+        }
+        state.mana[HUMAN] = state.turn;
+        state.placeAvatar(HUMAN, geometry.cellIndex(1, 2), 20, 2);
+        state.placeAvatar(AI, geometry.cellIndex(7, 2), 20, 2);
+        for (int i = 0; i < 3; i++) {
+            Rules.drawCard(state, HUMAN, null);
+        }
+        for (int i = 0; i < 3; i++) {
+            Rules.drawCard(state, AI, null);
+        }
+        for (long rest = state.occupied; rest != 0; rest &= rest - 1) {
+            Rules.ready(state, Long.numberOfTrailingZeros(rest));
+        }
+        state.recount();
+        return state;
+    }
+
+    /**
+     * New game with the standard decks of OrderedCardLoader
+     *
+     * @param seed
+     * @return
+     */
+    public static RulesState newGame(long seed) {
+        CardCatalog catalog = CardCatalog.standard();
+        int[] humanDeck = new int[20];
+        int[] aiDeck = new int[20];
+        for (int i = 0; i < 20; i++) {
+            humanDeck[i] = i;
+            aiDeck[i] = i + 20;
+        }
+        return newGame(catalog, humanDeck, aiDeck, seed);
+    }
+
+    void setDeck(int side, int[] cardIds) {
+        if (cardIds.length > MAX_DECK) {
+            throw new IllegalArgumentException("Deck has more than " + MAX_DECK + " cards: " + cardIds.length);
+        }
+        System.arraycopy(cardIds, 0, deck, side * MAX_DECK, cardIds.length);
+        deckSize[side] = cardIds.length;
+    }
+
+    void placeAvatar(int side, int cell, int avatarHealth, int attack) {
+        int base = cell * STRIDE;
+        units[base + ID] = side == HUMAN ? HUMAN_AVATAR : AI_AVATAR;
+        units[base + OWNER] = side;
+        units[base + ATTACK] = attack;
+        units[base + HEALTH] = avatarHealth;
+        units[base + MAX_HEALTH] = 20;
+        units[base + FLAGS] = CardCatalog.AVATAR;
+        units[base + MOVES] = 1;
+        units[base + ATTACKS] = 1;
+        units[base + STATE] = NOT_READY;
+        units[base + SUMMON_TURN] = turn;
+        place(cell, side, false);
+        avatarCell[side] = cell;
+    }
+
+    void place(int cell, int side, boolean provoker) {
+        long bit = BoardGeometry.bit(cell);
+        occupied |= bit;
+        sideUnits[side] |= bit;
+        if (provoker) {
+            provokers[side] |= bit;
+        }
+    }
+
+    void remove(int cell) {
+        long keep = ~BoardGeometry.bit(cell);
+        occupied &= keep;
+        sideUnits[HUMAN] &= keep;
+        sideUnits[AI] &= keep;
+        provokers[HUMAN] &= keep;
+        provokers[AI] &= keep;
+    }
+
+    /**
+     * Independent copy of this state, sharing only the catalog
+     *
+     * @return
+     */
+    public RulesState copy() {
+        RulesState copy = new RulesState(catalog);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Overwrite this state with other, without allocating. Both must use the same catalog
+     *
+     * @param other
+     */
+    public void copyFrom(RulesState other) {
+        System.arraycopy(other.units, 0, units, 0, units.length);
+        occupied = other.occupied;
+        sideUnits[HUMAN] = other.sideUnits[HUMAN];
+        sideUnits[AI] = other.sideUnits[AI];
+        provokers[HUMAN] = other.provokers[HUMAN];
+        provokers[AI] = other.provokers[AI];
+        avatarCell[HUMAN] = other.avatarCell[HUMAN];
+        avatarCell[AI] = other.avatarCell[AI];
+        System.arraycopy(other.health, 0, health, 0, 2);
+        System.arraycopy(other.mana, 0, mana, 0, 2);
+        System.arraycopy(other.playerAttack, 0, playerAttack, 0, 2);
+        System.arraycopy(other.hand, 0, hand, 0, hand.length);
+        System.arraycopy(other.deck, 0, deck, 0, deck.length);
+        System.arraycopy(other.deckSize, 0, deckSize, 0, 2);
+        current = other.current;
+        turn = other.turn;
+        winner = other.winner;
+        seed = other.seed;
+        System.arraycopy(other.forcedDraw, 0, forcedDraw, 0, 2);
+        hash = other.hash;
+        System.arraycopy(other.unitCount, 0, unitCount, 0, 2);
+        System.arraycopy(other.unitAttack, 0, unitAttack, 0, 2);
+        System.arraycopy(other.unitHealth, 0, unitHealth, 0, 2);
+        System.arraycopy(other.handCost, 0, handCost, 0, 2);
+    }
+
+    /**
+     * Work out the hash and the unit and hand totals from scratch, for a
+     * state that was filled in without going through Rules
+     */
+    void recount() {
+        hash = computeHash();
+        Arrays.fill(unitCount, 0);
+        Arrays.fill(unitAttack, 0);
+        Arrays.fill(unitHealth, 0);
+        Arrays.fill(handCost, 0);
+        for (long rest = occupied; rest != 0; rest &= rest - 1) {
+            addUnitTotals(Long.numberOfTrailingZeros(rest), 1);
+        }
+        for (int i = 0; i < hand.length; i++) {
+            if (hand[i] != EMPTY) {
+                handCost[i / HAND_SIZE] += catalog.getCost(hand[i]);
+            }
+        }
+    }
+
+    /**
+     * Take the unit on cell out of the hash and the totals, before Rules changes or removes it
+     *
+     * @param cell
+     */
+    void unitOut(int cell) {
+        hash ^= unitHash(cell);
+        addUnitTotals(cell, -1);
+    }
+
+    /**
+     * Put the unit on cell back into the hash and the totals, after Rules has changed or placed it
+     *
+     * @param cell
+     */
+    void unitIn(int cell) {
+        hash ^= unitHash(cell);
+        addUnitTotals(cell, 1);
+    }
+
+    private void addUnitTotals(int cell, int sign) {
+        int base = cell * STRIDE;
+        if (!hasUnit(cell) || (units[base + FLAGS] & CardCatalog.AVATAR) != 0) {
+            return;
+        }
+        int side = units[base + OWNER];
+        unitCount[side] += sign;
+        unitAttack[side] += sign * units[base + ATTACK];
+        unitHealth[side] += sign * units[base + HEALTH];
+    }
+
+    /**
+     * A card enters or leaves slot of side's hand
+     *
+     * @param side
+     * @param slot
+     * @param cardId
+     * @param sign   1 when it enters, -1 when it leaves
+     */
+    void handChanged(int side, int slot, int cardId, int sign) {
+        hash ^= handKey(side, slot, cardId);
+        handCost[side] += sign * catalog.getCost(cardId);
+    }
+
+    /**
+     * Hash of the unit on cell, 0 if there is none. unitOut XORs it out of the
+     * state's hash before Rules changes the unit and unitIn back in after.
+     *
+     * @param cell
+     * @return
+     */
+    long unitHash(int cell) {
+        if (!hasUnit(cell)) {
+            return 0;
+        }
+        int base = cell * STRIDE;
+        long hash = 0;
+        for (int field : HASHED_FIELDS) {
+            hash ^= unitKeys[(base + field) * KEY_VALUES + (units[base + field] & (KEY_VALUES - 1))];
+        }
+        return hash;
+    }
+
+    static long manaKey(int side, int mana) {
+        return manaKeys[side * 16 + (mana & 15)];
+    }
+
+    static long handKey(int side, int slot, int cardId) {
+        return cardId == EMPTY ? 0 : handKeys[(side * HAND_SIZE + slot) * KEY_VALUES + (cardId & (KEY_VALUES - 1))];
+    }
+
+    static long sideKey(int side) {
+        return side == AI ? sideKey : 0;
+    }
+
+    /**
+     * The Zobrist hash worked out from scratch, equal to getHash()
+     *
+     * @return
+     */
+    public long computeHash() {
+        long hash = sideKey(current);
+        for (long rest = occupied; rest != 0; rest &= rest - 1) {
+            hash ^= unitHash(Long.numberOfTrailingZeros(rest));
+        }
+        for (int side = HUMAN; side <= AI; side++) {
+            hash ^= manaKey(side, mana[side]);
+            for (int slot = 0; slot < HAND_SIZE; slot++) {
+                hash ^= handKey(side, slot, hand[side * HAND_SIZE + slot]);
+            }
+        }
+        return hash;
+    }
+
+    private static long splitMix(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * SplitMix64, so a state and its copies draw the same cards
+     *
+     * @param bound
+     * @return a number in [0, bound)
+     */
+    int nextInt(int bound) {
+        seed += 0x9E3779B97F4A7C15L;
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) ((z >>> 33) % bound);
+    }
+
+    /**
+     * Reseed the card draws. The real deck order is unknown, so a search
+     * reseeds its copies to try other draws.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * The seed the next card draw comes from, for an AI that derives its own
+     * random numbers from the position it decides on
+     *
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Make the next card drawn from the current player's deck cardId, if it
+     * is in the deck. Used to search each possible draw at the end of a turn.
+     *
+     * @param cardId
+     */
+    public void forceNextDraw(int cardId) {
+        forceNextDraw(current, cardId);
+    }
+
+    /**
+     * Make the next card drawn from side's deck cardId, if it is in the deck
+     *
+     * @param side
+     * @param cardId
+     */
+    public void forceNextDraw(int side, int cardId) {
+        forcedDraw[side] = cardId;
+    }
+
+    /**
+     * Zobrist hash of the position: units with their stats and state, mana,
+     * hands and the side to play. Decks and the turn count are not part of it.
+     *
+     * @return
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * getHash() without the cards in side's hand, which stay the same while
+     * the other side plays its turn
+     *
+     * @param side
+     * @return
+     */
+    public long getHashWithoutHand(int side) {
+        long hash = this.hash;
+        for (int slot = 0; slot < HAND_SIZE; slot++) {
+            hash ^= handKey(side, slot, hand[side * HAND_SIZE + slot]);
+        }
+        return hash;
+    }
+
+    public static BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public CardCatalog getCatalog() {
+        return catalog;
+    }
+
+    public static int otherSide(int side) {
+        return 1 - side;
+    }
+
+    public int getCurrentSide() {
+        return current;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public boolean isGameOver() {
+        return winner != NOBODY;
+    }
+
+    /**
+     * @return HUMAN, AI, or NOBODY while the game is on
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    public long getUnits(int side) {
+        return sideUnits[side];
+    }
+
+    public long getProvokers(int side) {
+        return provokers[side];
+    }
+
+    public int getAvatarCell(int side) {
+        return avatarCell[side];
+    }
+
+    public boolean hasUnit(int cell) {
+        return (occupied & BoardGeometry.bit(cell)) != 0;
+    }
+
+    public int getUnitId(int cell) {
+        return hasUnit(cell) ? units[cell * STRIDE + ID] : EMPTY;
+    }
+
+    public int getUnitOwner(int cell) {
+        return units[cell * STRIDE + OWNER];
+    }
+
+    public int getUnitAttack(int cell) {
+        return units[cell * STRIDE + ATTACK];
+    }
+
+    public int getUnitHealth(int cell) {
+        return units[cell * STRIDE + HEALTH];
+    }
+
+    public int getUnitMaxHealth(int cell) {
+        return units[cell * STRIDE + MAX_HEALTH];
+    }
+
+    public int getUnitFlags(int cell) {
+        return units[cell * STRIDE + FLAGS];
+    }
+
+    public int getUnitState(int cell) {
+        return units[cell * STRIDE + STATE];
+    }
+
+    /**
+     * @param cell
+     * @return the attacks the unit on cell has left this turn
+     */
+    public int getUnitAttacks(int cell) {
+        return units[cell * STRIDE + ATTACKS];
+    }
+
+    public int getPlayerHealth(int side) {
+        return health[side];
+    }
+
+    public int getMana(int side) {
+        return mana[side];
+    }
+
+    /**
+     * @param side
+     * @return the damage side's avatar does to the other avatar
+     */
+    public int getPlayerAttack(int side) {
+        return playerAttack[side];
+    }
+
+    /**
+     * @param side
+     * @return the number of side's units on the board, not counting its avatar
+     */
+    public int getUnitCount(int side) {
+        return unitCount[side];
+    }
+
+    /**
+     * @param side
+     * @return the attack of side's units added up, not counting its avatar
+     */
+    public int getTotalUnitAttack(int side) {
+        return unitAttack[side];
+    }
+
+    /**
+     * @param side
+     * @return the health of side's units added up, not counting its avatar
+     */
+    public int getTotalUnitHealth(int side) {
+        return unitHealth[side];
+    }
+
+    /**
+     * @param side
+     * @return the mana cost of the cards in side's hand added up
+     */
+    public int getHandCost(int side) {
+        return handCost[side];
+    }
+
+    /**
+     * @param side
+     * @param slot 0 to HAND_SIZE - 1
+     * @return the card id, or EMPTY
+     */
+    public int getHandCard(int side, int slot) {
+        return hand[side * HAND_SIZE + slot];
+    }
+
+    public int getDeckSize(int side) {
+        return deckSize[side];
+    }
+
+    /**
+     * @param side
+     * @param index 0 to getDeckSize(side) - 1, the order is not the draw order
+     * @return card id
+     */
+    public int getDeckCard(int side, int index) {
+        return deck[side * MAX_DECK + index];
+    }
+}
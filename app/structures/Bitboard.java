@@ -0,0 +1,151 @@
+package structures;
+
+/**
+ * Bitboard view of the board, kept next to the Tile objects. Each set of cells
+ * (occupied, units per side, avatars, provoke units, highlighted tiles) is one
+ * long with a bit per BoardGeometry cell, so range queries for highlighting
+ * and the AI are a few bitwise operations instead of a scan over the tiles.
+ * <p>
+ * Tiles update it from setUnitOnTile and setState, so it always matches
+ * what is on the board.
+ */
+public class Bitboard {
+
+    public static final int HUMAN = 0;
+    public static final int AI = 1;
+
+    public static final int NORMAL = 0;
+    public static final int WHITE = 1;
+    public static final int RED = 2;
+
+    private final BoardGeometry geometry;
+    private long occupied;
+    private final long[] units = new long[2];
+    private final long[] provokers = new long[2];
+    private long avatars;
+    private long white;
+    private long red;
+
+    public Bitboard(BoardGeometry geometry) {
+        this.geometry = geometry;
+    }
+
+    public static int otherSide(int side) {
+        return 1 - side;
+    }
+
+    /**
+     * Record a unit standing on cell
+     *
+     * @param cell
+     * @param side     HUMAN or AI
+     * @param avatar   true for units 99 and 100
+     * @param provoker true if the unit has provoke
+     */
+    public void place(int cell, int side, boolean avatar, boolean provoker) {
+        remove(cell);
+        long bit = BoardGeometry.bit(cell);
+        occupied |= bit;
+        units[side] |= bit;
+        if (avatar) {
+            avatars |= bit;
+        }
+        if (provoker) {
+            provokers[side] |= bit;
+        }
+    }
+
+    public void remove(int cell) {
+        long keep = ~BoardGeometry.bit(cell);
+        occupied &= keep;
+        units[HUMAN] &= keep;
+        units[AI] &= keep;
+        provokers[HUMAN] &= keep;
+        provokers[AI] &= keep;
+        avatars &= keep;
+    }
+
+    public void setHighlight(int cell, int mode) {
+        long bit = BoardGeometry.bit(cell);
+        white &= ~bit;
+        red &= ~bit;
+        if (mode == WHITE) {
+            white |= bit;
+        } else if (mode == RED) {
+            red |= bit;
+        }
+    }
+
+    public void clear() {
+        occupied = 0;
+        units[HUMAN] = 0;
+        units[AI] = 0;
+        provokers[HUMAN] = 0;
+        provokers[AI] = 0;
+        avatars = 0;
+        white = 0;
+        red = 0;
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    public long getEmpty() {
+        return geometry.getAllMask() & ~occupied;
+    }
+
+    public long getUnits(int side) {
+        return units[side];
+    }
+
+    public long getAvatars() {
+        return avatars;
+    }
+
+    public long getProvokers(int side) {
+        return provokers[side];
+    }
+
+    public long getHighlighted() {
+        return white | red;
+    }
+
+    public long getWhite() {
+        return white;
+    }
+
+    public long getRed() {
+        return red;
+    }
+
+    /**
+     * Empty cells next to any unit of side, where it may summon a non-airdrop unit
+     */
+    public long summonRange(int side) {
+        long range = 0;
+        for (long rest = units[side]; rest != 0; rest &= rest - 1) {
+            range |= geometry.neighbourMask(Long.numberOfTrailingZeros(rest));
+        }
+        return range & ~occupied;
+    }
+
+    /**
+     * Cells next to a provoke unit of side, units of the other side standing
+     * there are provoked
+     */
+    public long provokeZone(int side) {
+        long zone = 0;
+        for (long rest = provokers[side]; rest != 0; rest &= rest - 1) {
+            zone |= geometry.neighbourMask(Long.numberOfTrailingZeros(rest));
+        }
+        return zone;
+    }
+
+    /**
+     * Units of the other side inside range
+     */
+    public long enemiesIn(int side, long range) {
+        return units[otherSide(side)] & range;
+    }
+}
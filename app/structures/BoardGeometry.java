@@ -0,0 +1,204 @@
+package structures;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed neighbour and reachability tables for a board of a given size.
+ * Cells are numbered x + y * width, and sets of cells are stored as long
+ * bitmasks (one bit per cell), so boards can have at most 64 cells.
+ * <p>
+ * The tables are built once per board size and shared, they are read only.
+ * Movement follows the rules used by the tiles: a unit moves up to two steps
+ * in the cardinal directions, cannot pass through an occupied cell, and can
+ * attack any cell next to (including diagonally) where it stands or can move to.
+ */
+public class BoardGeometry {
+
+    private static final Map<Long, BoardGeometry> geometries = new ConcurrentHashMap<>();
+
+    //    8 directions, clockwise from east
+    private static final int[] OFFSET_X = new int[]{1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] OFFSET_Y = new int[]{0, 1, 1, 1, 0, -1, -1, -1};
+
+    private final int width;
+    private final int height;
+    private final long allMask;
+    private final int[][] neighbours;
+    private final int[][] cardinal;
+    private final long[] neighbourMask;
+    private final long[] cardinalMask;
+    private final long[] twoStepMask;
+
+    public static BoardGeometry forBoard(int width, int height) {
+        return geometries.computeIfAbsent(((long) width << 32) | height, key -> new BoardGeometry(width, height));
+    }
+
+    private BoardGeometry(int width, int height) {
+        if (width <= 0 || height <= 0 || width * height > 64) {
+            throw new IllegalArgumentException("Board must have between 1 and 64 cells: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        int cells = width * height;
+        this.allMask = cells == 64 ? -1L : (1L << cells) - 1;
+        this.neighbours = new int[cells][];
+        this.cardinal = new int[cells][];
+        this.neighbourMask = new long[cells];
+        this.cardinalMask = new long[cells];
+        this.twoStepMask = new long[cells];
+
+        int[] buffer = new int[OFFSET_X.length];
+        for (int cell = 0; cell < cells; cell++) {
+            int x = cellX(cell);
+            int y = cellY(cell);
+
+            int n = 0;
+            for (int i = 0; i < OFFSET_X.length; i++) {
+                if (isOnBoard(x + OFFSET_X[i], y + OFFSET_Y[i])) {
+                    buffer[n++] = cellIndex(x + OFFSET_X[i], y + OFFSET_Y[i]);
+                }
+            }
+            neighbours[cell] = copy(buffer, n);
+
+            n = 0;
+            //            even directions are east, south, west, north
+            for (int i = 0; i < OFFSET_X.length; i += 2) {
+                if (isOnBoard(x + OFFSET_X[i], y + OFFSET_Y[i])) {
+                    buffer[n++] = cellIndex(x + OFFSET_X[i], y + OFFSET_Y[i]);
+                }
+            }
+            cardinal[cell] = copy(buffer, n);
+
+            neighbourMask[cell] = toMask(neighbours[cell]);
+            cardinalMask[cell] = toMask(cardinal[cell]);
+        }
+
+        for (int cell = 0; cell < cells; cell++) {
+            long reach = cardinalMask[cell];
+            for (int next : cardinal[cell]) {
+                reach |= cardinalMask[next];
+            }
+            twoStepMask[cell] = reach & ~bit(cell);
+        }
+    }
+
+    private static int[] copy(int[] buffer, int length) {
+        int[] result = new int[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    private static long toMask(int[] cells) {
+        long mask = 0;
+        for (int cell : cells) {
+            mask |= bit(cell);
+        }
+        return mask;
+    }
+
+    public static long bit(int cell) {
+        return 1L << cell;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellCount() {
+        return width * height;
+    }
+
+    /**
+     * Mask with a bit set for every cell on the board
+     */
+    public long getAllMask() {
+        return allMask;
+    }
+
+    public boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public int cellIndex(int x, int y) {
+        return x + y * width;
+    }
+
+    public int cellX(int cell) {
+        return cell % width;
+    }
+
+    public int cellY(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * The up to 8 cells around a cell, including diagonals
+     */
+    public int[] neighbours(int cell) {
+        return neighbours[cell];
+    }
+
+    /**
+     * The up to 4 cells one step east, south, west or north of a cell
+     */
+    public int[] cardinal(int cell) {
+        return cardinal[cell];
+    }
+
+    public long neighbourMask(int cell) {
+        return neighbourMask[cell];
+    }
+
+    public long cardinalMask(int cell) {
+        return cardinalMask[cell];
+    }
+
+    /**
+     * Every cell within two cardinal steps of a cell, ignoring occupancy
+     */
+    public long twoStepMask(int cell) {
+        return twoStepMask[cell];
+    }
+
+    public boolean isAdjacent(int cell, int otherCell) {
+        return (neighbourMask[cell] & bit(otherCell)) != 0;
+    }
+
+    /**
+     * Cells a unit on cell can move to: up to two cardinal steps, where both the
+     * target and the cell stepped through must be empty.
+     *
+     * @param cell     where the unit stands
+     * @param occupied mask of cells holding a unit
+     * @return mask of reachable cells
+     */
+    public long moveRange(int cell, long occupied) {
+        long first = cardinalMask[cell] & ~occupied;
+        long reach = first;
+        for (long rest = first; rest != 0; rest &= rest - 1) {
+            reach |= cardinalMask[Long.numberOfTrailingZeros(rest)];
+        }
+        return reach & ~occupied & ~bit(cell);
+    }
+
+    /**
+     * Cells a unit can attack this turn: next to where it stands, or next to
+     * any cell it can still move to.
+     *
+     * @param cell      where the unit stands
+     * @param moveRange result of moveRange, or 0 if the unit cannot move
+     * @return mask of attackable cells
+     */
+    public long attackRange(int cell, long moveRange) {
+        long reach = neighbourMask[cell];
+        for (long rest = moveRange; rest != 0; rest &= rest - 1) {
+            reach |= neighbourMask[Long.numberOfTrailingZeros(rest)];
+        }
+        return reach & ~bit(cell);
+    }
+}
@@ -5,6 +5,10 @@ import structures.basic.Card;
 import structures.basic.Player;
 import structures.basic.Tile;
 import structures.basic.Unit;
+import structures.event.EventType;
+import structures.event.GameEvent;
+import structures.event.ModifyUnitEvent;
+import structures.event.TileEvent;
 import utils.BasicObjectBuilders;
 
 import java.util.*;
@@ -17,6 +21,9 @@ import java.util.function.Function;
  * @author Dr. Richard McCreadie
  */
 public class GameState extends Subject {
+    public static final int BOARD_WIDTH = 9;
+    public static final int BOARD_HEIGHT = 5;
+
     //ID and Callbacks
 
     private Map<String, Function<Integer, Boolean>> cardSelectedCallbacks = new HashMap<>();
@@ -35,6 +42,24 @@ public class GameState extends Subject {
     private Unit humanAvatar;
     private Unit AIAvatar;
 
+    //    dense tile index, filled as tiles are added, so coordinate lookups do not scan observers
+    private Tile[][] board = new Tile[BOARD_WIDTH][BOARD_HEIGHT];
+    private final BoardGeometry geometry = BoardGeometry.forBoard(BOARD_WIDTH, BOARD_HEIGHT);
+    //    occupancy, ownership and highlight masks, updated by the tiles
+    private final Bitboard bitboard = new Bitboard(geometry);
+
+    //    seed of the game, the card draws get a stream split from it and the AI's decisions numbered seeds
+    private long seed;
+    private SplittableRandom draws;
+    private long decisions;
+    private long decisionsMade;
+    //    actions played on the board by both players since Initalize, see getActions
+    private final List<Integer> actions = new ArrayList<>();
+
+    public GameState() {
+        setSeed(new SplittableRandom().nextLong());
+    }
+
     public void addPlayers(Player humanPlayer, Player AIPlayer) {
 
         if (playerContainers[0] == null && playerContainers[1] == null) {
@@ -57,6 +82,71 @@ public class GameState extends Subject {
         return turnCount + 1;
     }
 
+    /**
+     * Start the random numbers of the game again from seed. The same seed and
+     * the same actions replay the same game, however many numbers the AI uses.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        this.draws = random.split();
+        this.decisions = random.split().nextLong();
+        this.decisionsMade = 0;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Record an action played on the board, the tiles record each move,
+     * attack, summon and spell whoever played it
+     *
+     * @param action
+     */
+    public void record(int action) {
+        actions.add(action);
+    }
+
+    /**
+     * The actions played in this game, in order. A game started with the
+     * same seed replays this one when they are played on it with
+     * GameStateAdapter.perform, the AI's turn started as the Heartbeat does.
+     * A move made on the way to an attack is a move and an attack.
+     *
+     * @return
+     */
+    public List<Integer> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * @param bound
+     * @return the deck position of the next card drawn, in [0, bound)
+     */
+    public int nextDraw(int bound) {
+        return draws.nextInt(bound);
+    }
+
+    /**
+     * @return a seed for the snapshot the AI decides on
+     */
+    public long nextDecisionSeed() {
+        long seed = peekDecisionSeed(0);
+        decisionsMade++;
+        return seed;
+    }
+
+    /**
+     * @param ahead number of decisions made before it
+     * @return the seed nextDecisionSeed returns after ahead more decisions, to plan them in advance
+     */
+    public long peekDecisionSeed(int ahead) {
+        return new SplittableRandom(decisions + decisionsMade + ahead).nextLong();
+    }
+
     public Player getCurrentPlayer() {
         return currentPlayer;
     }
@@ -118,16 +208,65 @@ public class GameState extends Subject {
         this.currentState = CurrentState.READY;
         this.turnCount = 0;
         this.cardSelected = null;
+        this.board = new Tile[BOARD_WIDTH][BOARD_HEIGHT];
+        this.bitboard.clear();
         super.clearObservers();
     }
 
     @Override
-    public void broadcastEvent(Class target, Map<String, Object> parameters) {
+    public void add(Observer observer) {
+        super.add(observer);
+        if (observer instanceof Tile) {
+            Tile tile = (Tile) observer;
+            if (isOnBoard(tile.getTilex(), tile.getTiley())) {
+                board[tile.getTilex()][tile.getTiley()] = tile;
+            }
+        }
+    }
+
+    @Override
+    public void remove(Observer observer) {
+        super.remove(observer);
+        if (observer instanceof Tile) {
+            Tile tile = (Tile) observer;
+            if (isOnBoard(tile.getTilex(), tile.getTiley()) && board[tile.getTilex()][tile.getTiley()] == tile) {
+                board[tile.getTilex()][tile.getTiley()] = null;
+            }
+        }
+    }
+
+    @Override
+    public void broadcastEvent(GameEvent event) {
+        if (Tile.class.equals(event.getType().getTarget())) {
+            //            only tiles handle tile events, so skip the units in observers
+            for (Tile[] column : board) {
+                for (Tile tile : column) {
+                    if (tile != null) {
+                        tile.trigger(event);
+                    }
+                }
+            }
+            return;
+        }
         for (Observer observer : observers) {
-            observer.trigger(target, parameters);
+            observer.trigger(event);
         }
     }
 
+    /**
+     * Send a tile event (summon, spell, moveHighlight...) to the one tile at
+     * its (tilex, tiley) instead of broadcasting it. Off-board positions are ignored.
+     *
+     * @param event
+     */
+    public void sendTileEvent(TileEvent event) {
+        sendEvent(getTile(event.getTilex(), event.getTiley()), event);
+    }
+
+    public void sendTileEvent(EventType type, int tilex, int tiley) {
+        sendTileEvent(new TileEvent(type, tilex, tiley));
+    }
+
 
     public void callbacks() {
 
@@ -136,9 +275,6 @@ public class GameState extends Subject {
             @Override
             public Boolean apply(Integer integer) {
 
-                Map<String, Object> parameters = new HashMap<>();
-                parameters.put("type", "modifyUnit");
-
                 int unitId = -1;
 
                 if (self.getCurrentPlayer().isHumanOrAI()) {
@@ -147,12 +283,7 @@ public class GameState extends Subject {
                     unitId = 100;
                 }
 
-                parameters.put("unitId", unitId);
-                parameters.put("attack", 0);
-                parameters.put("health", 3);
-                parameters.put("limit", "max");
-
-                self.broadcastEvent(Unit.class, parameters);
+                self.broadcastEvent(new ModifyUnitEvent(unitId, 0, 3, ModifyUnitEvent.Limit.MAX));
 
                 return true;
             }
@@ -163,11 +294,7 @@ public class GameState extends Subject {
             @Override
             public Boolean apply(Integer integer) {
 
-                Map<String, Object> parameters = new HashMap<>();
-                parameters.put("type", "validSummonRangeHighlight");
-                parameters.put("airdrop", "activate");
-
-                self.broadcastEvent(Tile.class, parameters);
+                self.getCurrentPlayer().highlightSummonRange(false);
 
                 return true;
             }
@@ -178,11 +305,7 @@ public class GameState extends Subject {
             @Override
             public Boolean apply(Integer integer) {
 
-                Map<String, Object> parameters = new HashMap<>();
-                parameters.put("type", "validSummonRangeHighlight");
-                parameters.put("airdrop", "activate");
-
-                self.broadcastEvent(Tile.class, parameters);
+                self.getCurrentPlayer().highlightSummonRange(false);
 
                 return true;
             }
@@ -193,15 +316,7 @@ public class GameState extends Subject {
             @Override
             public Boolean apply(Integer integer) {
 
-                Map<String, Object> parameters = new HashMap<>();
-                parameters.put("type", "modifyUnit");
-                parameters.put("unitId", integer);
-                parameters.put("attack", 1);
-                parameters.put("health", 1);
-                parameters.put("limit", "enemyTurn");
-
-
-                self.broadcastEvent(Unit.class, parameters);
+                self.broadcastEvent(new ModifyUnitEvent(integer, 1, 1, ModifyUnitEvent.Limit.ENEMY_TURN));
 
 
                 return true;
@@ -213,13 +328,7 @@ public class GameState extends Subject {
             @Override
             public Boolean apply(Integer integer) {
 
-                Map<String, Object> parameters = new HashMap<>();
-                parameters.put("type", "modifyUnit");
-                parameters.put("unitId", 4);
-                parameters.put("attack", 2);
-                parameters.put("health", 0);
-
-                self.broadcastEvent(Unit.class, parameters);
+                self.broadcastEvent(new ModifyUnitEvent(4, 2, 0, ModifyUnitEvent.Limit.NONE));
 
 
                 return true;
@@ -345,16 +454,72 @@ public class GameState extends Subject {
         return AIAvatar;
     }
 
+    public boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < BOARD_WIDTH && y >= 0 && y < BOARD_HEIGHT;
+    }
+
+    /**
+     * Get the tile at a grid position, or null if it is off the board
+     *
+     * @param x
+     * @param y
+     * @return
+     */
     public Tile getTile(int x, int y) {
-        for (Observer o : observers) {
-            if (o instanceof Tile) {
-                Tile t = (Tile) o;
-                if (t.getTilex() == x && t.getTiley() == y) {
-                    return t;
-                }
-            }
+        if (!isOnBoard(x, y)) {
+            return null;
         }
-        return null;
+        return board[x][y];
+    }
+
+    /**
+     * Get the tile for a BoardGeometry cell index
+     *
+     * @param cell
+     * @return
+     */
+    public Tile getTile(int cell) {
+        return board[geometry.cellX(cell)][geometry.cellY(cell)];
+    }
+
+    public int cellOf(Tile tile) {
+        return geometry.cellIndex(tile.getTilex(), tile.getTiley());
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public Bitboard getBitboard() {
+        return bitboard;
+    }
+
+    /**
+     * Mask (see BoardGeometry) of the cells that hold a unit
+     *
+     * @return
+     */
+    public long getOccupiedMask() {
+        return bitboard.getOccupied();
+    }
+
+    /**
+     * Bitboard side of a player, Bitboard.HUMAN or Bitboard.AI
+     *
+     * @param player
+     * @return
+     */
+    public int sideOf(Player player) {
+        return player == playerContainers[0] ? Bitboard.HUMAN : Bitboard.AI;
+    }
+
+    /**
+     * The board indexed as [tilex][tiley]. Read only, use add() to place tiles
+     *
+     * @return
+     */
+    public Tile[][] getBoard() {
+        return board;
     }
 
     /**
@@ -364,24 +529,13 @@ public class GameState extends Subject {
      * @return
      */
     public List<Unit> getEnemyUnits(boolean includeAvatar) {
-        List<Unit> enemy = new ArrayList<>();
-        for (Observer observer : observers) {
-            if (observer instanceof Tile) {
-                Tile tile = (Tile) observer;
-                Unit unitOnTile = tile.getUnitOnTile();
-                if (unitOnTile != null) {
-                    if (!unitOnTile.getOwner().equals(getCurrentPlayer())) {
-                        if (includeAvatar) {
-                            enemy.add(unitOnTile);
-                        } else {
-                            if (!unitOnTile.equals(getAIAvatar())
-                                    && !unitOnTile.equals(getHumanAvatar())) {
-                                enemy.add(unitOnTile);
-                            }
-                        }
-                    }
-                }
-            }
+        long cells = bitboard.getUnits(Bitboard.otherSide(sideOf(getCurrentPlayer())));
+        if (!includeAvatar) {
+            cells &= ~bitboard.getAvatars();
+        }
+        List<Unit> enemy = new ArrayList<>(Long.bitCount(cells));
+        for (long rest = cells; rest != 0; rest &= rest - 1) {
+            enemy.add(getTile(Long.numberOfTrailingZeros(rest)).getUnitOnTile());
         }
         return enemy;
     }
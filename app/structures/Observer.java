@@ -1,9 +1,9 @@
 package structures;
 
-import java.util.Map;
+import structures.event.GameEvent;
 
 public abstract class Observer {
 //    observer pattern
 
-    public abstract void trigger(Class target, Map<String,Object> parameters);
+    public abstract void trigger(GameEvent event);
 }
@@ -2,7 +2,8 @@ package structures;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+
+import structures.event.GameEvent;
 
 public abstract class Subject {
     //    observer pattern
@@ -22,7 +23,14 @@ public abstract class Subject {
     }
 
    
-    public abstract void broadcastEvent(Class target,Map<String,Object> parameters);
+    public abstract void broadcastEvent(GameEvent event);
+
+    //    deliver an event to a single observer instead of every observer
+    public void sendEvent(Observer observer, GameEvent event) {
+        if (observer != null) {
+            observer.trigger(event);
+        }
+    }
 
     public List<Observer> getObservers() {
         return observers;
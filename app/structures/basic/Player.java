@@ -1,7 +1,11 @@
 package structures.basic;
 
 import commands.BasicCommands;
+import rules.GameStateAdapter;
+import rules.MoveGenerator;
+import structures.Bitboard;
 import structures.GameState;
+import structures.event.GameEvent;
 
 import java.util.*;
 
@@ -63,7 +67,7 @@ public class Player {
             return;
         }
 
-        int randomInt = new Random().nextInt(deck.size());
+        int randomInt = gameState.nextDraw(deck.size());
         Card card = this.deck.get(randomInt);
         this.deck.remove(card);
 
@@ -75,11 +79,7 @@ public class Player {
                     BasicCommands.drawCard(out,
                             card, i + 1, 0);
                 }
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                BasicCommands.pause(gameState.getOut(), 500);
                 break;
             }
         }
@@ -109,18 +109,12 @@ public class Player {
         if (this.isHumanOrAI()) {
             BasicCommands.deleteCard(gameState.getOut(), index + 1);
         }
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        BasicCommands.pause(gameState.getOut(), 500);
         this.handCards[index] = null;
 
         gameState.setCardSelected(null);
 
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("type", "textureReset");
-        gameState.broadcastEvent(Tile.class, parameters);
+        gameState.broadcastEvent(GameEvent.TEXTURE_RESET);
     }
 
 
@@ -175,64 +169,31 @@ public class Player {
 
 
     public void validRange(Card cardSelected) {
-        Map<String, Object> parameters = new HashMap<>();
+        gameState.broadcastEvent(GameEvent.TEXTURE_RESET);
 
-        parameters.put("type", "textureReset");
-        gameState.broadcastEvent(Tile.class, parameters);
+        BasicCommands.pause(gameState.getOut(), 100);
 
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        //        the cells the rules engine and the AI see as legal for the card
+        int slot = findObject(handCards, cardSelected);
+        if (slot >= 0) {
+            highlightCells(MoveGenerator.cardTargets(GameStateAdapter.snapshot(gameState, 0), slot));
         }
+    }
 
-        //spell -1
-        if (cardSelected.isCOrS() == -1) {
-            String rule = cardSelected.getBigCard().getRulesTextRows()[0];
-            parameters = new HashMap<>();
-            parameters.put("type", "searchUnit");
-            // unit
-            if (rule.toLowerCase(Locale.ROOT).contains("unit")) {
-                if (rule.toLowerCase(Locale.ROOT).contains("enemy")) {
-                    parameters.put("range", "enemy");
-
-                    gameState.broadcastEvent(Tile.class, parameters);
-                } else if (rule.toLowerCase(Locale.ROOT).contains("non-avatar")) {
-                    parameters.put("range", "non_avatar");
-                    gameState.broadcastEvent(Tile.class, parameters);
-                } else {
-                    parameters.put("range", "all");
-                    gameState.broadcastEvent(Tile.class, parameters);
-                }
-            }
-            // avatar
-            else if (rule.toLowerCase(Locale.ROOT).contains("avatar")) {
-                if (rule.toLowerCase(Locale.ROOT).contains("your avatar")) {
-                    {
-                        parameters.put("range", "your_avatar");
-                        gameState.broadcastEvent(Tile.class, parameters);
-                    }
-                }
-            }
-        }
-        // creature 1
-        else if (cardSelected.isCOrS() == 1) {
-            parameters = new HashMap<>();
-            boolean airdrop = false;
-
-            if (cardSelected.getBigCard().getRulesTextRows().length > 0) {
-                String rule = cardSelected.getBigCard().getRulesTextRows()[0];
-                if (rule.toLowerCase(Locale.ROOT).contains("airdrop")) {
-                    airdrop = true;
-                    parameters.put("type", "airdropSummonRangeHighlight");
-                }
-            }
-
-            if (!airdrop) {
-                parameters.put("type", "validSummonRangeHighlight");
-            }
+    /**
+     * Highlight where this player can summon: any empty tile for airdrop,
+     * otherwise the empty tiles next to one of its units
+     *
+     * @param airdrop
+     */
+    public void highlightSummonRange(boolean airdrop) {
+        Bitboard bitboard = gameState.getBitboard();
+        highlightCells(airdrop ? bitboard.getEmpty() : bitboard.summonRange(gameState.sideOf(this)));
+    }
 
-            gameState.broadcastEvent(Tile.class, parameters);
+    private void highlightCells(long cells) {
+        for (long rest = cells; rest != 0; rest &= rest - 1) {
+            gameState.getTile(Long.numberOfTrailingZeros(rest)).setState(Tile.State.WHITE);
         }
     }
 
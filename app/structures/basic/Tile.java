@@ -6,9 +6,22 @@ import java.util.function.Function;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import commands.BasicCommands;
+import rules.Action;
+import rules.GameStateAdapter;
+import rules.MoveGenerator;
+import rules.RulesState;
+import structures.Bitboard;
+import structures.BoardGeometry;
 import structures.GameState;
 import structures.Observer;
+import structures.event.AttackedEvent;
+import structures.event.CheckMoveVerticallyEvent;
+import structures.event.EventType;
+import structures.event.GameEvent;
+import structures.event.OperateUnitEvent;
+import structures.event.SummonEvent;
 
 
 /**
@@ -41,8 +54,12 @@ public class Tile extends Observer {
     int tiley;
     private State state = State.NORMAL;
     private Unit unitOnTile;
-    private Set<Tile> moveableTiles = new HashSet<>();
+    //    in the order they were highlighted, so the tile a unit moves through to attack is the same on a replay
+    private Set<Tile> moveableTiles = new LinkedHashSet<>();
     private GameState gameState;
+    //    JSON view sent to the front-end, built on first use and reset by the setters
+    @JsonIgnore
+    private ObjectNode json;
 
     @JsonIgnore
     private static ObjectMapper mapper = new ObjectMapper(); // Jackson Java Object Serializer, is used to read java objects from a file
@@ -80,428 +97,241 @@ public class Tile extends Observer {
 
     //broadcast events
     @Override
-    public void trigger(Class target, Map<String, Object> parameters) {
-
-        if (this.getClass().equals(target)) {
-
-            //find
-            if (parameters.get("type").equals("searchUnit")) {
-
-                if (this.unitOnTile != null) {
-                    if (
-                            (parameters.get("range").equals("enemy") && this.unitOnTile.getOwner() != gameState.getCurrentPlayer())
-                                    || parameters.get("range").equals("all")
-                                    || (parameters.get("range").equals("non_avatar") && this.unitOnTile.id < 99)
-                    ) {
-                        this.setState(State.WHITE);
-                    } else if (parameters.get("range").equals("your_avatar")
-                            && this.unitOnTile.id >= 99
-                            && this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())) {
-                        this.setState(State.WHITE);
-                    } else if (parameters.get("range").equals("all_friends")
-                            && !this.unitOnTile.getOwner().isHumanOrAI()) {
-                        Player aiPlayer = (Player) gameState.getCurrentPlayer();
-                    }
+    public void trigger(GameEvent event) {
+        switch (event.getType()) {
+            case TEXTURE_RESET:
+                textureReset();
+                break;
+            case SUMMON:
+                summon(((SummonEvent) event).getUnit());
+                break;
+            case DELETE_UNIT:
+                this.setUnitOnTile(null);
+                break;
+            case SPELL:
+                spell();
+                break;
+            case RANGED_UNIT_ATTACK_HIGHLIGHT:
+                if (this.unitOnTile != null && this.unitOnTile.getOwner() != gameState.getCurrentPlayer()) {
+                    this.setState(State.RED);
                 }
-            } else if (parameters.get("type").equals("airdropSummonRangeHighlight")) {
-                if (this.unitOnTile == null) {
-                    this.setState(State.WHITE);
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
-                return;
-            }
-
-
-            // find  tile
-            else if (parameters.get("type").equals("validSummonRangeHighlight")) {
-//                if (parameters.get("airdrop") != null
-//                        && parameters.get("airdrop").equals("activate")) {
-//                    if (this.unitOnTile == null) {
-//                        this.setState(State.WHITE);
-//                        try {
-//                            Thread.sleep(10);
-//                        } catch (InterruptedException e) {
-//                            e.printStackTrace();
-//                        }
-//                    }
-//                    return;
-//                }
-
-
-                if (this.unitOnTile != null && this.unitOnTile.getOwner() == gameState.getCurrentPlayer()) {
-                    int[] xpos = new int[]{
-                            -1, -1, -1, 0, 0, 1, 1, 1
-                    };
-                    int[] ypos = new int[]{
-                            -1, 0, 1, -1, 1, -1, 0, 1
-                    };
-                    for (int i = 0; i < xpos.length; i++) {
-                        parameters = new HashMap<>();
-                        parameters.put("type", "validSummonRangeHighlight-checkNeighbour");
-                        parameters.put("tilex", this.tilex + xpos[i]);
-                        parameters.put("tiley", this.tiley + ypos[i]);
-                        gameState.broadcastEvent(Tile.class, parameters);
-                    }
-                }
-            }
-
-            //check
-            else if (parameters.get("type").equals("validSummonRangeHighlight-checkNeighbour")) {
-                if (this.unitOnTile == null
-                        && (Integer) parameters.get("tilex") == this.tilex
-                        && (Integer) parameters.get("tiley") == this.tiley
-                ) {
-                    this.setState(State.WHITE);
+                break;
+            case FIRST_CLICK_TILE:
+                firstClickTile();
+                break;
+            case OPERATE_UNIT:
+                operateUnit(((OperateUnitEvent) event).getOriginTile());
+                break;
+            case CHECK_MOVE_VERTICALLY:
+                CheckMoveVerticallyEvent checkEvent = (CheckMoveVerticallyEvent) event;
+                Tile originTile = checkEvent.getOriginTile();
+// unit move
+                if (this.state.equals(State.NORMAL)) {
+                    checkEvent.getAimTile().move(originTile.getUnitOnTile(), originTile, true);
+                } else {
+                    checkEvent.getAimTile().move(originTile.getUnitOnTile(), originTile, false);
                 }
-            }
+                break;
+            default:
+                //            unit events
+                break;
+        }
+    }
 
-            // reset
-            else if (parameters.get("type").equals("textureReset")) {
-                if (!this.state.equals(State.NORMAL)) {
-                    this.setState(State.NORMAL);
+    // reset
+    private void textureReset() {
+        if (!this.state.equals(State.NORMAL)) {
+            this.setState(State.NORMAL);
+        }
+    }
 
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
+    //summon
+    private void summon(Unit unit) {
+        boolean isHuman = gameState.getCurrentPlayer().equals(gameState.getPlayerContainers()[0]);
+        if (gameState.getCurrentState().equals(GameState.CurrentState.SELECTED_CARD)) {
+            if (isHuman && !this.state.equals(State.WHITE)) {
+                return;
             }
+            gameState.record(Action.summon(Player.findObject(gameState.getCurrentPlayer().getHandCards(),
+                    gameState.getCardSelected()), gameState.cellOf(this)));
+            BasicCommands.addPlayer1Notification(gameState.getOut(), "Play card "
+                    + gameState.getCardSelected().getCardname(), 2);
+        }
+        unit.setUnitSummonTurn(gameState.getTurnCount());
+        unit.setCurrentState(Unit.UnitState.NOT_READY);
+        unit.setTilePosition(this);
+//set this unit's owner, before placing it so the bitboard records the right side
+        if (unit.getOwner() == null) {
+            unit.setOwner(gameState.getCurrentPlayer());
+        }
+        this.setUnitOnTile(unit);
+        BasicCommands.drawUnit(gameState.getOut(), unit, this);
 
-            //summon
-            else if (parameters.get("type").equals("summon")) {
-                if ((Integer) parameters.get("tilex") == this.tilex
-                        && (Integer) parameters.get("tiley") == this.tiley) {
-
-                    boolean isHuman = gameState.getCurrentPlayer().equals(gameState.getPlayerContainers()[0]);
-                    if (gameState.getCurrentState().equals(GameState.CurrentState.SELECTED_CARD)) {
-                        if (isHuman && !this.state.equals(State.WHITE)) {
-                            return;
-                        }
-                        BasicCommands.addPlayer1Notification(gameState.getOut(), "Play card "
-                                + gameState.getCardSelected().getCardname(), 2);
-                    }
-                    Unit unit = (Unit) parameters.get("unit");
-                    unit.setUnitSummonTurn(gameState.getTurnCount());
-                    unit.setCurrentState(Unit.UnitState.NOT_READY);
-                    unit.setTilePosition(this);
-                    this.unitOnTile = unit;
-                    BasicCommands.drawUnit(gameState.getOut(), unit, this);
-
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-
-                    if (gameState.getCurrentState().equals(GameState.CurrentState.SELECTED_CARD)) {
-                        gameState.getCurrentPlayer().removeHandCards(gameState.getCardSelected());
-                    }
-
-                    BasicCommands.setUnitHealth(gameState.getOut(), unit, unit.getHealth());
-                    BasicCommands.setUnitAttack(gameState.getOut(), unit, unit.getAttack());
+        BasicCommands.pause(gameState.getOut(), 500);
 
-//set this unit's owner
-                    if (unit.getOwner() == null) {
-                        unit.setOwner(gameState.getCurrentPlayer());
-                    }
+        if (gameState.getCurrentState().equals(GameState.CurrentState.SELECTED_CARD)) {
+            gameState.getCurrentPlayer().removeHandCards(gameState.getCardSelected());
+        }
 
+        BasicCommands.setUnitHealth(gameState.getOut(), unit, unit.getHealth());
+        BasicCommands.setUnitAttack(gameState.getOut(), unit, unit.getAttack());
 
-                    int id = unit.id;
-                    if (gameState.getBeforeSummonCallbacks().get(String.valueOf(id)) != null) {
-                        gameState.getBeforeSummonCallbacks().get(String.valueOf(id)).apply(id);
-                    }
-                    gameState.broadcastEvent(Unit.class, parameters);
+        int id = unit.id;
+        if (gameState.getBeforeSummonCallbacks().get(String.valueOf(id)) != null) {
+            gameState.getBeforeSummonCallbacks().get(String.valueOf(id)).apply(id);
+        }
 //                    set game state to ready
-                    gameState.setCurrentState(GameState.CurrentState.READY);
-                }
-            } else if (parameters.get("type").equals("moveHighlight")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    if (this.unitOnTile == null && this.state == State.NORMAL) {
-                        if (parameters.get("count") != null) {
-                            this.setState(State.WHITE);
-                            gameState.getTileSelected().getMoveableTiles().add(this);
-                            int count = Integer.parseInt(String.valueOf(parameters.get("count")));
-                            this.moveHighlight(count);
-                            this.attackHighlight();
-                        }
-                    }
-                }
-            } else if (parameters.get("type").equals("attackHighlight")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    if (this.unitOnTile != null) {
-                        if (!this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())
-                                && this.state == State.NORMAL) {
-                            this.setState(State.RED);
-                        }
-                    }
-                }
-            } else if (parameters.get("type").equals("deleteUnit")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    this.unitOnTile = null;
-                }
-            } else if (parameters.get("type").equals("spell")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-
-                    Card spellCard = gameState.getCardSelected();
+        gameState.setCurrentState(GameState.CurrentState.READY);
+    }
 
-                    String rule = spellCard.getBigCard().getRulesTextRows()[0];
+    private void spell() {
+        Card spellCard = gameState.getCardSelected();
 
+        String rule = spellCard.getBigCard().getRulesTextRows()[0];
 
-                    if (gameState.getSpellCallbacks().size() != 0) {
-                        for (Map.Entry<String, Function<Integer, Boolean>> entry : gameState.getSpellCallbacks().entrySet()
-                        ) {
-                            entry.getValue().apply(Integer.parseInt(entry.getKey()));
-                        }
-                    }
+        //if this is a tile with attackable unit
+        if (this.state.equals(State.WHITE)) {
+            gameState.record(Action.spell(Player.findObject(gameState.getCurrentPlayer().getHandCards(), spellCard),
+                    gameState.cellOf(this)));
+            //            only a spell that is cast sets off the units that answer spells
+            if (gameState.getSpellCallbacks().size() != 0) {
+                for (Map.Entry<String, Function<Integer, Boolean>> entry : gameState.getSpellCallbacks().entrySet()
+                ) {
+                    entry.getValue().apply(Integer.parseInt(entry.getKey()));
+                }
+            }
 
-                    //if this is a tile with attackable unit
-                    if (this.state.equals(State.WHITE)) {
-                        Unit targetUnit = this.unitOnTile;
+            Unit targetUnit = this.unitOnTile;
 
-                        if (rule.toLowerCase(Locale.ROOT).contains("enemy")) {
-                            targetUnit.changeHealth(targetUnit.getHealth() - 2, false);
-                        } else if (rule.toLowerCase(Locale.ROOT).contains("non-avatar")) {
-                            if (targetUnit.getId() < 99) {
-                                targetUnit.changeHealth(0, false);
-                            }
-                        } else if (rule.toLowerCase(Locale.ROOT).contains("health")) {
-                            targetUnit.changeHealth(targetUnit.getHealth() + 5, false);
-                        } else if (rule.toLowerCase(Locale.ROOT).contains("gains")) {
-                            if (targetUnit.getId() >= 99) {
-                                targetUnit.changeAttack(targetUnit.getAttack() + 2);
-                            }
-                        }
-                        if (spellCard != null) {
-                            gameState.getCurrentPlayer().removeHandCards(spellCard);
-                        }
-                    }
-                    this.resetTileSelected();
+            if (rule.toLowerCase(Locale.ROOT).contains("enemy")) {
+                targetUnit.changeHealth(targetUnit.getHealth() - 2, false);
+            } else if (rule.toLowerCase(Locale.ROOT).contains("non-avatar")) {
+                if (targetUnit.getId() < 99) {
+                    targetUnit.changeHealth(0, false);
                 }
-            } else if (parameters.get("type").equals("rangedUnitAttackHighlight")) {
-                if (this.unitOnTile != null) {
-                    if (this.unitOnTile.getOwner() != gameState.getCurrentPlayer()) {
-                        this.setState(State.RED);
-                    }
+            } else if (rule.toLowerCase(Locale.ROOT).contains("health")) {
+                targetUnit.changeHealth(targetUnit.getHealth() + 5, false);
+            } else if (rule.toLowerCase(Locale.ROOT).contains("gains")) {
+                if (targetUnit.getId() >= 99) {
+                    targetUnit.changeAttack(targetUnit.getAttack() + 2);
                 }
-            } else if (parameters.get("type").equals("firstClickTile")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    if (this.unitOnTile != null) {
-                        if (unitOnTile.getId() < 99 && unitOnTile.getUnitSummonTurn() == gameState.getTurnCount()) {
-                            BasicCommands.addPlayer1Notification(gameState.getOut(), "Cannot take any actions in first summon turn", 2);
-                        }
-
+            }
+            //            the game is cleared if the spell killed an avatar
+            if (spellCard != null && gameState.getCurrentPlayer() != null) {
+                gameState.getCurrentPlayer().removeHandCards(spellCard);
+            }
+        }
+        this.resetTileSelected();
+    }
 
-                        Map<String, Object> newParameters;
-                        newParameters = new HashMap<>();
-                        newParameters.put("provokedUnit", this.unitOnTile);
+    private void firstClickTile() {
+        if (this.unitOnTile != null) {
+            if (unitOnTile.getId() < 99 && unitOnTile.getUnitSummonTurn() == gameState.getTurnCount()) {
+                BasicCommands.addPlayer1Notification(gameState.getOut(), "Cannot take any actions in first summon turn", 2);
+            }
 
-                        int[] offsetx = new int[]{1, 1, 0, -1, -1, -1, 0, 1};
-                        int[] offsety = new int[]{0, 1, 1, 1, 0, -1, -1, -1};
+            BoardGeometry geometry = gameState.getGeometry();
+            int enemySide = Bitboard.otherSide(gameState.sideOf(gameState.getCurrentPlayer()));
+            long provoking = gameState.getBitboard().getProvokers(enemySide) & geometry.neighbourMask(gameState.cellOf(this));
+            if (provoking != 0) {
+                this.unitOnTile.setProvoked(true);
+                for (long rest = provoking; rest != 0; rest &= rest - 1) {
+                    gameState.getTile(Long.numberOfTrailingZeros(rest)).setState(State.RED);
+                }
+            }
 
-                        for (int i = 0; i < offsetx.length; i++) {
+            if (!this.unitOnTile.isProvoked()) {
+                if (this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())
+                        && (this.unitOnTile.getCurrentState().equals(Unit.UnitState.READY)
+                        || this.unitOnTile.getCurrentState().equals(Unit.UnitState.HAS_MOVED))) {
+                    gameState.setTileSelected(this);
+                    //                    highlight the actions the rules engine and the AI see as legal
+                    RulesState state = GameStateAdapter.snapshot(gameState, 0);
+                    int cell = gameState.cellOf(this);
+                    highlightRange(MoveGenerator.moveTargets(state, cell), MoveGenerator.attackTargets(state, cell));
+                    gameState.setCurrentState(GameState.CurrentState.SELECTED_UNIT);
+                }
+            } else {
+                gameState.setCurrentState(GameState.CurrentState.SELECTED_UNIT);
+                gameState.setTileSelected(this);
+            }
+        }
+    }
 
-                            int newTileX = tilex + offsetx[i];
-                            int newTileY = tiley + offsety[i];
+    private void operateUnit(Tile originTile) {
+        Unit unit = originTile.getUnitOnTile();
+        if (this.state.equals(State.NORMAL)) {
+            if (this.unitOnTile != null && this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())) {
+                this.resetTileSelected();
+                this.moveableTiles.clear();
 
-                            if (newTileX >= 0 && newTileY >= 0) {
-                                newParameters.put("type", "searchUnitCanProvoke");
-                                newParameters.put("tilex", newTileX);
-                                newParameters.put("tiley", newTileY);
-                                gameState.broadcastEvent(Tile.class, newParameters);
-                            }
-                        }
+                gameState.sendTileEvent(EventType.FIRST_CLICK_TILE, this.tilex, this.tiley);
+            } else {
+                this.resetTileSelected();
+            }
+        } else if (this.state.equals(State.WHITE)) {
+            this.checkMoveVertically(originTile);
+        } else if (this.state.equals(State.RED)) {
+
+            if (unit.remoteAttack) {
+                this.attackedBroadcast(unit);
+                originTile.getMoveableTiles().clear();
+            } else if (!unit.remoteAttack) {
+                if (unit.getCurrentState().equals(Unit.UnitState.HAS_MOVED)) {
+                    this.attackedBroadcast(unit);
+                } else {
+                    if (distanceOfTiles(originTile, this) <= 2) {
+                        this.attackedBroadcast(unit);
+                        originTile.getMoveableTiles().clear();
+                    } else {
+                        for (Tile x : originTile.getMoveableTiles()) {
+                            if (x.getState().equals(State.WHITE) && distanceOfTiles(x, this) <= 2) {
+                                x.checkMoveVertically(originTile);
+                                BasicCommands.pause(gameState.getOut(), 2000);
 
-                        if (!this.unitOnTile.isProvoked()) {
-                            if (this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())) {
-                                if (this.unitOnTile.getCurrentState().equals(Unit.UnitState.READY)) {
-                                    gameState.setTileSelected(this);
-
-                                    if (this.unitOnTile.remoteAttack) {
-                                        allBroadcast("attackHighlight");
-                                        this.moveHighlight(0);
-                                    }
-                                    if (this.unitOnTile.remoteMove) {
-                                        allBroadcast("moveHighlight");
-                                    } else {
-                                        this.moveHighlight(0);
-                                        this.attackHighlight();
-                                    }
-                                    gameState.setCurrentState(GameState.CurrentState.SELECTED_UNIT);
-                                } else if (this.unitOnTile.getCurrentState().equals(Unit.UnitState.HAS_MOVED)) {
-                                    gameState.setTileSelected(this);
-                                    this.attackHighlight();
-                                    gameState.setCurrentState(GameState.CurrentState.SELECTED_UNIT);
-                                }
-                            }
-                        } else {
-                            gameState.setCurrentState(GameState.CurrentState.SELECTED_UNIT);
-                            gameState.setTileSelected(this);
-                        }
-                    }
-                }
-            } else if (parameters.get("type").equals("operateUnit")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    Tile originTile = (Tile) parameters.get("originTileSelected");
-                    Unit unit = originTile.getUnitOnTile();
-                    if (this.state.equals(State.NORMAL)) {
-                        if (this.unitOnTile != null && this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())) {
-                            this.resetTileSelected();
-                            this.moveableTiles.clear();
-
-
-                            parameters = new HashMap<>();
-                            parameters.put("type", "firstClickTile");
-                            parameters.put("tilex", this.tilex);
-                            parameters.put("tiley", this.tiley);
-                            gameState.broadcastEvent(Tile.class, parameters);
-                        } else {
-                            this.resetTileSelected();
-                        }
-                    } else if (this.state.equals(State.WHITE)) {
-                        this.checkMoveVertically(originTile);
-                    } else if (this.state.equals(State.RED)) {
-
-                        if (unit.remoteAttack) {
-                            this.attackedBroadcast(unit);
-                            originTile.getMoveableTiles().clear();
-                        } else if (!unit.remoteAttack) {
-                            if (unit.getCurrentState().equals(Unit.UnitState.HAS_MOVED)) {
                                 this.attackedBroadcast(unit);
-                            } else {
-                                if (distanceOfTiles(originTile, this) <= 2) {
-                                    this.attackedBroadcast(unit);
-                                    originTile.getMoveableTiles().clear();
-                                } else {
-                                    for (Tile x : originTile.getMoveableTiles()) {
-                                        if (x.getState().equals(State.WHITE) && distanceOfTiles(x, this) <= 2) {
-                                            x.checkMoveVertically(originTile);
-                                            try {
-                                                Thread.sleep(2000);
-                                            } catch (InterruptedException e) {
-                                                e.printStackTrace();
-                                            }
-
-                                            this.attackedBroadcast(unit);
-                                            break;
-                                        }
-                                    }
-                                }
+                                break;
                             }
                         }
-
-                    }
-
-                }
-            } else if (parameters.get("type").equals("checkMoveVertically")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-
-                    Tile originTile = (Tile) parameters.get("originTile");
-                    Tile aimTile = (Tile) parameters.get("aimTile");
-// unit move
-                    if (this.state.equals(State.NORMAL)) {
-                        aimTile.move(originTile.getUnitOnTile(), originTile, true);
-                    } else {
-                        aimTile.move(originTile.getUnitOnTile(), originTile, false);
-                    }
-                }
-            } else if (parameters.get("type").equals("searchUnitCanProvoke")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    if (this.unitOnTile != null) {
-                        Unit provokedUnit = (Unit) parameters.get("provokedUnit");
-                        if (this.unitOnTile.getCanProvoke() &&
-                                !this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())) {
-                            this.setState(State.RED);
-                            provokedUnit.setProvoked(true);
-                        }
-                    }
-                }
-            } else if (parameters.get("type").equals("clearProvoke")) {
-                if (Integer.parseInt(String.valueOf(parameters.get("tilex"))) == this.tilex
-                        && Integer.parseInt(String.valueOf(parameters.get("tiley"))) == this.tiley) {
-                    if (this.unitOnTile != null) {
-                        if (!this.unitOnTile.getOwner().equals(gameState.getCurrentPlayer())) {
-                            this.unitOnTile.setProvoked(false);
-                        }
                     }
                 }
             }
-        }
-    }
 
-
-    private void moveHighlight(int count) {
-        if (count > 1) {
-            return;
         }
+    }
 
-        count++;
-        Map<String, Object> newParameters;
-
-        int[] offsetx = new int[]{0, 1, -1, 0};
-        int[] offsety = new int[]{1, 0, 0, -1};
-
-        for (int i = 0; i < offsetx.length; i++) {
-
-            int newTileX = tilex + offsetx[i];
-            int newTileY = tiley + offsety[i];
 
-            if (newTileX >= 0 && newTileY >= 0) {
-                newParameters = new HashMap<>();
-                newParameters.put("type", "moveHighlight");
-                newParameters.put("tilex", newTileX);
-                newParameters.put("tiley", newTileY);
-                newParameters.put("count", count);
-                newParameters.put("originTile", this);
-                gameState.broadcastEvent(Tile.class, newParameters);
+    /**
+     * Highlight the cells a selected unit can move to (white) and the enemy
+     * units it can attack (red). Ranges are BoardGeometry cell masks.
+     */
+    private void highlightRange(long moveRange, long attackRange) {
+        for (long rest = moveRange; rest != 0; rest &= rest - 1) {
+            Tile tile = gameState.getTile(Long.numberOfTrailingZeros(rest));
+            if (tile.getState() == State.NORMAL) {
+                tile.setState(State.WHITE);
+                this.moveableTiles.add(tile);
             }
         }
-    }
-
-
-    private void attackHighlight() {
-        Map<String, Object> newParameters;
-
-        int[] offsetx = new int[]{1, 1, 0, -1, -1, -1, 0, 1};
-        int[] offsety = new int[]{0, 1, 1, 1, 0, -1, -1, -1};
-
-        for (int i = 0; i < offsetx.length; i++) {
-
-            int newTileX = tilex + offsetx[i];
-            int newTileY = tiley + offsety[i];
-
-            if (newTileX >= 0 && newTileY >= 0) {
-                newParameters = new HashMap<>();
-                newParameters.put("type", "attackHighlight");
-                newParameters.put("tilex", newTileX);
-                newParameters.put("tiley", newTileY);
-                gameState.broadcastEvent(Tile.class, newParameters);
+        for (long rest = attackRange; rest != 0; rest &= rest - 1) {
+            Tile tile = gameState.getTile(Long.numberOfTrailingZeros(rest));
+            Unit unit = tile.getUnitOnTile();
+            if (unit != null && !unit.getOwner().equals(gameState.getCurrentPlayer())
+                    && tile.getState() == State.NORMAL) {
+                tile.setState(State.RED);
             }
         }
     }
 
     public void attackedBroadcast(Unit attackerUnit) {
         Unit attackedUnit = this.getUnitOnTile();
+        Position position = attackerUnit.getPosition();
+        gameState.record(Action.attack(gameState.getGeometry().cellIndex(position.getTilex(), position.getTiley()),
+                gameState.cellOf(this)));
 
         BasicCommands.addPlayer1Notification(gameState.getOut(), "Attack from" + attackerUnit.getId() + " to " + attackedUnit.getId(), 2);
 
-        Map<String, Object> newParameters = new HashMap<>();
-        newParameters.put("type", "attacked");
-        newParameters.put("attackedUnit", attackedUnit);
-        newParameters.put("attackerUnit", attackerUnit);
-        gameState.broadcastEvent(Unit.class, newParameters);
+        gameState.sendEvent(attackedUnit, new AttackedEvent(attackedUnit, attackerUnit));
 
         attackerUnit.setAttackNum(attackerUnit.getAttackNum() - 1);
         if (attackerUnit.getAttackNum() < 1) {
@@ -509,21 +339,14 @@ public class Tile extends Observer {
         }
 
         resetTileSelected();
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        BasicCommands.pause(gameState.getOut(), 500);
     }
 
 
     public void move(Unit unit, Tile originTile, boolean mode) {
+        gameState.record(Action.move(gameState.cellOf(originTile), gameState.cellOf(this)));
         resetTileSelected();
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        BasicCommands.pause(gameState.getOut(), 500);
 
         if (mode) {
             BasicCommands.moveUnitToTile(gameState.getOut(), unit, this, true);
@@ -533,11 +356,7 @@ public class Tile extends Observer {
 
         BasicCommands.addPlayer1Notification(gameState.getOut(), unit.getId() + " move to " + this.tilex + "," + this.tiley + "", 2);
 
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        BasicCommands.pause(gameState.getOut(), 2000);
 
         unit.setTilePosition(this);
         this.setUnitOnTile(unit);
@@ -550,7 +369,7 @@ public class Tile extends Observer {
         }
 
         if (unit.getCanProvoke()) {
-            originTile.adjacentBroadcast("clearProvoke");
+            releaseProvoked(originTile);
         }
     }
 
@@ -567,64 +386,31 @@ public class Tile extends Observer {
         gameState.setTileSelected(null);
         gameState.setCurrentState(GameState.CurrentState.READY);
 
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("type", "textureReset");
-        gameState.broadcastEvent(Tile.class, parameters);
-    }
-
-
-    private void allBroadcast(String type) {
-        Map<String, Object> newParameters = new HashMap<>();
-        newParameters.put("type", type);
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 5; j++) {
-                newParameters.put("tilex", i);
-                newParameters.put("tiley", j);
-                if (type.equals("moveHighlight")) {
-                    newParameters.put("count", 0);
-                }
-                gameState.broadcastEvent(Tile.class, newParameters);
-            }
-        }
+        gameState.broadcastEvent(GameEvent.TEXTURE_RESET);
     }
 
 
     private void checkMoveVertically(Tile originTile) {
-        Map<String, Object> parameters;
-
         if (distanceOfTiles(this, originTile) == 2) {
             int checkTileX = this.getTilex();
             int checkTileY = originTile.getTiley();
 
-            parameters = new HashMap<>();
-            parameters.put("type", "checkMoveVertically");
-            parameters.put("tilex", checkTileX);
-            parameters.put("tiley", checkTileY);
-            parameters.put("originTile", originTile);
-            parameters.put("aimTile", this);
-            gameState.broadcastEvent(Tile.class, parameters);
+            gameState.sendTileEvent(new CheckMoveVerticallyEvent(checkTileX, checkTileY, originTile, this));
         } else this.move(originTile.getUnitOnTile(), originTile, false);
     }
 
 
-    private void adjacentBroadcast(String type) {
-        Map<String, Object> newParameters;
-
-        int[] offsetx = new int[]{1, 1, 0, -1, -1, -1, 0, 1};
-        int[] offsety = new int[]{0, 1, 1, 1, 0, -1, -1, -1};
-
-        for (int i = 0; i < offsetx.length; i++) {
-
-            int newTileX = tilex + offsetx[i];
-            int newTileY = tiley + offsety[i];
-
-            if (newTileX >= 0 && newTileY >= 0) {
-                newParameters = new HashMap<>();
-                newParameters.put("type", type);
-                newParameters.put("tilex", newTileX);
-                newParameters.put("tiley", newTileY);
-                gameState.broadcastEvent(Tile.class, newParameters);
-            }
+    /**
+     * A provoke unit left originTile, enemies next to it are free again unless
+     * another provoke unit still stands next to them
+     */
+    private void releaseProvoked(Tile originTile) {
+        Bitboard bitboard = gameState.getBitboard();
+        int side = gameState.sideOf(gameState.getCurrentPlayer());
+        long released = bitboard.enemiesIn(side, gameState.getGeometry().neighbourMask(gameState.cellOf(originTile)))
+                & ~bitboard.provokeZone(side);
+        for (long rest = released; rest != 0; rest &= rest - 1) {
+            gameState.getTile(Long.numberOfTrailingZeros(rest)).getUnitOnTile().setProvoked(false);
         }
     }
 
@@ -634,6 +420,7 @@ public class Tile extends Observer {
 
     public void setState(State state) {
         this.state = state;
+        gameState.getBitboard().setHighlight(gameState.cellOf(this), state.mode);
         BasicCommands.drawTile(gameState.getOut(), this, this.state.mode);
     }
 
@@ -643,6 +430,16 @@ public class Tile extends Observer {
 
     public void setUnitOnTile(Unit unitOnTile) {
         this.unitOnTile = unitOnTile;
+        if (gameState == null) {
+            return;
+        }
+        int cell = gameState.cellOf(this);
+        if (unitOnTile == null) {
+            gameState.getBitboard().remove(cell);
+        } else {
+            gameState.getBitboard().place(cell, gameState.sideOf(unitOnTile.getOwner()),
+                    unitOnTile.getId() >= 99, unitOnTile.getCanProvoke());
+        }
     }
 
     public Set<Tile> getMoveableTiles() {
@@ -655,6 +452,7 @@ public class Tile extends Observer {
 
     public void setTileTextures(List<String> tileTextures) {
         this.tileTextures = tileTextures;
+        this.json = null;
     }
 
     public int getXpos() {
@@ -663,6 +461,7 @@ public class Tile extends Observer {
 
     public void setXpos(int xpos) {
         this.xpos = xpos;
+        this.json = null;
     }
 
     public int getYpos() {
@@ -671,6 +470,7 @@ public class Tile extends Observer {
 
     public void setYpos(int ypos) {
         this.ypos = ypos;
+        this.json = null;
     }
 
     public int getWidth() {
@@ -679,6 +479,7 @@ public class Tile extends Observer {
 
     public void setWidth(int width) {
         this.width = width;
+        this.json = null;
     }
 
     public int getHeight() {
@@ -687,6 +488,7 @@ public class Tile extends Observer {
 
     public void setHeight(int height) {
         this.height = height;
+        this.json = null;
     }
 
     public int getTilex() {
@@ -695,6 +497,7 @@ public class Tile extends Observer {
 
     public void setTilex(int tilex) {
         this.tilex = tilex;
+        this.json = null;
     }
 
     public int getTiley() {
@@ -703,9 +506,33 @@ public class Tile extends Observer {
 
     public void setTiley(int tiley) {
         this.tiley = tiley;
+        this.json = null;
+    }
+
+
+    /**
+     * JSON view of this tile for the front-end: textures, pixel and grid
+     * position. These do not change during a game, so the node is built
+     * once and shared by every command that draws this tile. It must not be
+     * modified.
+     *
+     * @return
+     */
+    public ObjectNode toJson() {
+        if (json == null) {
+            ObjectNode node = mapper.createObjectNode();
+            node.set("tileTextures", mapper.valueToTree(tileTextures));
+            node.put("xpos", xpos);
+            node.put("ypos", ypos);
+            node.put("width", width);
+            node.put("height", height);
+            node.put("tilex", tilex);
+            node.put("tiley", tiley);
+            json = node;
+        }
+        return json;
     }
 
-
     public static Tile constructTile(String configFile) {
 
         try {
@@ -2,13 +2,19 @@ package structures.basic;
 
 import akka.actor.ActorRef;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import commands.BasicCommands;
+import structures.BoardGeometry;
 import structures.GameState;
 import structures.Observer;
 
-import java.util.HashMap;
-import java.util.Map;
+import structures.event.AttackedEvent;
+import structures.event.EventType;
+import structures.event.GameEvent;
+import structures.event.ModifyUnitEvent;
+
 import java.util.function.Function;
 import java.util.Map.Entry;
 
@@ -53,6 +59,12 @@ public class Unit extends Observer {
     int attackNum = 1;
     int moveNum = 1;
 
+    //    JSON of animations and correction, built on first use and reset by their setters
+    @JsonIgnore
+    private JsonNode animationsJson;
+    @JsonIgnore
+    private JsonNode correctionJson;
+
     public enum UnitState {
         NOT_READY, READY, HAS_MOVED, HAS_ATTACKED
     }
@@ -144,19 +156,11 @@ public class Unit extends Observer {
             health = 0;
             BasicCommands.setUnitHealth(gameState.getOut(), this, health);
             BasicCommands.playUnitAnimation(gameState.getOut(), this, UnitAnimationType.death);
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            BasicCommands.pause(gameState.getOut(), 2000);
 
             BasicCommands.deleteUnit(gameState.getOut(), this);
 
-            Map<String, Object> newParameters = new HashMap<>();
-            newParameters.put("type", "deleteUnit");
-            newParameters.put("tilex", this.getPosition().getTilex());
-            newParameters.put("tiley", this.getPosition().getTiley());
-            gameState.broadcastEvent(Tile.class, newParameters);
+            gameState.sendTileEvent(EventType.DELETE_UNIT, this.getPosition().getTilex(), this.getPosition().getTiley());
             if (this.getId() == 100) {
                 BasicCommands.addPlayer1Notification(gameState.getOut(), "Player won", 2);
 //                clear and end game
@@ -181,57 +185,45 @@ public class Unit extends Observer {
     }
 
     @Override
-    public void trigger(Class target, Map<String, Object> parameters) {
-
-        if (this.getClass().equals(target)) {
-            if (parameters.get("type").equals("unitBeReady")) {
-//                if (this.owner == gameState.getCurrentPlayer()) {
-//                    this.currentState = UnitState.READY;
-//                    this.setAttackNum(this.maxAttackNum);
-//                    this.setMoveNum(this.maxMoveNum);
-//                } else {
-//                    this.currentState = UnitState.NOT_READY;
-//                }
-
+    public void trigger(GameEvent event) {
+        switch (event.getType()) {
+            case UNIT_BE_READY:
                 this.currentState = UnitState.READY;
                 this.setAttackNum(this.maxAttackNum);
                 this.setMoveNum(this.maxMoveNum);
+                break;
+            case ATTACKED:
+                AttackedEvent attackedEvent = (AttackedEvent) event;
+                Unit unit = attackedEvent.getAttackedUnit();
+//                    the attacked unit, or for general unit the observer with its id
+                if (unit == this || unit.getId() == this.id) {
+                    unit.attacked(attackedEvent.getAttackerUnit(), true);
+                }
+                break;
+            case MODIFY_UNIT:
+                modifyUnit((ModifyUnitEvent) event);
+                break;
+            default:
+                //            tile events
+                break;
+        }
+    }
 
+    private void modifyUnit(ModifyUnitEvent event) {
+        if (this.id == event.getUnitId()) {
+            int newHealth = this.health + event.getHealth();
+            int newAttack = this.attack + event.getAttack();
 
-            } else if (parameters.get("type").equals("attacked")) {
-                Unit unit = (Unit) parameters.get("attackedUnit");
-
-                if (unit == this) {
-                    Unit attackedUnit = (Unit) parameters.get("attackedUnit");
-                    Unit attackerUnit = (Unit) parameters.get("attackerUnit");
-
-                    attackedUnit.attacked(attackerUnit, true);
-                } else if (unit.getId() == this.id) {
-//                    for general unit
-                    Unit attackedUnit = (Unit) parameters.get("attackedUnit");
-                    Unit attackerUnit = (Unit) parameters.get("attackerUnit");
-
-                    attackedUnit.attacked(attackerUnit, true);
-                }
-            } else if (parameters.get("type").equals("modifyUnit")) {
-                if (this.id == (Integer) parameters.get("unitId")) {
-                    int newHealth = this.health + (Integer) parameters.get("health");
-                    int newAttack = this.attack + (Integer) parameters.get("attack");
-
-                    if (parameters.get("limit") != null) {
-                        if (parameters.get("limit").equals("max") && newHealth > maxHealth) {
-                            BasicCommands.addPlayer1Notification(gameState.getOut(), "Max health", 2);
-                            newHealth = maxHealth;
-                        }
-                        if (parameters.get("limit").equals("enemyTurn") && gameState.getCurrentPlayer() == this.owner) {
-                            return;
-                        }
-                    }
-                    this.setHealth(newHealth);
-                    this.setAttack(newAttack);
-                    displayAttackAndHealth();
-                }
+            if (event.getLimit() == ModifyUnitEvent.Limit.MAX && newHealth > maxHealth) {
+                BasicCommands.addPlayer1Notification(gameState.getOut(), "Max health", 2);
+                newHealth = maxHealth;
+            }
+            if (event.getLimit() == ModifyUnitEvent.Limit.ENEMY_TURN && gameState.getCurrentPlayer() == this.owner) {
+                return;
             }
+            this.setHealth(newHealth);
+            this.setAttack(newAttack);
+            displayAttackAndHealth();
         }
     }
 
@@ -258,11 +250,7 @@ public class Unit extends Observer {
 
 
         BasicCommands.playUnitAnimation(gameState.getOut(), attacker, UnitAnimationType.attack);
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        BasicCommands.pause(gameState.getOut(), 2000);
         BasicCommands.playUnitAnimation(gameState.getOut(), attacker, UnitAnimationType.idle);
 
         if ((this.getId() == 99 && attacker.getId() == 100) || this.getId() == 100 && attacker.getId() == 99)
@@ -271,6 +259,11 @@ public class Unit extends Observer {
         else
             this.changeHealth(this.getHealth() - attacker.getAttack(), true);
 
+//        an avatar died and the game was cleared
+        if (gameState.getPlayerContainers()[0] == null) {
+            return;
+        }
+
 //        Synchronize health
         if (this.getId() == 99) {
             gameState.getPlayerContainers()[0].setHealth(health);
@@ -289,16 +282,13 @@ public class Unit extends Observer {
 
 
     private boolean checkTarget(int tilex, int tiley) {
-        int[] offsetx = new int[]{1, 1, 0, -1, -1, -1, 0, 1};
-        int[] offsety = new int[]{0, 1, 1, 1, 0, -1, -1, -1};
-        for (int i = 0; i < offsetx.length; i++) {
-            int newTileX = this.getPosition().getTilex() + offsetx[i];
-            int newTileY = this.getPosition().getTiley() + offsety[i];
-            if (tilex == newTileX && tiley == newTileY) {
-                return true;
-            }
+        BoardGeometry geometry = gameState.getGeometry();
+        if (!geometry.isOnBoard(tilex, tiley)) {
+            return false;
         }
-        return false;
+        return geometry.isAdjacent(
+                geometry.cellIndex(this.getPosition().getTilex(), this.getPosition().getTiley()),
+                geometry.cellIndex(tilex, tiley));
     }
 
 
@@ -324,6 +314,7 @@ public class Unit extends Observer {
 
     public void setCorrection(ImageCorrection correction) {
         this.correction = correction;
+        this.correctionJson = null;
     }
 
     public Position getPosition() {
@@ -340,6 +331,39 @@ public class Unit extends Observer {
 
     public void setAnimations(UnitAnimationSet animations) {
         this.animations = animations;
+        this.animationsJson = null;
+    }
+
+    /**
+     * JSON view of this unit for the front-end: id, animation, position,
+     * animations and correction. Animations and correction do not change
+     * once the unit is loaded, so their JSON is built once and shared by
+     * every command sent for this unit.
+     *
+     * @return
+     */
+    public ObjectNode toJson() {
+        if (animationsJson == null) {
+            animationsJson = mapper.valueToTree(animations);
+        }
+        if (correctionJson == null) {
+            correctionJson = mapper.valueToTree(correction);
+        }
+        ObjectNode node = mapper.createObjectNode();
+        node.put("id", id);
+        node.put("animation", animation == null ? null : animation.name());
+        if (position == null) {
+            node.putNull("position");
+        } else {
+            node.putObject("position")
+                    .put("xpos", position.getXpos())
+                    .put("ypos", position.getYpos())
+                    .put("tilex", position.getTilex())
+                    .put("tiley", position.getTiley());
+        }
+        node.set("animations", animationsJson);
+        node.set("correction", correctionJson);
+        return node;
     }
 
     public void setMaxHealth(int maxHealth) {
@@ -0,0 +1,26 @@
+package structures.event;
+
+import structures.basic.Unit;
+
+/**
+ * attackerUnit attacks attackedUnit
+ */
+public class AttackedEvent extends GameEvent {
+
+    private final Unit attackedUnit;
+    private final Unit attackerUnit;
+
+    public AttackedEvent(Unit attackedUnit, Unit attackerUnit) {
+        super(EventType.ATTACKED);
+        this.attackedUnit = attackedUnit;
+        this.attackerUnit = attackerUnit;
+    }
+
+    public Unit getAttackedUnit() {
+        return attackedUnit;
+    }
+
+    public Unit getAttackerUnit() {
+        return attackerUnit;
+    }
+}
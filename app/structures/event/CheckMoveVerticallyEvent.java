@@ -0,0 +1,27 @@
+package structures.event;
+
+import structures.basic.Tile;
+
+/**
+ * Sent to the corner tile of a diagonal move, which decides whether the unit
+ * on originTile walks to aimTile vertically first.
+ */
+public class CheckMoveVerticallyEvent extends TileEvent {
+
+    private final Tile originTile;
+    private final Tile aimTile;
+
+    public CheckMoveVerticallyEvent(int tilex, int tiley, Tile originTile, Tile aimTile) {
+        super(EventType.CHECK_MOVE_VERTICALLY, tilex, tiley);
+        this.originTile = originTile;
+        this.aimTile = aimTile;
+    }
+
+    public Tile getOriginTile() {
+        return originTile;
+    }
+
+    public Tile getAimTile() {
+        return aimTile;
+    }
+}
@@ -0,0 +1,37 @@
+package structures.event;
+
+import structures.Observer;
+import structures.basic.Tile;
+import structures.basic.Unit;
+
+/**
+ * Every event that can be sent through the observer pattern. The target is
+ * the observer class that handles the event, Tile.trigger and Unit.trigger
+ * switch on this type.
+ */
+public enum EventType {
+    // tile events
+    TEXTURE_RESET(Tile.class),
+    SUMMON(Tile.class),
+    DELETE_UNIT(Tile.class),
+    SPELL(Tile.class),
+    RANGED_UNIT_ATTACK_HIGHLIGHT(Tile.class),
+    FIRST_CLICK_TILE(Tile.class),
+    OPERATE_UNIT(Tile.class),
+    CHECK_MOVE_VERTICALLY(Tile.class),
+
+    // unit events
+    UNIT_BE_READY(Unit.class),
+    ATTACKED(Unit.class),
+    MODIFY_UNIT(Unit.class);
+
+    private final Class<? extends Observer> target;
+
+    EventType(Class<? extends Observer> target) {
+        this.target = target;
+    }
+
+    public Class<? extends Observer> getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,23 @@
+package structures.event;
+
+/**
+ * Base class of the events passed from a Subject to its observers. Events
+ * that carry no data (textureReset, unitBeReady...) are shared constants,
+ * the others are small classes with typed fields.
+ */
+public class GameEvent {
+
+    public static final GameEvent TEXTURE_RESET = new GameEvent(EventType.TEXTURE_RESET);
+    public static final GameEvent UNIT_BE_READY = new GameEvent(EventType.UNIT_BE_READY);
+    public static final GameEvent RANGED_UNIT_ATTACK_HIGHLIGHT = new GameEvent(EventType.RANGED_UNIT_ATTACK_HIGHLIGHT);
+
+    private final EventType type;
+
+    public GameEvent(EventType type) {
+        this.type = type;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,42 @@
+package structures.event;
+
+/**
+ * Add attack and health to the unit with unitId. limit caps the change:
+ * MAX keeps health at the unit's max health, ENEMY_TURN only applies it
+ * outside the owner's turn.
+ */
+public class ModifyUnitEvent extends GameEvent {
+
+    public enum Limit {
+        NONE, MAX, ENEMY_TURN
+    }
+
+    private final int unitId;
+    private final int attack;
+    private final int health;
+    private final Limit limit;
+
+    public ModifyUnitEvent(int unitId, int attack, int health, Limit limit) {
+        super(EventType.MODIFY_UNIT);
+        this.unitId = unitId;
+        this.attack = attack;
+        this.health = health;
+        this.limit = limit;
+    }
+
+    public int getUnitId() {
+        return unitId;
+    }
+
+    public int getAttack() {
+        return attack;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+}
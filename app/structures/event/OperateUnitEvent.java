@@ -0,0 +1,21 @@
+package structures.event;
+
+import structures.basic.Tile;
+
+/**
+ * Second click after a unit was selected: move to, or attack, the tile at
+ * (tilex, tiley) with the unit on originTile.
+ */
+public class OperateUnitEvent extends TileEvent {
+
+    private final Tile originTile;
+
+    public OperateUnitEvent(int tilex, int tiley, Tile originTile) {
+        super(EventType.OPERATE_UNIT, tilex, tiley);
+        this.originTile = originTile;
+    }
+
+    public Tile getOriginTile() {
+        return originTile;
+    }
+}
@@ -0,0 +1,20 @@
+package structures.event;
+
+import structures.basic.Unit;
+
+/**
+ * Place a unit on the tile at (tilex, tiley)
+ */
+public class SummonEvent extends TileEvent {
+
+    private final Unit unit;
+
+    public SummonEvent(int tilex, int tiley, Unit unit) {
+        super(EventType.SUMMON, tilex, tiley);
+        this.unit = unit;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+}
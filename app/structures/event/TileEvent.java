@@ -0,0 +1,25 @@
+package structures.event;
+
+/**
+ * An event addressed to the tile at (tilex, tiley). GameState.sendTileEvent
+ * delivers it to that tile only.
+ */
+public class TileEvent extends GameEvent {
+
+    private final int tilex;
+    private final int tiley;
+
+    public TileEvent(EventType type, int tilex, int tiley) {
+        super(type);
+        this.tilex = tilex;
+        this.tiley = tiley;
+    }
+
+    public int getTilex() {
+        return tilex;
+    }
+
+    public int getTiley() {
+        return tiley;
+    }
+}
@@ -1,18 +1,37 @@
 package utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import structures.GameState;
 import structures.basic.Card;
 import structures.basic.EffectAnimation;
+import structures.basic.Position;
 import structures.basic.Tile;
 import structures.basic.Unit;
 
 /**
  * This class contains methods for producing basic objects from configuration files
+ * <p>
+ * Each configuration file is read and parsed once. Cards and effects are then
+ * bound from the cached JSON tree, while units and tiles are built from a
+ * cached prototype: the animations, image correction and textures are shared
+ * between all the objects made from the same file, so they must not be
+ * modified. After the first game no loader touches the disk.
  * 
  * @author Dr. Richard McCreadie
  *
@@ -21,6 +40,40 @@ public class BasicObjectBuilders {
 
 	@JsonIgnore
 	protected static ObjectMapper mapper = new ObjectMapper(); // Jackson Java Object Serializer, is used to read java objects from a file
+
+	// parsed configuration files and prototypes, keyed by file name
+	private static final Map<String, JsonNode> trees = new ConcurrentHashMap<>();
+	private static final Map<String, Unit> unitPrototypes = new ConcurrentHashMap<>();
+	private static final Map<String, Tile> tilePrototypes = new ConcurrentHashMap<>();
+
+	private static JsonNode readTree(String configFile) {
+		return trees.computeIfAbsent(configFile, file -> {
+			try {
+				return mapper.readTree(new File(file));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+	
+	/**
+	 * Reads and parses every configuration file under directory, so that loading objects
+	 * from them later does not touch the disk. This blocks on file IO and should run on a
+	 * thread meant for it, not on a game actor.
+	 * @param directory
+	 * @return the number of files read
+	 */
+	public static int preload(String directory) {
+		try (Stream<Path> files = Files.walk(Paths.get(directory))) {
+			List<String> configFiles = files.map(path -> path.toString().replace(File.separatorChar, '/'))
+					.filter(file -> file.endsWith(".json"))
+					.collect(Collectors.toList());
+			configFiles.forEach(BasicObjectBuilders::readTree);
+			return configFiles.size();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 	
 	/**
 	 * This class produces a Card object (or anything that extends Card) given a configuration
@@ -37,7 +90,7 @@ public class BasicObjectBuilders {
 	 */
 	public static Card loadCard(String configurationFile, int id, Class<? extends Card> classtype, GameState gameState) {
 		try {
-			Card card = mapper.readValue(new File(configurationFile), classtype);
+			Card card = mapper.treeToValue(readTree(configurationFile), classtype);
 			card.setId(id);
 			card.setGameState(gameState);
 			return card;
@@ -56,7 +109,7 @@ public class BasicObjectBuilders {
 	 */
 	public static EffectAnimation loadEffect(String configurationFile) {
 		try {
-			EffectAnimation effect = mapper.readValue(new File(configurationFile), EffectAnimation.class);
+			EffectAnimation effect = mapper.treeToValue(readTree(configurationFile), EffectAnimation.class);
 			return effect;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -69,14 +122,29 @@ public class BasicObjectBuilders {
 	 * Loads a unit from a configuration file. Configuration files can be found 
 	 * in the conf/gameconfs directory. The unit needs to be given a unique identifier
 	 * (id). This method requires a classtype argument that specifies what type of
-	 * unit to create. 
+	 * unit to create. The animations and correction of the new unit are shared with
+	 * every other unit loaded from the same file.
 	 * @param configFile
 	 * @return
 	 */
 	public static Unit loadUnit(String configFile, int id,  Class<? extends Unit> classType, GameState gameState) {
 		
 		try {
-			Unit unit = mapper.readValue(new File(configFile), classType);
+			Unit prototype = unitPrototypes.computeIfAbsent(configFile, file -> {
+				try {
+					return mapper.treeToValue(readTree(file), Unit.class);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			Unit unit = classType.getDeclaredConstructor().newInstance();
+			unit.setAnimation(prototype.getAnimation());
+			Position position = prototype.getPosition();
+			if (position != null) {
+				unit.setPosition(new Position(position.getXpos(), position.getYpos(), position.getTilex(), position.getTiley()));
+			}
+			unit.setAnimations(prototype.getAnimations());
+			unit.setCorrection(prototype.getCorrection());
 			unit.setId(id);
 			unit.setGameState(gameState);
 
@@ -102,15 +170,25 @@ public class BasicObjectBuilders {
 		
 		Tile tile = null;
 		try {
-			tile = mapper.readValue(new File(configFile), Tile.class);
+			Tile prototype = tilePrototypes.computeIfAbsent(configFile, file -> {
+				try {
+					Tile loaded = mapper.treeToValue(readTree(file), Tile.class);
+					loaded.setTileTextures(Collections.unmodifiableList(loaded.getTileTextures()));
+					return loaded;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			int width = prototype.getWidth();
+			int height = prototype.getHeight();
+			tile = new Tile(prototype.getTileTextures(),
+					(width*x)+(gridmargin*x)+gridTopLeftx,
+					(height*y)+(gridmargin*y)+gridTopLefty,
+					width, height, x, y);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 		if (tile != null) {
-			tile.setXpos((tile.getWidth()*x)+(gridmargin*x)+gridTopLeftx);
-			tile.setYpos((tile.getHeight()*y)+(gridmargin*y)+gridTopLefty);
-			tile.setTilex(x);
-			tile.setTiley(y);
 			tile.setGameState(gameState);
 		}
 		
@@ -1,6 +1,7 @@
 package utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -17,12 +18,21 @@ import structures.basic.Unit;
  */
 public class ImageListForPreLoad {
 
+	// the list is the same for every game, so it is built and its files are read once
+	private static final class Cache {
+		static final Set<String> images = Collections.unmodifiableSet(buildImageList());
+	}
+
 	/**
 	 * This method returns a very big list of relative locations of the different images
 	 * that are needed by the game. Pixi.js will cache these on game load.
 	 * @return
 	 */
 	public static Set<String> getImageListForPreLoad() {
+		return Cache.images;
+	}
+
+	private static Set<String> buildImageList() {
 		
 		Set<String> images = new HashSet<String>();
 		
@@ -0,0 +1,139 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+
+import ai.AiPlayer;
+import ai.AlphaBetaAi;
+import ai.Evaluation;
+import ai.MctsAi;
+import ai.RandomAi;
+import ai.Tournament;
+import ai.TranspositionTable;
+import rules.Action;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Checks that the AI players only choose legal actions and end their turns.
+ */
+public class AiPlayerTest {
+
+	@Test
+	public void randomAiEndsItsTurn() {
+		AiPlayer ai = new RandomAi(new Random(1));
+		RulesState state = RulesState.newGame(1);
+		int actions = 0;
+		while (state.getCurrentSide() == RulesState.HUMAN) {
+			int action = ai.nextAction(state);
+			assertTrue(Rules.isLegal(state, action));
+			Rules.applyInPlace(state, action, null);
+			assertTrue(++actions < 30);
+		}
+		assertEquals(RulesState.AI, state.getCurrentSide());
+	}
+
+	@Test
+	public void mctsChoosesLegalActionsWithoutChangingTheState() {
+		AiPlayer ai = new MctsAi(20);
+		RulesState state = RulesState.newGame(2);
+		Rules.applyInPlace(state, Action.endTurn(), null);
+		RulesState before = state.copy();
+
+		int action = ai.nextAction(state);
+
+		assertTrue(Rules.isLegal(state, action));
+		assertEquals(before.getOccupied(), state.getOccupied());
+		assertEquals(before.getMana(RulesState.AI), state.getMana(RulesState.AI));
+		assertEquals(before.getDeckSize(RulesState.AI), state.getDeckSize(RulesState.AI));
+	}
+
+	@Test
+	public void alphaBetaChoosesLegalActionsWithoutChangingTheState() {
+		AlphaBetaAi ai = new AlphaBetaAi(20, new TranspositionTable(12));
+		RulesState state = RulesState.newGame(3);
+		Rules.applyInPlace(state, Action.endTurn(), null);
+		RulesState before = state.copy();
+
+		int action = ai.nextAction(state);
+
+		assertTrue(Rules.isLegal(state, action));
+		assertEquals(before.getHash(), state.getHash());
+		assertEquals(before.getOccupied(), state.getOccupied());
+		assertEquals(before.getDeckSize(RulesState.AI), state.getDeckSize(RulesState.AI));
+		assertTrue(ai.getAverageDepth() >= 1);
+	}
+
+	@Test
+	public void cancelledSearchesStopBeforeTheirBudget() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		RulesState state = RulesState.newGame(4);
+		Rules.applyInPlace(state, Action.endTurn(), null);
+		for (AiPlayer ai : new AiPlayer[]{new AlphaBetaAi(60_000, new TranspositionTable(12)), new MctsAi(60_000)}) {
+			Future<Integer> search = executor.submit(() -> ai.nextAction(state));
+			Thread.sleep(50);
+			long start = System.nanoTime();
+			search.cancel(true);
+			//			the next task only starts once the cancelled search has returned
+			executor.submit(() -> 0).get(5, TimeUnit.SECONDS);
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void tournamentsAreRepeatableAndCountEveryGame() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		Tournament tournament = new Tournament(seed -> new RandomAi(new Random(seed)),
+				seed -> new RandomAi(new Random(seed * 31)), pool);
+
+		Tournament.Result result = tournament.play(12, 100);
+		Tournament.Result again = tournament.play(12, 100);
+
+		assertEquals(12, result.getGames());
+		assertEquals(12, result.getFirstWins() + result.getSecondWins() + result.getDraws());
+		assertEquals(result.getSecondWins(), again.getSecondWins());
+		assertEquals(result.getActions(), again.getActions());
+		assertTrue(result.getConfidence() > 0 && result.getConfidence() < 0.5);
+		pool.shutdown();
+	}
+
+	@Test
+	public void incrementalEvaluationMatchesTheEvaluationFromScratch() {
+		Random random = new Random(8);
+		Evaluation evaluation = Evaluation.DEFAULT;
+		for (int game = 0; game < 20; game++) {
+			RulesState state = RulesState.newGame(game);
+			while (!state.isGameOver()) {
+				int[] actions = Rules.legalActions(state);
+				Rules.applyInPlace(state, actions[random.nextInt(actions.length)], null);
+				for (int side = RulesState.HUMAN; side <= RulesState.AI; side++) {
+					assertEquals(evaluation.scoreFromScratch(state, side), evaluation.score(state, side), 1e-9);
+					assertEquals(evaluation.score(state, side), evaluation.score(state.copy(), side), 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void evaluationWeightsComeFromTheConfig() {
+		RulesState state = RulesState.newGame(5);
+		Evaluation avatarOnly = Evaluation.fromConfig(ConfigFactory.parseString(
+				"game.ai.evaluation { avatar-health = 1, unit-attack = 0, unit-health = 0, threatened-units = 0, "
+						+ "provoked-enemies = 0, unspent-mana = 0, hand-cost = 0 }"));
+		Rules.applyInPlace(state, Action.endTurn(), null);
+
+		assertEquals(0, avatarOnly.score(state, RulesState.HUMAN), 1e-9);
+		assertEquals(Evaluation.DEFAULT.score(state, RulesState.AI),
+				Evaluation.fromConfig(ConfigFactory.empty()).score(state, RulesState.AI), 1e-9);
+	}
+}
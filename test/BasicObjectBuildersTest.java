@@ -0,0 +1,53 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import structures.basic.Card;
+import structures.basic.Tile;
+import structures.basic.Unit;
+import utils.BasicObjectBuilders;
+import utils.StaticConfFiles;
+
+/**
+ * Checks that objects built from the cached configuration files share only
+ * their static data.
+ */
+public class BasicObjectBuildersTest {
+
+	@Test
+	public void unitsShareAnimationsButNotState() {
+		Unit first = BasicObjectBuilders.loadUnit(StaticConfFiles.u_fire_spitter, 1, Unit.class, null);
+		Unit second = BasicObjectBuilders.loadUnit(StaticConfFiles.u_fire_spitter, 2, Unit.class, null);
+
+		assertNotSame(first, second);
+		assertSame(first.getAnimations(), second.getAnimations());
+		assertSame(first.getCorrection(), second.getCorrection());
+		assertNotSame(first.getPosition(), second.getPosition());
+		assertEquals(1, first.getId());
+		assertEquals(2, second.getId());
+	}
+
+	@Test
+	public void tilesArePlacedOnTheGrid() {
+		Tile origin = BasicObjectBuilders.loadTile(StaticConfFiles.tileConf, 0, 0, null);
+		Tile tile = BasicObjectBuilders.loadTile(StaticConfFiles.tileConf, 2, 1, null);
+
+		assertSame(origin.getTileTextures(), tile.getTileTextures());
+		assertEquals(origin.getXpos() + 2 * (tile.getWidth() + 5), tile.getXpos());
+		assertEquals(origin.getYpos() + tile.getHeight() + 5, tile.getYpos());
+		assertEquals(2, tile.getTilex());
+		assertEquals(1, tile.getTiley());
+	}
+
+	@Test
+	public void cardsAreSeparateCopies() {
+		Card first = BasicObjectBuilders.loadCard(StaticConfFiles.c_truestrike, 4, Card.class, null);
+		Card second = BasicObjectBuilders.loadCard(StaticConfFiles.c_truestrike, 14, Card.class, null);
+
+		assertNotSame(first.getBigCard(), second.getBigCard());
+		assertEquals(first.getCardname(), second.getCardname());
+		assertEquals(14, second.getId());
+	}
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import structures.Bitboard;
+import structures.BoardGeometry;
+
+/**
+ * Checks the bitboard queries against the rules the tiles used to answer by
+ * broadcasting search events.
+ */
+public class BitboardTest {
+
+	private final BoardGeometry geometry = BoardGeometry.forBoard(9, 5);
+	private final Bitboard bitboard = new Bitboard(geometry);
+
+	@Test
+	public void placeAndRemoveKeepMasksInSync() {
+		int cell = geometry.cellIndex(1, 2);
+		bitboard.place(cell, Bitboard.HUMAN, true, false);
+		assertTrue(has(bitboard.getOccupied(), 1, 2));
+		assertTrue(has(bitboard.getUnits(Bitboard.HUMAN), 1, 2));
+		assertTrue(has(bitboard.getAvatars(), 1, 2));
+
+		// a unit moving in from the other side replaces the old one
+		bitboard.place(cell, Bitboard.AI, false, true);
+		assertFalse(has(bitboard.getUnits(Bitboard.HUMAN), 1, 2));
+		assertFalse(has(bitboard.getAvatars(), 1, 2));
+		assertTrue(has(bitboard.getProvokers(Bitboard.AI), 1, 2));
+
+		bitboard.remove(cell);
+		assertEquals(0, bitboard.getOccupied());
+		assertEquals(0, bitboard.getProvokers(Bitboard.AI));
+		assertEquals(45, Long.bitCount(bitboard.getEmpty()));
+	}
+
+	@Test
+	public void summonRangeIsEmptyCellsNextToOwnUnits() {
+		bitboard.place(geometry.cellIndex(1, 2), Bitboard.HUMAN, true, false);
+		bitboard.place(geometry.cellIndex(2, 2), Bitboard.AI, false, false);
+
+		long range = bitboard.summonRange(Bitboard.HUMAN);
+		assertEquals(7, Long.bitCount(range));
+		assertFalse(has(range, 2, 2));
+		assertFalse(has(range, 3, 2));
+		assertTrue(has(range, 0, 1));
+	}
+
+	@Test
+	public void provokeZoneAndEnemiesInRange() {
+		bitboard.place(geometry.cellIndex(4, 2), Bitboard.AI, false, true);
+		bitboard.place(geometry.cellIndex(5, 3), Bitboard.HUMAN, false, false);
+		bitboard.place(geometry.cellIndex(7, 2), Bitboard.HUMAN, false, false);
+
+		long zone = bitboard.provokeZone(Bitboard.AI);
+		assertTrue(has(zone, 5, 3));
+		assertFalse(has(zone, 7, 2));
+
+		long inRange = bitboard.enemiesIn(Bitboard.AI, geometry.neighbourMask(geometry.cellIndex(4, 2)));
+		assertEquals(1, Long.bitCount(inRange));
+		assertTrue(has(inRange, 5, 3));
+	}
+
+	@Test
+	public void highlightModesAreExclusive() {
+		int cell = geometry.cellIndex(0, 0);
+		bitboard.setHighlight(cell, Bitboard.WHITE);
+		bitboard.setHighlight(cell, Bitboard.RED);
+		assertEquals(0, bitboard.getWhite());
+		assertTrue(has(bitboard.getRed(), 0, 0));
+
+		bitboard.setHighlight(cell, Bitboard.NORMAL);
+		assertEquals(0, bitboard.getHighlighted());
+	}
+
+	private boolean has(long mask, int x, int y) {
+		return (mask & BoardGeometry.bit(geometry.cellIndex(x, y))) != 0;
+	}
+}
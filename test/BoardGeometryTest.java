@@ -0,0 +1,75 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import structures.BoardGeometry;
+
+/**
+ * Checks the precomputed move and attack tables against the movement rules
+ * the tiles used to compute with recursive highlight events.
+ */
+public class BoardGeometryTest {
+
+	private final BoardGeometry geometry = BoardGeometry.forBoard(9, 5);
+
+	@Test
+	public void tablesAreSharedPerBoardSize() {
+		assertSame(geometry, BoardGeometry.forBoard(9, 5));
+		assertEquals(45, Long.bitCount(geometry.getAllMask()));
+	}
+
+	@Test
+	public void neighboursStopAtTheEdge() {
+		assertEquals(3, geometry.neighbours(geometry.cellIndex(0, 0)).length);
+		assertEquals(5, geometry.neighbours(geometry.cellIndex(4, 0)).length);
+		assertEquals(8, geometry.neighbours(geometry.cellIndex(4, 2)).length);
+		assertEquals(2, geometry.cardinal(geometry.cellIndex(8, 4)).length);
+	}
+
+	@Test
+	public void moveRangeOnAnEmptyBoard() {
+		int cell = geometry.cellIndex(4, 2);
+		long range = geometry.moveRange(cell, 0);
+		// 4 one step, 4 straight two steps, 4 diagonals
+		assertEquals(12, Long.bitCount(range));
+		assertTrue(has(range, 6, 2));
+		assertTrue(has(range, 5, 3));
+		assertFalse(has(range, 4, 2));
+		assertFalse(has(range, 6, 3));
+	}
+
+	@Test
+	public void occupiedCellsBlockMovement() {
+		int cell = geometry.cellIndex(4, 2);
+		long occupied = BoardGeometry.bit(geometry.cellIndex(5, 2));
+		long range = geometry.moveRange(cell, occupied);
+
+		assertFalse(has(range, 5, 2));
+		// the straight line behind the unit is blocked
+		assertFalse(has(range, 6, 2));
+		// the diagonal is still reachable through (4,3)
+		assertTrue(has(range, 5, 3));
+	}
+
+	@Test
+	public void attackRangeCoversCellsNextToEveryMove() {
+		int cell = geometry.cellIndex(1, 2);
+		long attack = geometry.attackRange(cell, geometry.moveRange(cell, 0));
+
+		assertTrue(has(attack, 4, 2));
+		assertTrue(has(attack, 2, 2));
+		assertFalse(has(attack, 1, 2));
+		assertFalse(has(attack, 5, 2));
+
+		long standing = geometry.attackRange(cell, 0);
+		assertEquals(geometry.neighbourMask(cell), standing);
+		assertTrue(geometry.isAdjacent(cell, geometry.cellIndex(2, 3)));
+	}
+
+	private boolean has(long mask, int x, int y) {
+		return (mask & BoardGeometry.bit(geometry.cellIndex(x, y))) != 0;
+	}
+}
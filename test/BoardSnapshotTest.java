@@ -0,0 +1,76 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import commands.BasicCommands;
+import commands.BoardSnapshot;
+import events.Initalize;
+import play.libs.Json;
+import structures.GameState;
+import structures.basic.Card;
+import structures.basic.Tile;
+
+/**
+ * Checks that the snapshot drawn for a reloaded page shows the whole game:
+ * every tile, every unit with its attack and health, and the human's hand.
+ */
+public class BoardSnapshotTest {
+
+	@After
+	public void resetTell() {
+		BasicCommands.altTell = null;
+	}
+
+	@Test
+	public void snapshotDrawsTheWholeGame() {
+		List<ObjectNode> commands = new ArrayList<>();
+		BasicCommands.altTell = commands::add;
+		GameState gameState = new GameState();
+		ObjectNode initalize = Json.newObject();
+		initalize.put("seed", 3);
+		new Initalize().processEvent(null, gameState, initalize);
+
+		commands.clear();
+		BoardSnapshot.draw(null, gameState);
+
+		int units = 0;
+		for (Tile[] column : gameState.getBoard()) {
+			for (Tile tile : column) {
+				if (tile.getUnitOnTile() != null) {
+					units++;
+				}
+			}
+		}
+		int cards = 0;
+		for (Card card : gameState.getPlayerContainers()[0].getHandCards()) {
+			if (card != null) {
+				cards++;
+			}
+		}
+		assertEquals(2, units);
+		assertEquals(3, cards);
+		assertEquals(GameState.BOARD_WIDTH * GameState.BOARD_HEIGHT, count(commands, "drawTile"));
+		assertEquals(units, count(commands, "drawUnit"));
+		assertEquals(units, count(commands, "setUnitAttack"));
+		assertEquals(units, count(commands, "setUnitHealth"));
+		assertEquals(cards, count(commands, "drawCard"));
+		assertEquals(1, count(commands, "setPlayer1Health"));
+		assertEquals(1, count(commands, "setPlayer2Mana"));
+	}
+
+	private static int count(List<ObjectNode> commands, String messageType) {
+		int count = 0;
+		for (ObjectNode command : commands) {
+			if (command.get("messagetype").asText().equals(messageType)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
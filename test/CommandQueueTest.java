@@ -0,0 +1,130 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import commands.CommandBatch;
+import commands.CommandQueue;
+import play.libs.Json;
+
+/**
+ * Checks that the commands waiting for a slow socket keep the final board:
+ * states superseded by a later frame are replaced in place, only animations
+ * and notifications are dropped, and the commands that change the board are
+ * all kept.
+ */
+public class CommandQueueTest {
+
+	@Test
+	public void supersededStatesAreReplacedInPlace() {
+		CommandQueue queue = new CommandQueue(100);
+		queue.add(tile(1, 2, 1));
+		queue.add(unit("setUnitHealth", 7, "health", 5));
+		queue.add(unit("drawUnit", 8, "health", 2));
+		queue.add(notification("Player turn"));
+		queue.endFrame();
+		queue.add(tile(1, 2, 0));
+		queue.add(unit("setUnitHealth", 7, "health", 3));
+		queue.add(tile(2, 2, 1));
+		queue.add(notification("AI turn"));
+
+		ArrayNode sent = drain(queue);
+		assertEquals(5, sent.size());
+		assertEquals(0, sent.get(0).path("mode").asInt());
+		assertEquals(3, sent.get(1).path("health").asInt());
+		assertEquals("drawUnit", sent.get(2).path("messagetype").asText());
+		assertEquals("AI turn", sent.get(3).path("text").asText());
+		assertEquals(2, sent.get(4).path("tile").path("tilex").asInt());
+		assertEquals(2, queue.getCoalescedCount());
+		assertEquals(1, queue.getDroppedCount());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void commandsOfOneFrameAreKept() {
+		CommandQueue queue = new CommandQueue(100);
+		queue.add(tile(1, 2, 1));
+		queue.add(tile(1, 2, 0));
+		queue.add(notification("Game start"));
+		queue.add(notification("Player turn"));
+		queue.endFrame();
+		queue.add(tile(1, 2, 2));
+
+		ArrayNode sent = drain(queue);
+		assertEquals(4, sent.size());
+		assertEquals(1, sent.get(0).path("mode").asInt());
+		assertEquals(2, sent.get(1).path("mode").asInt());
+		assertEquals("Game start", sent.get(2).path("text").asText());
+		assertEquals(1, queue.getCoalescedCount());
+		assertEquals(0, queue.getDroppedCount());
+	}
+
+	@Test
+	public void updatesAfterADeleteStayAfterIt() {
+		CommandQueue queue = new CommandQueue(100);
+		queue.add(unit("setUnitHealth", 7, "health", 1));
+		queue.endFrame();
+		queue.add(unit("deleteUnit", 7, "health", 0));
+		queue.endFrame();
+		queue.add(unit("setUnitHealth", 7, "health", 2));
+
+		ArrayNode sent = drain(queue);
+		assertEquals(3, sent.size());
+		assertEquals("deleteUnit", sent.get(1).path("messagetype").asText());
+		assertEquals(0, queue.getCoalescedCount());
+	}
+
+	@Test
+	public void onlyAnimationsAreDroppedPastTheLimit() {
+		CommandQueue queue = new CommandQueue(4);
+		for (int i = 0; i < 10; i++) {
+			queue.add(unit("playUnitAnimation", i, "animation", 0));
+			queue.add(unit("moveUnitToTile", i, "mode", 0));
+		}
+		assertEquals(10, queue.getDroppedCount());
+		assertFalse(queue.isOverflowing(10));
+		assertTrue(queue.isOverflowing(9));
+
+		ArrayNode sent = drain(queue);
+		for (int i = 0; i < 10; i++) {
+			assertEquals("moveUnitToTile", sent.get(i).path("messagetype").asText());
+			assertEquals(i, sent.get(i).path("unit").path("id").asInt());
+		}
+		assertEquals(10, queue.getMaxDepth());
+	}
+
+	private static ArrayNode drain(CommandQueue queue) {
+		CommandBatch batch = new CommandBatch();
+		queue.drainTo(batch);
+		// a frame of several commands is an array
+		return (ArrayNode) batch.flush();
+	}
+
+	private static JsonNode tile(int x, int y, int mode) {
+		ObjectNode command = Json.newObject();
+		command.put("messagetype", "drawTile");
+		command.putObject("tile").put("tilex", x).put("tiley", y);
+		command.put("mode", mode);
+		return command;
+	}
+
+	private static JsonNode unit(String type, int id, String field, int value) {
+		ObjectNode command = Json.newObject();
+		command.put("messagetype", type);
+		command.putObject("unit").put("id", id);
+		command.put(field, value);
+		return command;
+	}
+
+	private static JsonNode notification(String text) {
+		ObjectNode command = Json.newObject();
+		command.put("messagetype", "addPlayer1Notification");
+		command.put("text", text);
+		return command;
+	}
+}
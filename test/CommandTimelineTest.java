@@ -0,0 +1,170 @@
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import actors.CommandTimeline;
+import actors.SocketFlow;
+import actors.Spectators;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import play.libs.Json;
+
+/**
+ * Checks what a page that reconnects to a game is sent: the frames it missed
+ * while they are still kept, a resync once they are gone, and for a page that
+ * has just loaded the hello and then nothing until the board is redrawn.
+ */
+public class CommandTimelineTest {
+
+	private static final int REPLAY_FRAMES = 4;
+	private static final Duration QUIET = Duration.ofMillis(200);
+
+	private ActorSystem system;
+	private TestKit spectators;
+	private ActorRef timeline;
+
+	@Before
+	public void startTimeline() {
+		system = ActorSystem.create("timeline");
+		spectators = new TestKit(system);
+		timeline = system.actorOf(Props.create(CommandTimeline.class,
+				() -> new CommandTimeline(200, 2000, REPLAY_FRAMES, spectators.getRef())));
+	}
+
+	@After
+	public void stopSystem() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	@Test
+	public void missedFramesAreReplayed() {
+		TestKit page = startGame();
+		for (int i = 1; i <= 3; i++) {
+			play(command(i));
+			take(page, command(i));
+		}
+		timeline.tell(CommandTimeline.Detach.INSTANCE, ActorRef.noSender());
+		// played with no socket attached, waits for the next one
+		play(command(4));
+
+		// the page has the hello and the first frame
+		TestKit reconnected = new TestKit(system);
+		timeline.tell(new CommandTimeline.Attach(reconnected.getRef(), 2, null), ActorRef.noSender());
+		take(reconnected, command(2));
+		take(reconnected, command(3));
+		take(reconnected, command(4));
+		reconnected.expectNoMessage(QUIET);
+		assertEquals(2, stats().getReplayed());
+		assertEquals(0, stats().getResyncs());
+	}
+
+	@Test
+	public void pageResyncsOnceMissedFramesAreGone() {
+		TestKit page = startGame();
+		for (int i = 1; i <= REPLAY_FRAMES + 2; i++) {
+			play(command(i));
+			take(page, command(i));
+		}
+		timeline.tell(CommandTimeline.Detach.INSTANCE, ActorRef.noSender());
+
+		// missed more frames than are kept
+		TestKit behind = new TestKit(system);
+		timeline.tell(new CommandTimeline.Attach(behind.getRef(), 1, null), ActorRef.noSender());
+		assertEquals("resync", behind.expectMsgClass(ObjectNode.class).path("messagetype").asText());
+		spectators.fishForMessage(QUIET.multipliedBy(10), "resync", message -> message == Spectators.Resync.INSTANCE);
+		// holds the frames played until the reloaded page has drawn the board
+		timeline.tell(SocketFlow.Ack.INSTANCE, behind.getRef());
+		play(command(7));
+		behind.expectNoMessage(QUIET);
+		assertEquals(1, stats().getResyncs());
+		assertEquals(0, stats().getReplayed());
+	}
+
+	@Test
+	public void pageAheadOfTheGameResyncs() {
+		TestKit page = startGame();
+		play(command(1));
+		take(page, command(1));
+		timeline.tell(CommandTimeline.Detach.INSTANCE, ActorRef.noSender());
+
+		// has frames the game never sent, a page of the game before it
+		TestKit ahead = new TestKit(system);
+		timeline.tell(new CommandTimeline.Attach(ahead.getRef(), 100, null), ActorRef.noSender());
+		assertEquals("resync", ahead.expectMsgClass(ObjectNode.class).path("messagetype").asText());
+		assertEquals(1, stats().getResyncs());
+	}
+
+	@Test
+	public void loadedPageIsHeldUntilRedraw() {
+		TestKit page = new TestKit(system);
+		timeline.tell(new CommandTimeline.Attach(page.getRef(), 0, hello()), ActorRef.noSender());
+		JsonNode hello = page.expectMsgClass(ObjectNode.class);
+		assertEquals("actorReady", hello.path("messagetype").asText());
+		assertEquals(1, hello.path("seq").asLong());
+		timeline.tell(SocketFlow.Ack.INSTANCE, page.getRef());
+
+		// commands for a board the page has not drawn are dropped
+		play(command(1));
+		page.expectNoMessage(QUIET);
+
+		timeline.tell(CommandTimeline.Redraw.INSTANCE, ActorRef.noSender());
+		play(command(2));
+		take(page, command(2));
+	}
+
+	/**
+	 * Attach a page that has just loaded and draw its board
+	 */
+	private TestKit startGame() {
+		TestKit page = new TestKit(system);
+		timeline.tell(new CommandTimeline.Attach(page.getRef(), 0, hello()), ActorRef.noSender());
+		page.expectMsgClass(ObjectNode.class);
+		timeline.tell(SocketFlow.Ack.INSTANCE, page.getRef());
+		timeline.tell(CommandTimeline.Redraw.INSTANCE, ActorRef.noSender());
+		return page;
+	}
+
+	/**
+	 * Play command as a frame of its own
+	 */
+	private void play(JsonNode command) {
+		timeline.tell(command, ActorRef.noSender());
+		timeline.tell(CommandTimeline.Flush.INSTANCE, ActorRef.noSender());
+	}
+
+	/**
+	 * Expect frame on page's socket and take it
+	 */
+	private void take(TestKit page, JsonNode frame) {
+		page.expectMsg(frame);
+		timeline.tell(SocketFlow.Ack.INSTANCE, page.getRef());
+	}
+
+	private CommandTimeline.Stats stats() {
+		TestKit probe = new TestKit(system);
+		timeline.tell(CommandTimeline.GetStats.INSTANCE, probe.getRef());
+		return probe.expectMsgClass(CommandTimeline.Stats.class);
+	}
+
+	private static ObjectNode hello() {
+		ObjectNode hello = Json.newObject();
+		hello.put("messagetype", "actorReady");
+		return hello;
+	}
+
+	private static ObjectNode command(int health) {
+		ObjectNode command = Json.newObject();
+		command.put("messagetype", "setPlayer1Health");
+		command.put("health", health);
+		return command;
+	}
+}
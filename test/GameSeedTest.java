@@ -0,0 +1,283 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import actors.AiTurn;
+import actors.Ponder;
+import ai.AiPlayer;
+import ai.AiPlayers;
+import ai.RandomAi;
+import akka.actor.AbstractActorWithTimers;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+import commands.BasicCommands;
+import events.CardClicked;
+import events.EndTurnClicked;
+import events.Heartbeat;
+import events.Initalize;
+import events.TileClicked;
+import play.libs.Json;
+import rules.Action;
+import rules.GameStateAdapter;
+import rules.RulesState;
+import structures.BoardGeometry;
+import structures.GameState;
+
+/**
+ * Checks that a game is fixed by the seed given to Initalize: the same seed
+ * and actions draw the same cards, the AI chooses the same actions, and the
+ * actions a game records, the human's clicks and the AI's turns, replay it.
+ */
+public class GameSeedTest {
+
+	private ActorSystem system;
+
+	@Before
+	public void startSystem() {
+		system = ActorSystem.create("seeds");
+	}
+
+	@After
+	public void stopSystem() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	@Test
+	public void sameSeedPlaysTheSameGame() {
+		List<Integer> actions = new ArrayList<>();
+		List<Long> hashes = new ArrayList<>();
+		play(startGame(42), new RandomAi(), actions, hashes);
+
+		List<Integer> again = new ArrayList<>();
+		List<Long> hashesAgain = new ArrayList<>();
+		play(startGame(42), new RandomAi(), again, hashesAgain);
+
+		assertTrue(actions.size() > 10);
+		assertEquals(actions, again);
+		assertEquals(hashes, hashesAgain);
+	}
+
+	@Test
+	public void replayedActionsDrawTheSameCards() {
+		List<Integer> actions = new ArrayList<>();
+		List<Long> hashes = new ArrayList<>();
+		play(startGame(7), new RandomAi(), actions, hashes);
+
+		GameState replay = startGame(7);
+		for (int i = 0; i < actions.size(); i++) {
+			startAiTurn(replay);
+			GameStateAdapter.perform(replay, actions.get(i));
+			if (GameStateAdapter.isGameOver(replay)) {
+				break;
+			}
+			assertEquals(hashes.get(i).longValue(), GameStateAdapter.snapshot(replay, 0).getHash());
+		}
+	}
+
+	@Test
+	public void aiTurnsPlayTheSameGame() {
+		// the default AI searches for a time, the random one decides the same on the same seed
+		Config config = ConfigFactory.parseString("game.ai.engine = random").withFallback(ConfigFactory.load());
+		Played played = play(3, config, Integer.MAX_VALUE);
+		Played again = play(3, config, Integer.MAX_VALUE);
+
+		assertTrue(played.gameState.getActions().size() > 10);
+		assertEquals(played.gameState.getActions(), again.gameState.getActions());
+		assertEquals(played.hashes, again.hashes);
+	}
+
+	@Test
+	public void recordedActionsReplayTheGame() {
+		Played played = play(11, ConfigFactory.load(), 3);
+
+		GameState replay = startGame(11);
+		for (int action : played.gameState.getActions()) {
+			startAiTurn(replay);
+			GameStateAdapter.perform(replay, action);
+		}
+
+		assertTrue(played.gameState.getActions().size() > 5);
+		assertEquals(played.gameState.getActions(), replay.getActions());
+		assertEquals(played.hashes.get(played.hashes.size() - 1).longValue(),
+				GameStateAdapter.snapshot(replay, 0).getHash());
+	}
+
+	/**
+	 * Play a game through AiTurn with the AI of config, as the GameActor does
+	 *
+	 * @param turns the game is stopped when the human's turn comes after this many rounds
+	 */
+	private Played play(long seed, Config config, int turns) {
+		TestKit probe = new TestKit(system);
+		system.actorOf(Props.create(Game.class, () -> new Game(seed, config, turns, probe.getRef())));
+		return probe.expectMsgClass(Duration.ofMinutes(1), Played.class);
+	}
+
+	private static final class Played {
+		private final GameState gameState;
+		private final List<Long> hashes;
+
+		Played(GameState gameState, List<Long> hashes) {
+			this.gameState = gameState;
+			this.hashes = hashes;
+		}
+	}
+
+	private enum Step {
+		INSTANCE
+	}
+
+	/**
+	 * Hosts a game as the GameActor does. The human plays by clicks on the
+	 * tiles and cards, choosing with a RandomAi, and the heartbeat starts the
+	 * AI's turns. The position is recorded after each action of either player.
+	 */
+	private static final class Game extends AbstractActorWithTimers {
+
+		private final BoardGeometry geometry = RulesState.getGeometry();
+		private final GameState gameState;
+		private final AiTurn aiTurn;
+		private final Heartbeat heartbeat;
+		private final AiPlayer human = new RandomAi();
+		private final List<Long> hashes = new ArrayList<>();
+		private final int turns;
+		private final ActorRef result;
+		private int clicks;
+
+		Game(long seed, Config config, int turns, ActorRef result) {
+			this.turns = turns;
+			this.result = result;
+			gameState = startGame(seed);
+			Ponder ponder = new Ponder(() -> AiPlayers.forPondering(config), AiPlayers.ponderExecutor(config),
+					AiPlayers::isSearching, AiPlayers.ponderTime(config));
+			aiTurn = new AiTurn(AiPlayers.fromConfig(config), AiPlayers.executor(config), getSelf(), getTimers(),
+					AiPlayers.turnTime(config), ponder);
+			heartbeat = new Heartbeat(aiTurn);
+			aiTurn.ponder(gameState);
+			getSelf().tell(Step.INSTANCE, ActorRef.noSender());
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.matchEquals(Step.INSTANCE, step -> step())
+					.match(AiTurn.Decision.class, decision -> {
+						aiTurn.onDecision(gameState, decision);
+						played();
+					})
+					.match(AiTurn.Deadline.class, deadline -> {
+						aiTurn.onDeadline(gameState, deadline);
+						played();
+					}).build();
+		}
+
+		@Override
+		public void postStop() {
+			aiTurn.cancel();
+		}
+
+		private void step() {
+			if (aiTurn.isPlaying()) {
+				// the next decision steps on
+				return;
+			}
+			if (GameStateAdapter.isGameOver(gameState) || gameState.getTurnCount() > turns) {
+				result.tell(new Played(gameState, hashes), getSelf());
+				getContext().stop(getSelf());
+				return;
+			}
+			if (gameState.getCurrentState() == null) {
+				heartbeat.processEvent(null, gameState, Json.newObject());
+				return;
+			}
+			int action = human.nextAction(GameStateAdapter.snapshot(gameState, clicks));
+			switch (Action.type(action)) {
+				case Action.END_TURN:
+					click(new EndTurnClicked(), Json.newObject());
+					break;
+				case Action.SUMMON:
+				case Action.SPELL:
+					click(new CardClicked(), Json.newObject().put("position", Action.a(action) + 1));
+					clickTile(Action.b(action));
+					break;
+				case Action.ATTACK:
+					// the tiles choose where a unit moves on the way
+					clickTile(Action.a(action));
+					clickTile(Action.c(action));
+					break;
+				default:
+					clickTile(Action.a(action));
+					clickTile(Action.b(action));
+			}
+			played();
+		}
+
+		private void clickTile(int cell) {
+			click(new TileClicked(), Json.newObject()
+					.put("tilex", geometry.cellX(cell)).put("tiley", geometry.cellY(cell)));
+		}
+
+		private void click(events.EventProcessor processor, ObjectNode message) {
+			clicks++;
+			processor.processEvent(null, gameState, message);
+			aiTurn.ponder(gameState);
+		}
+
+		private void played() {
+			if (!GameStateAdapter.isGameOver(gameState)) {
+				hashes.add(GameStateAdapter.snapshot(gameState, 0).getHash());
+			}
+			getSelf().tell(Step.INSTANCE, ActorRef.noSender());
+		}
+	}
+
+	private static GameState startGame(long seed) {
+		BasicCommands.altTell = message -> {
+		};
+		GameState gameState = new GameState();
+		ObjectNode message = Json.newObject();
+		message.put("seed", seed);
+		new Initalize().processEvent(null, gameState, message);
+		assertEquals(seed, gameState.getSeed());
+		return gameState;
+	}
+
+	/**
+	 * Both players choose with ai on snapshots seeded by the game, recording each action and the position after it
+	 */
+	private static void play(GameState gameState, AiPlayer ai, List<Integer> actions, List<Long> hashes) {
+		for (int step = 0; step < 300 && !GameStateAdapter.isGameOver(gameState); step++) {
+			startAiTurn(gameState);
+			RulesState state = GameStateAdapter.snapshot(gameState, gameState.nextDecisionSeed());
+			int action = ai.nextAction(state);
+			GameStateAdapter.perform(gameState, action);
+			actions.add(action);
+			if (!GameStateAdapter.isGameOver(gameState)) {
+				hashes.add(GameStateAdapter.snapshot(gameState, 0).getHash());
+			}
+		}
+	}
+
+	/**
+	 * What the Heartbeat does when the AI's turn comes
+	 */
+	private static void startAiTurn(GameState gameState) {
+		if (gameState.getCurrentState() == null) {
+			gameState.setCurrentState(GameState.CurrentState.READY);
+			gameState.addMana(gameState.getCurrentPlayer());
+		}
+	}
+}
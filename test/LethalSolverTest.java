@@ -0,0 +1,95 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ai.LethalSolver;
+import rules.Action;
+import rules.CardCatalog;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Checks that the lethal lines the solver finds win the game, and that it
+ * finds the plainest ones, a damage spell on an avatar with 2 health or less.
+ */
+public class LethalSolverTest {
+
+	private final LethalSolver solver = new LethalSolver();
+
+	@Test
+	public void lethalLinesWinTheGame() {
+		Random random = new Random(5);
+		int lethals = 0;
+		int threats = 0;
+		for (int game = 0; game < 60; game++) {
+			RulesState state = RulesState.newGame(game);
+			while (!state.isGameOver()) {
+				if (solver.findLethal(state) != LethalSolver.NO_LETHAL) {
+					follow(state.copy(), state.getCurrentSide());
+					lethals++;
+				}
+				if (solver.isThreatened(state)) {
+					RulesState next = state.copy();
+					Rules.applyInPlace(next, Action.endTurn(), null);
+					follow(next, RulesState.otherSide(state.getCurrentSide()));
+					threats++;
+				}
+				int[] actions = Rules.legalActions(state);
+				Rules.applyInPlace(state, actions[random.nextInt(actions.length)], null);
+			}
+		}
+		assertTrue(lethals > 0);
+		assertTrue(threats > 0);
+	}
+
+	@Test
+	public void findsADamageSpellOnAWeakAvatar() {
+		Random random = new Random(11);
+		int checked = 0;
+		for (int game = 0; game < 200; game++) {
+			RulesState state = RulesState.newGame(game);
+			while (!state.isGameOver()) {
+				int side = state.getCurrentSide();
+				if (state.getPlayerHealth(RulesState.otherSide(side)) <= 2 && hasAffordableDamageSpell(state)) {
+					assertNotEquals(LethalSolver.NO_LETHAL, solver.findLethal(state));
+					checked++;
+				}
+				int[] actions = Rules.legalActions(state);
+				Rules.applyInPlace(state, actions[random.nextInt(actions.length)], null);
+			}
+		}
+		assertTrue(checked > 0);
+	}
+
+	/**
+	 * Plays the solver's line on state, which must kill the avatar of the side not to play without ending the turn
+	 */
+	private void follow(RulesState state, int side) {
+		while (!state.isGameOver()) {
+			int action = solver.findLethal(state);
+			assertNotEquals(LethalSolver.NO_LETHAL, action);
+			assertTrue(Rules.isLegal(state, action));
+			assertNotEquals(Action.END_TURN, Action.type(action));
+			Rules.applyInPlace(state, action, null);
+			assertEquals(side, state.getCurrentSide());
+		}
+		assertEquals(side, state.getWinner());
+	}
+
+	private static boolean hasAffordableDamageSpell(RulesState state) {
+		int side = state.getCurrentSide();
+		CardCatalog catalog = state.getCatalog();
+		for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+			int cardId = state.getHandCard(side, slot);
+			if (cardId != RulesState.EMPTY && catalog.getSpellEffect(cardId) == CardCatalog.DAMAGE_ENEMY
+					&& catalog.getCost(cardId) <= state.getMana(side)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
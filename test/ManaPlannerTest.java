@@ -0,0 +1,84 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ai.ManaPlanner;
+import rules.Action;
+import rules.CardCatalog;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Checks that the mana planner only plans cards that can be paid for and
+ * played, and that its table gives the same plans as solving again.
+ */
+public class ManaPlannerTest {
+
+	private final ManaPlanner planner = ManaPlanner.forCatalog(CardCatalog.standard());
+
+	@Test
+	public void plansAreAffordableAndRemembered() {
+		Random random = new Random(9);
+		for (int game = 0; game < 30; game++) {
+			RulesState state = RulesState.newGame(game);
+			while (!state.isGameOver()) {
+				int plan = planner.plan(state);
+				assertEquals(planner.solve(state), plan);
+				assertEquals(plan, planner.plan(state));
+				assertTrue(cost(state, plan) <= state.getMana(state.getCurrentSide()));
+				int[] actions = Rules.legalActions(state);
+				Rules.applyInPlace(state, actions[random.nextInt(actions.length)], null);
+			}
+		}
+	}
+
+	@Test
+	public void followingThePlanSpendsItsMana() {
+		int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+		for (int game = 0; game < 30; game++) {
+			RulesState state = RulesState.newGame(game);
+			for (int turn = 0; turn < 12 && !state.isGameOver(); turn++) {
+				int side = state.getCurrentSide();
+				int mana = state.getMana(side);
+				int planned = cost(state, planner.plan(state));
+				assertTrue(planned >= dearestPlayableUnit(state, buffer));
+				for (int slot = planner.nextCard(state); slot != RulesState.EMPTY; slot = planner.nextCard(state)) {
+					int n = MoveGenerator.cardActions(state, slot, buffer, 0);
+					assertTrue(n > 0);
+					Rules.applyInPlace(state, buffer[0], null);
+				}
+				assertEquals(mana - planned, state.getMana(side));
+				Rules.applyInPlace(state, Action.endTurn(), null);
+			}
+		}
+	}
+
+	private static int cost(RulesState state, int plan) {
+		int cost = 0;
+		for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+			if ((plan & 1 << slot) != 0) {
+				cost += state.getCatalog().getCost(state.getHandCard(state.getCurrentSide(), slot));
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Cost of the dearest unit card the side to play can summon now, which any best plan spends at least
+	 */
+	private static int dearestPlayableUnit(RulesState state, int[] buffer) {
+		int dearest = 0;
+		for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+			int cardId = state.getHandCard(state.getCurrentSide(), slot);
+			if (cardId != RulesState.EMPTY && !state.getCatalog().isSpell(cardId)
+					&& MoveGenerator.cardActions(state, slot, buffer, 0) > 0) {
+				dearest = Math.max(dearest, state.getCatalog().getCost(cardId));
+			}
+		}
+		return dearest;
+	}
+}
@@ -0,0 +1,195 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import rules.Action;
+import rules.CardCatalog;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+import structures.BoardGeometry;
+
+/**
+ * Checks that the move generator honours summoning sickness, provoke, ranged
+ * attacks, airdrop and attacking twice on positions set up for each, and
+ * fills a reused buffer with the same actions every time.
+ */
+public class MoveGeneratorTest {
+
+	// cards of the standard catalog
+	private static final int COMODO_CHARGER = 0;
+	private static final int AZURITE_LION = 7;
+	private static final int ROCK_PULVERISER = 20;
+	private static final int PYROMANCER = 25;
+	private static final int PLANAR_SCOUT = 28;
+
+	private final BoardGeometry geometry = RulesState.getGeometry();
+	private final int humanAvatar = geometry.cellIndex(1, 2);
+	private final int aiAvatar = geometry.cellIndex(7, 2);
+
+	@Test
+	public void summonedUnitsWaitForTheirOwnersNextTurn() {
+		Random random = new Random(3);
+		for (int game = 0; game < 50; game++) {
+			RulesState state = RulesState.newGame(game);
+			int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+			while (!state.isGameOver()) {
+				int n = MoveGenerator.generate(state, buffer);
+				int action = buffer[random.nextInt(n)];
+				Rules.applyInPlace(state, action, null);
+				if (Action.type(action) == Action.SUMMON && !state.isGameOver()
+						&& state.hasUnit(Action.b(action))) {
+					assertEquals(0, MoveGenerator.unitActions(state, Action.b(action), buffer, 0));
+					assertEquals(0, MoveGenerator.moveTargets(state, Action.b(action)));
+				}
+			}
+			assertEquals(0, MoveGenerator.generate(state, buffer));
+		}
+	}
+
+	@Test
+	public void reusedBufferMatchesLegalActions() {
+		Random random = new Random(5);
+		int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+		for (int game = 0; game < 20; game++) {
+			RulesState state = RulesState.newGame(game);
+			while (!state.isGameOver()) {
+				int[] legal = Rules.legalActions(state);
+				int n = MoveGenerator.generate(state, buffer);
+				assertArrayEquals(legal, Arrays.copyOf(buffer, n));
+				Rules.applyInPlace(state, legal[random.nextInt(legal.length)], null);
+			}
+		}
+	}
+
+	@Test
+	public void avatarHighlightsMatchItsActions() {
+		RulesState state = RulesState.newGame(1);
+		int avatar = geometry.cellIndex(1, 2);
+
+		long moves = MoveGenerator.moveTargets(state, avatar);
+
+		assertTrue((moves & BoardGeometry.bit(geometry.cellIndex(2, 2))) != 0);
+		assertTrue((moves & BoardGeometry.bit(geometry.cellIndex(3, 2))) != 0);
+		assertEquals(0, moves & state.getOccupied());
+		assertEquals(0, MoveGenerator.attackTargets(state, avatar));
+		assertEquals(0, MoveGenerator.moveTargets(state, geometry.cellIndex(7, 2)));
+	}
+
+	@Test
+	public void provokedUnitOnlyAttacksTheProvoker() {
+		RulesState state = game(COMODO_CHARGER, ROCK_PULVERISER);
+		int human = geometry.cellIndex(3, 2);
+		int ai = geometry.cellIndex(5, 2);
+		int provoker = geometry.cellIndex(4, 2);
+		play(state, Action.move(humanAvatar, human));
+		play(state, Action.endTurn());
+		play(state, Action.move(aiAvatar, ai));
+		play(state, Action.summon(0, provoker));
+		play(state, Action.endTurn());
+
+		assertEquals(0, MoveGenerator.moveTargets(state, human));
+		assertEquals(BoardGeometry.bit(provoker), MoveGenerator.attackTargets(state, human));
+		int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+		int n = MoveGenerator.unitActions(state, human, buffer, 0);
+		assertArrayEquals(new int[]{Action.attack(human, provoker)}, Arrays.copyOf(buffer, n));
+	}
+
+	@Test
+	public void rangedUnitAttacksFromAfar() {
+		RulesState state = game(PYROMANCER, COMODO_CHARGER);
+		int pyromancer = geometry.cellIndex(2, 2);
+		play(state, Action.summon(0, pyromancer));
+		play(state, Action.endTurn());
+		play(state, Action.endTurn());
+
+		assertEquals(0, geometry.neighbourMask(pyromancer) & BoardGeometry.bit(aiAvatar));
+		assertTrue((MoveGenerator.attackTargets(state, pyromancer) & BoardGeometry.bit(aiAvatar)) != 0);
+		assertTrue(Rules.isLegal(state, Action.attack(pyromancer, aiAvatar)));
+		// a unit without ranged attack has to move next to it first
+		assertFalse(Rules.isLegal(state, Action.attack(humanAvatar, aiAvatar)));
+	}
+
+	@Test
+	public void airdropTargetsAnyEmptyCell() {
+		RulesState state = game(PLANAR_SCOUT, COMODO_CHARGER);
+		assertTrue((state.getCatalog().getFlags(PLANAR_SCOUT) & CardCatalog.AIRDROP) != 0);
+
+		long empty = geometry.getAllMask() & ~state.getOccupied();
+		assertEquals(empty, MoveGenerator.cardTargets(state, 0));
+		assertTrue(Rules.isLegal(state, Action.summon(0, geometry.cellIndex(8, 4))));
+		assertFalse(Rules.isLegal(state, Action.summon(0, aiAvatar)));
+	}
+
+	@Test
+	public void twiceUnitAttacksAgain() {
+		RulesState state = game(AZURITE_LION, COMODO_CHARGER);
+		int human = geometry.cellIndex(3, 2);
+		int ai = geometry.cellIndex(5, 2);
+		int lion = geometry.cellIndex(4, 2);
+		play(state, Action.move(humanAvatar, human));
+		play(state, Action.endTurn());
+		play(state, Action.move(aiAvatar, ai));
+		play(state, Action.endTurn());
+		int charger = geometry.cellIndex(5, 1);
+		play(state, Action.summon(0, lion));
+		play(state, Action.endTurn());
+		play(state, Action.summon(0, charger));
+		play(state, Action.endTurn());
+
+		play(state, Action.attack(lion, charger));
+		assertTrue(state.hasUnit(charger));
+		assertTrue(state.getUnitState(lion) != RulesState.HAS_ATTACKED);
+		play(state, Action.attack(lion, charger));
+		assertFalse(state.hasUnit(charger));
+		assertEquals(RulesState.HAS_ATTACKED, state.getUnitState(lion));
+		assertFalse(Rules.isLegal(state, Action.attack(lion, ai)));
+	}
+
+	@Test
+	public void unitSummonedThisTurnHasNoActions() {
+		RulesState state = game(COMODO_CHARGER, COMODO_CHARGER);
+		int human = geometry.cellIndex(3, 2);
+		int ai = geometry.cellIndex(5, 2);
+		int charger = geometry.cellIndex(4, 2);
+		play(state, Action.move(humanAvatar, human));
+		play(state, Action.endTurn());
+		play(state, Action.move(aiAvatar, ai));
+		play(state, Action.endTurn());
+		// next to an enemy and with empty cells around
+		play(state, Action.summon(0, charger));
+
+		int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+		assertEquals(0, MoveGenerator.unitActions(state, charger, buffer, 0));
+		assertEquals(0, MoveGenerator.moveTargets(state, charger));
+		assertEquals(0, MoveGenerator.attackTargets(state, charger));
+		int n = MoveGenerator.generate(state, buffer);
+		for (int i = 0; i < n; i++) {
+			if (Action.type(buffer[i]) == Action.MOVE || Action.type(buffer[i]) == Action.ATTACK) {
+				assertTrue(Action.a(buffer[i]) != charger);
+			}
+		}
+	}
+
+	/**
+	 * A new game where each player's deck is only the one card, so that is the card in every hand slot
+	 */
+	private static RulesState game(int humanCard, int aiCard) {
+		int[] humanDeck = new int[20];
+		int[] aiDeck = new int[20];
+		Arrays.fill(humanDeck, humanCard);
+		Arrays.fill(aiDeck, aiCard);
+		return RulesState.newGame(CardCatalog.standard(), humanDeck, aiDeck, 1);
+	}
+
+	private static void play(RulesState state, int action) {
+		assertTrue(Action.toString(action), Rules.isLegal(state, action));
+		Rules.applyInPlace(state, action, null);
+	}
+}
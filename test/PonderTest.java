@@ -0,0 +1,77 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import actors.Ponder;
+import ai.RandomAi;
+import commands.BasicCommands;
+import events.Initalize;
+import play.libs.Json;
+import rules.Action;
+import rules.GameStateAdapter;
+import rules.RulesState;
+import structures.GameState;
+
+/**
+ * Checks that pondering takes none of the game's decision seeds and plans
+ * each decision with the seed the AI's turn decides it with, so a planned
+ * action is the one the search chooses.
+ */
+public class PonderTest {
+
+	@Test
+	public void ponderingTakesNoDecisionSeed() throws InterruptedException {
+		GameState gameState = startGame(5);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Ponder ponder = new Ponder(RandomAi::new, executor, () -> false, Duration.ofSeconds(10));
+
+		ponder.start(gameState);
+		ponder.start(gameState);
+		finish(executor);
+
+		assertEquals(startGame(5).nextDecisionSeed(), gameState.nextDecisionSeed());
+	}
+
+	@Test
+	public void plannedActionsAreTheSearchedOnes() throws InterruptedException {
+		for (long seed = 0; seed < 20; seed++) {
+			GameState gameState = startGame(seed);
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			Ponder ponder = new Ponder(RandomAi::new, executor, () -> false, Duration.ofSeconds(10));
+			ponder.start(gameState);
+			finish(executor);
+
+			GameStateAdapter.perform(gameState, Action.endTurn());
+			gameState.setCurrentState(GameState.CurrentState.READY);
+			gameState.addMana(gameState.getCurrentPlayer());
+			RulesState state = GameStateAdapter.snapshot(gameState, gameState.nextDecisionSeed());
+			int planned = ponder.plannedAction(state);
+
+			assertTrue(planned != Ponder.NO_PLAN);
+			assertEquals(new RandomAi().nextAction(state), planned);
+		}
+	}
+
+	private static GameState startGame(long seed) {
+		BasicCommands.altTell = message -> {
+		};
+		GameState gameState = new GameState();
+		ObjectNode message = Json.newObject();
+		message.put("seed", seed);
+		new Initalize().processEvent(null, gameState, message);
+		return gameState;
+	}
+
+	private static void finish(ExecutorService executor) throws InterruptedException {
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,244 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import commands.BasicCommands;
+import events.Initalize;
+import play.libs.Json;
+import rules.Action;
+import rules.ActionResult;
+import rules.GameStateAdapter;
+import rules.PresentationEvent;
+import rules.Rules;
+import rules.RulesState;
+import structures.BoardGeometry;
+import structures.GameState;
+import structures.basic.Card;
+import structures.basic.Player;
+
+/**
+ * Checks the headless rules engine, and that it plays the same as the tiles
+ * and units of a running game: the same actions played through both leave
+ * the same position after every action.
+ */
+public class RulesTest {
+
+	private final BoardGeometry geometry = RulesState.getGeometry();
+
+	@Test
+	public void newGameMatchesInitalize() {
+		RulesState state = RulesState.newGame(1);
+
+		assertEquals(RulesState.HUMAN_AVATAR, state.getUnitId(geometry.cellIndex(1, 2)));
+		assertEquals(RulesState.AI_AVATAR, state.getUnitId(geometry.cellIndex(7, 2)));
+		assertEquals(RulesState.READY, state.getUnitState(geometry.cellIndex(1, 2)));
+		assertEquals(RulesState.HUMAN, state.getCurrentSide());
+		assertEquals(2, state.getMana(RulesState.HUMAN));
+		for (int side = RulesState.HUMAN; side <= RulesState.AI; side++) {
+			assertEquals(20, state.getPlayerHealth(side));
+			assertEquals(17, state.getDeckSize(side));
+			assertTrue(state.getHandCard(side, 2) != RulesState.EMPTY);
+			assertEquals(RulesState.EMPTY, state.getHandCard(side, 3));
+		}
+		assertEquals(Action.endTurn(), Rules.legalActions(state)[0]);
+	}
+
+	@Test
+	public void applyLeavesTheOriginalStateUnchanged() {
+		RulesState state = RulesState.newGame(1);
+		int from = geometry.cellIndex(1, 2);
+		int to = geometry.cellIndex(3, 2);
+
+		ActionResult result = Rules.apply(state, Action.move(from, to));
+
+		assertEquals(RulesState.HUMAN_AVATAR, state.getUnitId(from));
+		assertFalse(state.hasUnit(to));
+		assertEquals(RulesState.HUMAN_AVATAR, result.getState().getUnitId(to));
+		assertEquals(RulesState.HAS_MOVED, result.getState().getUnitState(to));
+		assertEquals(PresentationEvent.Type.UNIT_MOVED, result.getEvents().get(0).getType());
+	}
+
+	@Test
+	public void endTurnGivesManaByTurnCount() {
+		RulesState state = RulesState.newGame(1);
+
+		state = Rules.apply(state, Action.endTurn()).getState();
+		assertEquals(RulesState.AI, state.getCurrentSide());
+		assertEquals(0, state.getMana(RulesState.HUMAN));
+		assertEquals(2, state.getMana(RulesState.AI));
+		assertEquals(16, state.getDeckSize(RulesState.HUMAN));
+
+		state = Rules.apply(state, Action.endTurn()).getState();
+		assertEquals(RulesState.HUMAN, state.getCurrentSide());
+		assertEquals(3, state.getMana(RulesState.HUMAN));
+	}
+
+	@Test
+	public void avatarsTradePlayerAttackAndStrikeBack() {
+		int human = geometry.cellIndex(3, 2);
+		int ai = geometry.cellIndex(5, 2);
+		RulesState state = RulesState.newGame(1);
+		state = Rules.apply(state, Action.move(geometry.cellIndex(1, 2), human)).getState();
+		state = Rules.apply(state, Action.endTurn()).getState();
+		state = Rules.apply(state, Action.move(geometry.cellIndex(7, 2), ai)).getState();
+		state = Rules.apply(state, Action.endTurn()).getState();
+
+		state = Rules.apply(state, Action.move(human, geometry.cellIndex(4, 2))).getState();
+		int attack = Action.attack(geometry.cellIndex(4, 2), ai);
+		assertTrue(Rules.isLegal(state, attack));
+		state = Rules.apply(state, attack).getState();
+
+		assertEquals(18, state.getPlayerHealth(RulesState.AI));
+		assertEquals(18, state.getPlayerHealth(RulesState.HUMAN));
+		assertEquals(RulesState.HAS_ATTACKED, state.getUnitState(geometry.cellIndex(4, 2)));
+	}
+
+	@Test
+	public void randomGamesOnlyOfferLegalActionsAndEnd() {
+		Random random = new Random(42);
+		for (int game = 0; game < 50; game++) {
+			RulesState state = RulesState.newGame(game);
+			int actions = 0;
+			while (!state.isGameOver()) {
+				int[] legal = Rules.legalActions(state);
+				assertTrue(legal.length > 0);
+				Rules.applyInPlace(state, legal[random.nextInt(legal.length)], null);
+				assertEquals(state.getOccupied(), state.getUnits(RulesState.HUMAN) | state.getUnits(RulesState.AI));
+				assertTrue(state.getMana(RulesState.HUMAN) >= 0 && state.getMana(RulesState.AI) >= 0);
+				assertTrue(++actions < 10_000);
+			}
+			assertEquals(0, Rules.legalActions(state).length);
+		}
+	}
+
+	@Test
+	public void hashFollowsEveryAction() {
+		Random random = new Random(7);
+		for (int game = 0; game < 20; game++) {
+			RulesState state = RulesState.newGame(game);
+			assertEquals(state.computeHash(), state.getHash());
+			while (!state.isGameOver()) {
+				int[] actions = Rules.legalActions(state);
+				Rules.applyInPlace(state, actions[random.nextInt(actions.length)], null);
+				assertEquals(state.computeHash(), state.getHash());
+			}
+		}
+	}
+
+	@Test
+	public void forcedDrawKeepsTheRestOfTheDeck() {
+		RulesState state = RulesState.newGame(4);
+		int cardId = state.getDeckCard(RulesState.HUMAN, 5);
+		state.forceNextDraw(cardId);
+
+		Rules.applyInPlace(state, Action.endTurn(), null);
+
+		assertEquals(cardId, state.getHandCard(RulesState.HUMAN, 3));
+		assertEquals(16, state.getDeckSize(RulesState.HUMAN));
+		assertEquals(state.copy().getHash(), state.getHash());
+	}
+
+	@Test
+	public void hashWithoutHandIgnoresTheCardDrawn() {
+		RulesState state = RulesState.newGame(6);
+		RulesState other = state.copy();
+		state.forceNextDraw(state.getDeckCard(RulesState.HUMAN, 0));
+		other.forceNextDraw(findOtherCard(other, state.getDeckCard(RulesState.HUMAN, 0)));
+
+		Rules.applyInPlace(state, Action.endTurn(), null);
+		Rules.applyInPlace(other, Action.endTurn(), null);
+
+		assertTrue(state.getHash() != other.getHash());
+		assertEquals(state.getHashWithoutHand(RulesState.HUMAN), other.getHashWithoutHand(RulesState.HUMAN));
+		assertTrue(state.getHashWithoutHand(RulesState.AI) != other.getHashWithoutHand(RulesState.AI));
+	}
+
+	@Test
+	public void playsLikeTheTilesAndUnits() {
+		BasicCommands.altTell = message -> {
+		};
+		Random random = new Random(11);
+		for (int game = 0; game < 60; game++) {
+			GameState gameState = new GameState();
+			ObjectNode message = Json.newObject();
+			message.put("seed", game);
+			new Initalize().processEvent(null, gameState, message);
+			RulesState state = GameStateAdapter.snapshot(gameState, game);
+
+			for (int step = 0; step < 400 && !GameStateAdapter.isGameOver(gameState); step++) {
+				int[] legal = Rules.legalActions(state);
+				int action = legal[random.nextInt(legal.length)];
+				if (Action.type(action) == Action.END_TURN && legal.length > 1 && random.nextInt(3) > 0) {
+					// end fewer turns, so the board fills up
+					action = legal[1 + random.nextInt(legal.length - 1)];
+				}
+				List<List<Integer>> decks = decks(gameState);
+				GameStateAdapter.perform(gameState, action);
+				if (GameStateAdapter.isGameOver(gameState)) {
+					Rules.applyInPlace(state, action, null);
+					assertTrue(Action.toString(action), state.isGameOver());
+					break;
+				}
+				startAiTurn(gameState);
+				// the engine draws the cards the game drew, the deck order is not known
+				for (int side = RulesState.HUMAN; side <= RulesState.AI; side++) {
+					state.forceNextDraw(side, drawnCard(decks.get(side), gameState.getPlayerContainers()[side]));
+				}
+				Rules.applyInPlace(state, action, null);
+
+				assertEquals(Action.toString(action), GameStateAdapter.snapshot(gameState, game).getHash(),
+						state.getHash());
+			}
+		}
+	}
+
+	private static List<List<Integer>> decks(GameState gameState) {
+		List<List<Integer>> decks = new ArrayList<>();
+		for (Player player : gameState.getPlayerContainers()) {
+			List<Integer> deck = new ArrayList<>();
+			for (Card card : player.getDeck()) {
+				deck.add(card.getId());
+			}
+			decks.add(deck);
+		}
+		return decks;
+	}
+
+	/**
+	 * @return the card player drew from deck, EMPTY if none
+	 */
+	private static int drawnCard(List<Integer> deck, Player player) {
+		List<Integer> drawn = new ArrayList<>(deck);
+		for (Card card : player.getDeck()) {
+			drawn.remove(Integer.valueOf(card.getId()));
+		}
+		return drawn.isEmpty() ? RulesState.EMPTY : drawn.get(0);
+	}
+
+	/**
+	 * What the Heartbeat does when the AI's turn comes
+	 */
+	private static void startAiTurn(GameState gameState) {
+		if (gameState.getCurrentState() == null) {
+			gameState.setCurrentState(GameState.CurrentState.READY);
+			gameState.addMana(gameState.getCurrentPlayer());
+		}
+	}
+
+	private static int findOtherCard(RulesState state, int cardId) {
+		for (int i = 0; i < state.getDeckSize(RulesState.HUMAN); i++) {
+			if (state.getDeckCard(RulesState.HUMAN, i) != cardId) {
+				return state.getDeckCard(RulesState.HUMAN, i);
+			}
+		}
+		throw new AssertionError("Deck of one card");
+	}
+}
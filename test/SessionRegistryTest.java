@@ -0,0 +1,148 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import actors.GameActor;
+import actors.GameSocket;
+import actors.SessionRegistry;
+import actors.SocketFlow;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.javadsl.TestKit;
+
+/**
+ * Checks the games the registry runs: new games are admitted up to
+ * max-games and sockets turned away after that, a token resumes its game,
+ * a game that stops frees its place and its token, and a game whose socket
+ * sends nothing is evicted and its page told not to reconnect.
+ */
+public class SessionRegistryTest {
+
+	private static final Duration LONG = Duration.ofMinutes(10);
+	private static final Duration IDLE = Duration.ofMillis(400);
+
+	private ActorSystem system;
+
+	@Before
+	public void startSystem() {
+		system = ActorSystem.create("sessions");
+	}
+
+	@After
+	public void stopSystem() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	@Test
+	public void gamesAreAdmittedUntilBusy() {
+		ActorRef sessions = registry(2, LONG);
+		SessionRegistry.Admitted first = admit(sessions, null);
+		SessionRegistry.Admitted second = admit(sessions, null);
+		assertFalse(first.isResumed());
+		assertFalse(second.isResumed());
+		assertNotEquals(first.getGameId(), second.getGameId());
+		assertNotEquals(first.getGame(), second.getGame());
+
+		TestKit probe = new TestKit(system);
+		sessions.tell(new SessionRegistry.Admit(null), probe.getRef());
+		probe.expectMsg(SessionRegistry.Busy.INSTANCE);
+
+		SessionRegistry.Stats stats = stats(sessions);
+		assertEquals(2, stats.getRunning());
+		assertEquals(2, stats.getAdmitted());
+		assertEquals(1, stats.getBusy());
+	}
+
+	@Test
+	public void tokenResumesItsGame() {
+		ActorRef sessions = registry(1, LONG);
+		SessionRegistry.Admitted admitted = admit(sessions, null);
+		String token = token(admitted.getGame());
+
+		// resumed even though the server is full
+		SessionRegistry.Admitted resumed = admit(sessions, token);
+		assertTrue(resumed.isResumed());
+		assertEquals(admitted.getGameId(), resumed.getGameId());
+		assertSame(admitted.getGame(), resumed.getGame());
+		assertEquals(1, stats(sessions).getResumed());
+
+		TestKit probe = new TestKit(system);
+		sessions.tell(new SessionRegistry.Admit("not a token"), probe.getRef());
+		probe.expectMsg(SessionRegistry.Busy.INSTANCE);
+	}
+
+	@Test
+	public void stoppedGameFreesItsPlaceAndToken() {
+		ActorRef sessions = registry(1, LONG);
+		SessionRegistry.Admitted admitted = admit(sessions, null);
+		String token = token(admitted.getGame());
+
+		TestKit probe = new TestKit(system);
+		probe.watch(admitted.getGame());
+		system.stop(admitted.getGame());
+		probe.expectTerminated(admitted.getGame());
+		probe.awaitCond(() -> stats(sessions).getRunning() == 0);
+
+		SessionRegistry.Admitted next = admit(sessions, token);
+		assertFalse(next.isResumed());
+		assertNotEquals(admitted.getGameId(), next.getGameId());
+	}
+
+	@Test
+	public void quietGameIsEvicted() {
+		ActorRef sessions = registry(2, IDLE);
+		SessionRegistry.Admitted quiet = admit(sessions, null);
+		SessionRegistry.Admitted active = admit(sessions, null);
+		TestKit socket = new TestKit(system);
+		quiet.getGame().tell(new GameActor.Connect(new TestKit(system).getRef(), 0), socket.getRef());
+
+		TestKit probe = new TestKit(system);
+		probe.watch(quiet.getGame());
+		// the other game's socket keeps sending
+		probe.awaitCond(() -> {
+			sessions.tell(new SessionRegistry.Activity(active.getGameId()), ActorRef.noSender());
+			return stats(sessions).getRunning() == 1;
+		});
+		assertEquals(GameSocket.EVICTED, socket.expectMsgClass(SocketFlow.Close.class).getCode());
+		probe.expectTerminated(quiet.getGame());
+		assertEquals(1, stats(sessions).getEvicted());
+		assertTrue(admit(sessions, token(active.getGame())).isResumed());
+	}
+
+	private ActorRef registry(int maxGames, Duration idleTimeout) {
+		return system.actorOf(Props.create(SessionRegistry.class,
+				() -> new SessionRegistry(maxGames, idleTimeout, LONG)));
+	}
+
+	private SessionRegistry.Admitted admit(ActorRef sessions, String token) {
+		TestKit probe = new TestKit(system);
+		sessions.tell(new SessionRegistry.Admit(token), probe.getRef());
+		return probe.expectMsgClass(SessionRegistry.Admitted.class);
+	}
+
+	/**
+	 * @return the token of game, from the hello sent to a page that connects to it
+	 */
+	private String token(ActorRef game) {
+		TestKit out = new TestKit(system);
+		game.tell(new GameActor.Connect(out.getRef(), 0), new TestKit(system).getRef());
+		return out.expectMsgClass(JsonNode.class).path("gameToken").asText();
+	}
+
+	private SessionRegistry.Stats stats(ActorRef sessions) {
+		TestKit probe = new TestKit(system);
+		sessions.tell(SessionRegistry.GetStats.INSTANCE, probe.getRef());
+		return probe.expectMsgClass(SessionRegistry.Stats.class);
+	}
+}
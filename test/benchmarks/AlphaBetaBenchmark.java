@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ai.AlphaBetaAi;
+import ai.RandomAi;
+import ai.TranspositionTable;
+import rules.Action;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Searches positions at the start of the AI's turns, taken from random
+ * games, with the alpha-beta AI, for a few budgets. Reports nodes per
+ * second, the share of table probes that hit and the depth reached, for a
+ * fresh table per budget.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.AlphaBetaBenchmark [positions] [budgets in ms, comma separated]"
+ */
+public class AlphaBetaBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+
+    private static volatile long blackhole;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        String[] budgets = (args.length > 1 ? args[1] : "10,50,200").split(",");
+        List<RulesState> positions = positions(count);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            search(positions, new AlphaBetaAi(10, new TranspositionTable(18)));
+        }
+        System.out.printf("%-10s %-14s %-12s %-10s%n", "budget", "nodes/s", "table hits", "depth");
+        for (String budget : budgets) {
+            int millis = Integer.parseInt(budget.trim());
+            AlphaBetaAi ai = new AlphaBetaAi(millis, new TranspositionTable(18));
+            search(positions, ai);
+            System.out.printf("%-10s %-14.0f %-12s %-10.1f%n", millis + "ms", ai.getNodesPerSecond(),
+                    String.format("%.1f%%", 100 * ai.getHitRate()), ai.getAverageDepth());
+        }
+    }
+
+    private static void search(List<RulesState> positions, AlphaBetaAi ai) {
+        long sum = 0;
+        for (RulesState position : positions) {
+            sum += ai.nextAction(position);
+        }
+        blackhole = sum;
+    }
+
+    /**
+     * Positions where the AI's turn has just started, from random games
+     */
+    private static List<RulesState> positions(int count) {
+        List<RulesState> positions = new ArrayList<>(count);
+        for (int game = 0; positions.size() < count; game++) {
+            RandomAi random = new RandomAi(new Random(game));
+            RulesState state = RulesState.newGame(game);
+            while (!state.isGameOver() && positions.size() < count) {
+                int action = random.nextAction(state);
+                Rules.applyInPlace(state, action, null);
+                if (Action.type(action) == Action.END_TURN && state.getCurrentSide() == RulesState.AI
+                        && !state.isGameOver()) {
+                    positions.add(state.copy());
+                }
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,177 @@
+package benchmarks;
+
+import java.util.Random;
+
+import commands.BasicCommands;
+import structures.Bitboard;
+import structures.BoardGeometry;
+import structures.GameState;
+import structures.Observer;
+import structures.basic.Player;
+import structures.basic.Tile;
+import structures.basic.Unit;
+
+/**
+ * Microbenchmark comparing the board queries the game asks on every click and
+ * AI action (summon range, enemies next to a unit, is a unit provoked) when
+ * answered by scanning the observers, the way the search events did, and
+ * when answered from the Bitboard masks.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.BitboardBenchmark"
+ */
+public class BitboardBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int QUERIES_PER_ROUND = 200_000;
+
+    // results are written here so the JIT cannot drop the queries
+    private static volatile long blackhole;
+
+    public static void main(String[] args) {
+        BasicCommands.altTell = message -> {
+        };
+        int[] unitsPerSide = new int[]{1, 4, 10, 20};
+
+        System.out.printf("%-8s %-14s %-14s%n", "units", "scan ns/op", "bitboard ns/op");
+        for (int units : unitsPerSide) {
+            GameState gameState = buildGameState(units);
+            if (runScan(gameState) != runBitboard(gameState)) {
+                throw new IllegalStateException("scan and bitboard disagree with " + units + " units per side");
+            }
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runScan(gameState);
+                runBitboard(gameState);
+            }
+
+            long scanNanos = 0;
+            long bitboardNanos = 0;
+            long sink = 0;
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                long start = System.nanoTime();
+                sink += runScan(gameState);
+                scanNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                sink += runBitboard(gameState);
+                bitboardNanos += System.nanoTime() - start;
+            }
+
+            double ops = (double) MEASURE_ROUNDS * QUERIES_PER_ROUND;
+            blackhole = sink;
+            System.out.printf("%-8d %-14.2f %-14.2f%n", units * 2, scanNanos / ops, bitboardNanos / ops);
+        }
+    }
+
+    private static GameState buildGameState(int unitsPerSide) {
+        GameState gameState = new GameState();
+        for (int i = 0; i < GameState.BOARD_WIDTH; i++) {
+            for (int j = 0; j < GameState.BOARD_HEIGHT; j++) {
+                Tile tile = new Tile("", 0, 0, 115, 115, i, j);
+                tile.setGameState(gameState);
+                gameState.add(tile);
+            }
+        }
+        Player human = new Player(20, 2, 0, gameState);
+        Player ai = new Player(20, 2, 0, gameState);
+        gameState.addPlayers(human, ai);
+
+        Random random = new Random(42);
+        for (int i = 0; i < unitsPerSide * 2; i++) {
+            Tile tile;
+            do {
+                tile = gameState.getTile(random.nextInt(GameState.BOARD_WIDTH * GameState.BOARD_HEIGHT));
+            } while (tile.getUnitOnTile() != null);
+
+            Unit unit = new Unit();
+            unit.setId(i);
+            unit.setOwner(i % 2 == 0 ? human : ai);
+            unit.setCanProvoke(i % 3 == 0);
+            gameState.add(unit);
+            tile.setUnitOnTile(unit);
+        }
+        return gameState;
+    }
+
+    private static long runScan(GameState gameState) {
+        Player human = gameState.getPlayerContainers()[0];
+        long sink = 0;
+        for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+            int cell = i % 45;
+            sink += scanSummonRange(gameState, human);
+            sink += scanEnemiesAround(gameState, cell, human);
+            sink += scanProvokers(gameState, cell, human);
+        }
+        return sink;
+    }
+
+    private static long runBitboard(GameState gameState) {
+        Bitboard bitboard = gameState.getBitboard();
+        BoardGeometry geometry = gameState.getGeometry();
+        long sink = 0;
+        for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+            int cell = i % 45;
+            sink += bitboard.summonRange(Bitboard.HUMAN);
+            sink += bitboard.enemiesIn(Bitboard.HUMAN, geometry.neighbourMask(cell));
+            sink += bitboard.getProvokers(Bitboard.AI) & geometry.neighbourMask(cell);
+        }
+        return sink;
+    }
+
+    /**
+     * What the validSummonRangeHighlight broadcast computed: every tile asks
+     * whether it holds a unit of player and marks its empty neighbours
+     */
+    private static long scanSummonRange(GameState gameState, Player player) {
+        BoardGeometry geometry = gameState.getGeometry();
+        long range = 0;
+        for (Observer o : gameState.getObservers()) {
+            if (o instanceof Tile) {
+                Tile t = (Tile) o;
+                if (t.getUnitOnTile() != null && t.getUnitOnTile().getOwner() == player) {
+                    for (int cell : geometry.neighbours(gameState.cellOf(t))) {
+                        if (gameState.getTile(cell).getUnitOnTile() == null) {
+                            range |= BoardGeometry.bit(cell);
+                        }
+                    }
+                }
+            }
+        }
+        return range;
+    }
+
+    private static long scanEnemiesAround(GameState gameState, int cell, Player player) {
+        BoardGeometry geometry = gameState.getGeometry();
+        long enemies = 0;
+        for (Observer o : gameState.getObservers()) {
+            if (o instanceof Tile) {
+                Tile t = (Tile) o;
+                int tileCell = gameState.cellOf(t);
+                if (t.getUnitOnTile() != null && t.getUnitOnTile().getOwner() != player
+                        && geometry.isAdjacent(cell, tileCell)) {
+                    enemies |= BoardGeometry.bit(tileCell);
+                }
+            }
+        }
+        return enemies;
+    }
+
+    /**
+     * What the provoke search events computed when a unit of player is clicked
+     */
+    private static long scanProvokers(GameState gameState, int cell, Player player) {
+        BoardGeometry geometry = gameState.getGeometry();
+        long provokers = 0;
+        for (Observer o : gameState.getObservers()) {
+            if (o instanceof Tile) {
+                Tile t = (Tile) o;
+                int tileCell = gameState.cellOf(t);
+                if (t.getUnitOnTile() != null && t.getUnitOnTile().getCanProvoke()
+                        && t.getUnitOnTile().getOwner() != player && geometry.isAdjacent(cell, tileCell)) {
+                    provokers |= BoardGeometry.bit(tileCell);
+                }
+            }
+        }
+        return provokers;
+    }
+}
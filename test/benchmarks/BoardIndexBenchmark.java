@@ -0,0 +1,112 @@
+package benchmarks;
+
+import structures.GameState;
+import structures.Observer;
+import structures.basic.Tile;
+import structures.basic.Unit;
+
+/**
+ * Microbenchmark comparing GameState.getTile (dense board index) with the
+ * old linear scan over the observer list. Summoned units are also observers,
+ * so every miss (an off-board neighbour) gets slower as the game goes on
+ * while the index does not.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.BoardIndexBenchmark"
+ */
+public class BoardIndexBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int LOOKUPS_PER_ROUND = 1_000_000;
+
+    // results are written here so the JIT cannot drop the lookups
+    private static volatile long blackhole;
+
+    public static void main(String[] args) {
+        int[] unitCounts = new int[]{0, 10, 40, 200, 1000};
+
+        System.out.printf("%-8s %-14s %-14s%n", "units", "scan ns/op", "index ns/op");
+        for (int units : unitCounts) {
+            GameState gameState = buildGameState(units);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runScan(gameState);
+                runIndex(gameState);
+            }
+
+            long scanNanos = 0;
+            long indexNanos = 0;
+            long sink = 0;
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                long start = System.nanoTime();
+                sink += runScan(gameState);
+                scanNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                sink += runIndex(gameState);
+                indexNanos += System.nanoTime() - start;
+            }
+
+            double ops = (double) MEASURE_ROUNDS * LOOKUPS_PER_ROUND;
+            blackhole = sink;
+            System.out.printf("%-8d %-14.2f %-14.2f%n", units, scanNanos / ops, indexNanos / ops);
+        }
+    }
+
+    private static GameState buildGameState(int units) {
+        GameState gameState = new GameState();
+        for (int i = 0; i < GameState.BOARD_WIDTH; i++) {
+            for (int j = 0; j < GameState.BOARD_HEIGHT; j++) {
+                Tile tile = new Tile("", 0, 0, 115, 115, i, j);
+                tile.setGameState(gameState);
+                gameState.add(tile);
+            }
+        }
+        // units are added after the tiles, the same order Initalize and summon use
+        for (int i = 0; i < units; i++) {
+            gameState.add(new Unit());
+        }
+        return gameState;
+    }
+
+    private static long runScan(GameState gameState) {
+        long sink = 0;
+        for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+            Tile tile = linearScan(gameState, lookupX(i), lookupY(i));
+            sink += tile == null ? -1 : tile.getTilex();
+        }
+        return sink;
+    }
+
+    private static long runIndex(GameState gameState) {
+        long sink = 0;
+        for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+            Tile tile = gameState.getTile(lookupX(i), lookupY(i));
+            sink += tile == null ? -1 : tile.getTilex();
+        }
+        return sink;
+    }
+
+    // one column/row either side of the board, as the neighbour searches in Heartbeat ask for edge tiles
+    private static int lookupX(int i) {
+        return i % (GameState.BOARD_WIDTH + 2) - 1;
+    }
+
+    private static int lookupY(int i) {
+        return i % (GameState.BOARD_HEIGHT + 2) - 1;
+    }
+
+    /**
+     * The lookup GameState.getTile used before the board index was added
+     */
+    private static Tile linearScan(GameState gameState, int x, int y) {
+        for (Observer o : gameState.getObservers()) {
+            if (o instanceof Tile) {
+                Tile t = (Tile) o;
+                if (t.getTilex() == x && t.getTiley() == y) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+}
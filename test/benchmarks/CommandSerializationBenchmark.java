@@ -0,0 +1,128 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import commands.BasicCommands;
+import play.libs.Json;
+import structures.GameState;
+import structures.basic.Player;
+import structures.basic.Tile;
+import structures.basic.Unit;
+import utils.BasicObjectBuilders;
+import utils.OrderedCardLoader;
+import utils.StaticConfFiles;
+
+/**
+ * Microbenchmark of building the drawTile and setUnitHealth commands, the old
+ * way (write the object to a String with Jackson and parse it back into a
+ * tree) against the cached JSON views of Tile and Unit. Reports time and
+ * bytes allocated per command, and the size of the resulting message.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.CommandSerializationBenchmark"
+ */
+public class CommandSerializationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int COMMANDS_PER_ROUND = 20_000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // results are written here so the JIT cannot drop the work
+    private static volatile long blackhole;
+
+    private interface Command {
+        ObjectNode build() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BasicCommands.altTell = message -> {
+        };
+        GameState gameState = new GameState();
+        Player player = new Player(20, 2, 0, gameState);
+        gameState.addPlayers(player, new Player(20, 2, 0, gameState));
+        player.setDeck(OrderedCardLoader.getPlayer1Cards());
+
+        Tile tile = BasicObjectBuilders.loadTile(StaticConfFiles.tileConf, 1, 2, gameState);
+        Unit unit = BasicObjectBuilders.loadUnit(StaticConfFiles.humanAvatar, 99, Unit.class, gameState);
+        unit.setOwner(player);
+        unit.setTilePosition(tile);
+        tile.setUnitOnTile(unit);
+
+        System.out.printf("%-22s %-12s %-14s %-10s%n", "command", "ns/op", "bytes alloc/op", "json size");
+        report("drawTile (old)", () -> drawTileOld(tile));
+        report("drawTile (view)", () -> drawTile(tile));
+        report("setUnitHealth (old)", () -> setUnitHealthOld(unit));
+        report("setUnitHealth (view)", () -> setUnitHealth(unit));
+    }
+
+    private static void report(String name, Command command) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(command);
+        }
+        long nanos = 0;
+        long bytes = 0;
+        long sink = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.nanoTime();
+            sink += run(command);
+            nanos += System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        }
+        blackhole = sink;
+        double ops = (double) MEASURE_ROUNDS * COMMANDS_PER_ROUND;
+        System.out.printf("%-22s %-12.0f %-14.0f %-10d%n", name, nanos / ops, bytes / ops,
+                command.build().toString().length());
+    }
+
+    private static long run(Command command) throws Exception {
+        long sink = 0;
+        for (int i = 0; i < COMMANDS_PER_ROUND; i++) {
+            sink += command.build().size();
+        }
+        return sink;
+    }
+
+    @SuppressWarnings({"deprecation"})
+    private static ObjectNode drawTileOld(Tile tile) throws Exception {
+        ObjectNode returnMessage = Json.newObject();
+        returnMessage.put("messagetype", "drawTile");
+        returnMessage.put("tile", mapper.readTree(mapper.writeValueAsString(tile)));
+        returnMessage.put("mode", 0);
+        return returnMessage;
+    }
+
+    @SuppressWarnings({"deprecation"})
+    private static ObjectNode drawTile(Tile tile) {
+        ObjectNode returnMessage = Json.newObject();
+        returnMessage.put("messagetype", "drawTile");
+        returnMessage.put("tile", tile.toJson());
+        returnMessage.put("mode", 0);
+        return returnMessage;
+    }
+
+    @SuppressWarnings({"deprecation"})
+    private static ObjectNode setUnitHealthOld(Unit unit) throws Exception {
+        ObjectNode returnMessage = Json.newObject();
+        returnMessage.put("messagetype", "setUnitHealth");
+        returnMessage.put("unit", mapper.readTree(mapper.writeValueAsString(unit)));
+        returnMessage.put("health", unit.getHealth());
+        return returnMessage;
+    }
+
+    @SuppressWarnings({"deprecation"})
+    private static ObjectNode setUnitHealth(Unit unit) {
+        ObjectNode returnMessage = Json.newObject();
+        returnMessage.put("messagetype", "setUnitHealth");
+        returnMessage.put("unit", unit.toJson());
+        returnMessage.put("health", unit.getHealth());
+        return returnMessage;
+    }
+}
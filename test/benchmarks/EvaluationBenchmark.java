@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.Evaluation;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Evaluations per second of the incremental Evaluation.score, which reads the
+ * unit and hand totals the rules engine keeps, against
+ * Evaluation.scoreFromScratch, which adds up every unit and card. Positions
+ * are taken every few actions from random games, so the board has the mix
+ * of units a search stops on.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.EvaluationBenchmark"
+ */
+public class EvaluationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int GAMES = 200;
+    private static final int PASSES_PER_ROUND = 200;
+
+    // results are written here so the JIT cannot drop the evaluations
+    private static volatile double blackhole;
+
+    private interface Evaluator {
+        double score(RulesState state, int side);
+    }
+
+    public static void main(String[] args) {
+        RulesState[] positions = positions();
+        Evaluation evaluation = Evaluation.DEFAULT;
+        System.out.printf("%d positions%n", positions.length);
+        System.out.printf("%-18s %-14s %-10s%n", "evaluator", "evals/s", "ns/eval");
+        report("score", evaluation::score, positions);
+        report("scoreFromScratch", evaluation::scoreFromScratch, positions);
+    }
+
+    private static void report(String name, Evaluator evaluator, RulesState[] positions) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            blackhole += pass(evaluator, positions);
+        }
+        long nanos = 0;
+        double sum = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sum += pass(evaluator, positions);
+            nanos += System.nanoTime() - start;
+        }
+        blackhole = sum;
+        long evaluations = (long) MEASURE_ROUNDS * PASSES_PER_ROUND * positions.length;
+        System.out.printf("%-18s %-14.0f %-10.1f%n", name, evaluations * 1e9 / nanos, (double) nanos / evaluations);
+    }
+
+    private static double pass(Evaluator evaluator, RulesState[] positions) {
+        double sum = 0;
+        for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+            for (RulesState state : positions) {
+                sum += evaluator.score(state, RulesState.AI);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Every fifth position of random games, before they end
+     */
+    private static RulesState[] positions() {
+        List<RulesState> positions = new ArrayList<>();
+        int[] legal = new int[MoveGenerator.MAX_ACTIONS];
+        for (long seed = 0; seed < GAMES; seed++) {
+            RulesState state = RulesState.newGame(seed);
+            long random = seed;
+            for (int actions = 1; !state.isGameOver(); actions++) {
+                int n = MoveGenerator.generate(state, legal);
+                random = random * 6364136223846793005L + 1442695040888963407L;
+                Rules.applyInPlace(state, legal[(int) ((random >>> 33) % n)], null);
+                if (actions % 5 == 0 && !state.isGameOver()) {
+                    positions.add(state.copy());
+                }
+            }
+        }
+        return positions.toArray(new RulesState[0]);
+    }
+}
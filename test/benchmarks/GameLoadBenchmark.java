@@ -0,0 +1,186 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.Done;
+import akka.NotUsed;
+import akka.actor.ActorSystem;
+import akka.http.javadsl.Http;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.ws.Message;
+import akka.http.javadsl.model.ws.TextMessage;
+import akka.http.javadsl.model.ws.WebSocketRequest;
+import akka.stream.KillSwitches;
+import akka.stream.Materializer;
+import akka.stream.SharedKillSwitch;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import play.Application;
+import play.inject.guice.GuiceApplicationBuilder;
+import play.test.Helpers;
+import play.test.TestServer;
+
+/**
+ * Load test of the game server: the latency of the game page and of an
+ * asset, first on an idle server and then while many games are played over
+ * their websockets. Each game initalizes, sends the heartbeat the browser
+ * sends and ends its turn every few seconds, so the AI plays and the
+ * CommandTimeline streams its commands. Game actors run on their own
+ * dispatcher, so page and asset latency should stay about the same under
+ * load. One game in SLOW_EVERY reads a frame per second only, the counts of
+ * the commands waiting for its socket show they stay bounded.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.GameLoadBenchmark [games] [seconds] [engine, game.ai.engine by default]"
+ */
+public class GameLoadBenchmark {
+
+    private static final int PORT = 19001;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int REQUESTS = 400;
+    private static final Duration REQUEST_INTERVAL = Duration.ofMillis(10);
+    private static final Duration HEARTBEAT = Duration.ofSeconds(2);
+    private static final Duration END_TURN = Duration.ofSeconds(5);
+    private static final String PAGE = "/game";
+    private static final String ASSET = "/assets/js/cardgame.js";
+    private static final int SLOW_EVERY = 10;
+    private static final Duration SLOW_FRAME = Duration.ofSeconds(1);
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        GuiceApplicationBuilder builder = new GuiceApplicationBuilder()
+                .configure("play.filters.hosts.allowed", Arrays.asList("."))
+                .configure("game.sessions.max-games", games);
+        //        the engine configured in application.conf, unless another is given
+        if (args.length > 2) {
+            builder = builder.configure("game.ai.engine", args[2]);
+        }
+        Application app = builder.build();
+        TestServer server = Helpers.testServer(PORT, app);
+        server.start();
+        //        the clients of hundreds of games may keep a response waiting for longer than the default second
+        ActorSystem system = ActorSystem.create("load", ConfigFactory.parseString(
+                "akka.http.host-connection-pool.response-entity-subscription-timeout = 10s")
+                .withFallback(ConfigFactory.load()));
+        Materializer materializer = Materializer.matFromSystem(system);
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                time(PAGE, system, materializer);
+                time(ASSET, system, materializer);
+            }
+            System.out.printf("%-22s %-10s %-10s %-10s%n", "requests", "p50 ms", "p99 ms", "max ms");
+            measure("page, idle", PAGE, system, materializer);
+            measure("asset, idle", ASSET, system, materializer);
+
+            SharedKillSwitch killGames = KillSwitches.shared("games");
+            AtomicLong frames = new AtomicLong();
+            AtomicInteger open = new AtomicInteger();
+            for (int i = 0; i < games; i++) {
+                play(system, materializer, killGames, frames, open, i % SLOW_EVERY == 0);
+            }
+            long start = System.nanoTime();
+            long framesBefore = frames.get();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            while (System.nanoTime() < end) {
+                measure("page, " + open.get() + " games", PAGE, system, materializer);
+                measure("asset, " + open.get() + " games", ASSET, system, materializer);
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d of %d games open, %.0f frames/s sent to the games%n", open.get(), games,
+                    (frames.get() - framesBefore) / elapsed);
+            //            games are given ids from 1 in the order they start, game 1 is likely slow
+            System.out.println("slow game 1: " + read("/sessions/1", system, materializer));
+            System.out.println("game 2: " + read("/sessions/2", system, materializer));
+            killGames.shutdown();
+            System.out.println(read("/sessions", system, materializer));
+        } finally {
+            system.terminate();
+            server.stop();
+        }
+    }
+
+    /**
+     * Opens the websocket of one game and plays it until killed
+     *
+     * @param slow whether the game reads a frame per SLOW_FRAME only
+     */
+    private static void play(ActorSystem system, Materializer materializer, SharedKillSwitch kill, AtomicLong frames,
+                             AtomicInteger open, boolean slow) {
+        Duration offset = Duration.ofMillis(ThreadLocalRandom.current().nextLong(HEARTBEAT.toMillis()));
+        Source<Message, NotUsed> clicks = Source.single(text("initalize"))
+                .concat(Source.tick(offset, HEARTBEAT, text("heartbeat"))
+                        .merge(Source.tick(offset.plus(END_TURN), END_TURN, text("endturnclicked")))
+                        .mapMaterializedValue(cancellable -> NotUsed.getInstance()))
+                .via(kill.flow());
+        Sink<Message, CompletionStage<Done>> read = Sink.foreach(message -> {
+            frames.incrementAndGet();
+            // a frame streamed in parts must be read to the end
+            if (message.isText() && !message.asTextMessage().isStrict()) {
+                message.asTextMessage().getStreamedText().runWith(Sink.ignore(), materializer);
+            }
+        });
+        Sink<Message, CompletionStage<Done>> commands = slow
+                ? Flow.of(Message.class).throttle(1, SLOW_FRAME).toMat(read, Keep.right())
+                : read;
+        Flow<Message, Message, CompletionStage<Done>> game = Flow.fromSinkAndSourceMat(commands, clicks, Keep.left());
+        Http.get(system).singleWebSocketRequest(WebSocketRequest.create("ws://localhost:" + PORT + "/gamews"), game,
+                materializer).first().thenAccept(upgrade -> {
+                    if (upgrade.response().status().intValue() == 101) {
+                        open.incrementAndGet();
+                    }
+                });
+    }
+
+    private static Message text(String messageType) {
+        return TextMessage.create("{\"messagetype\":\"" + messageType + "\"}");
+    }
+
+    /**
+     * REQUESTS requests of path one after the other, with a short pause between them
+     */
+    private static void measure(String name, String path, ActorSystem system, Materializer materializer)
+            throws Exception {
+        long[] nanos = time(path, system, materializer);
+        Arrays.sort(nanos);
+        System.out.printf("%-22s %-10.2f %-10.2f %-10.2f%n", name, nanos[REQUESTS / 2] / 1e6,
+                nanos[REQUESTS * 99 / 100] / 1e6, nanos[REQUESTS - 1] / 1e6);
+    }
+
+    /**
+     * @return the time each request took until its whole response was read
+     */
+    private static long[] time(String path, ActorSystem system, Materializer materializer) throws Exception {
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            HttpResponse response = get(path, system).toCompletableFuture().get();
+            response.discardEntityBytes(materializer).completionStage().toCompletableFuture().get();
+            nanos[i] = System.nanoTime() - start;
+            if (response.status().intValue() != 200) {
+                throw new IllegalStateException(path + " answered " + response.status());
+            }
+            Thread.sleep(REQUEST_INTERVAL.toMillis());
+        }
+        return nanos;
+    }
+
+    private static String read(String path, ActorSystem system, Materializer materializer) throws Exception {
+        return get(path, system).toCompletableFuture().get().entity().toStrict(5000, materializer)
+                .toCompletableFuture().get().getData().utf8String();
+    }
+
+    private static CompletionStage<HttpResponse> get(String path, ActorSystem system) {
+        return Http.get(system).singleRequest(HttpRequest.create("http://localhost:" + PORT + path));
+    }
+}
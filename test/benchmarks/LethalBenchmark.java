@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.LethalSolver;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Solves per second of LethalSolver.findLethal and isThreatened on near-lethal
+ * positions, taken from random games whenever either avatar is down to
+ * NEAR_LETHAL health or less, and how many of them have a lethal line. The
+ * allocated bytes per solve are read from the JVM's per-thread counter, and
+ * should be 0.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.LethalBenchmark"
+ */
+public class LethalBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int GAMES = 300;
+    private static final int NEAR_LETHAL = 6;
+
+    // results are written here so the JIT cannot drop the solves
+    private static volatile long blackhole;
+
+    private interface Solve {
+        int solve(LethalSolver solver, RulesState state);
+    }
+
+    public static void main(String[] args) {
+        RulesState[] positions = positions();
+        LethalSolver solver = new LethalSolver();
+        int lethal = 0;
+        int threatened = 0;
+        long nodes = 0;
+        for (RulesState state : positions) {
+            if (solver.findLethal(state) != LethalSolver.NO_LETHAL) {
+                lethal++;
+            }
+            nodes += solver.getNodes();
+            if (solver.isThreatened(state)) {
+                threatened++;
+            }
+        }
+        System.out.printf("%d near-lethal positions, %d lethal, %d threatened, %.1f nodes per findLethal%n",
+                positions.length, lethal, threatened, (double) nodes / positions.length);
+        System.out.printf("%-14s %-14s %-10s %-10s%n", "solve", "solves/s", "ns/solve", "bytes/solve");
+        report("findLethal", solver, (s, state) -> s.findLethal(state), positions);
+        report("isThreatened", solver, (s, state) -> s.isThreatened(state) ? 1 : 0, positions);
+    }
+
+    private static void report(String name, LethalSolver solver, Solve solve, RulesState[] positions) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            blackhole += pass(solver, solve, positions);
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long nanos = 0;
+        long bytes = 0;
+        long sum = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            sum += pass(solver, solve, positions);
+            nanos += System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(thread) - allocated;
+        }
+        blackhole = sum;
+        long solves = (long) MEASURE_ROUNDS * positions.length;
+        System.out.printf("%-14s %-14.0f %-10.1f %-10.2f%n", name, solves * 1e9 / nanos, (double) nanos / solves,
+                (double) bytes / solves);
+    }
+
+    private static long pass(LethalSolver solver, Solve solve, RulesState[] positions) {
+        long sum = 0;
+        for (RulesState state : positions) {
+            sum += solve.solve(solver, state);
+        }
+        return sum;
+    }
+
+    /**
+     * Every position of random games with an avatar at NEAR_LETHAL health or less, before they end
+     */
+    private static RulesState[] positions() {
+        List<RulesState> positions = new ArrayList<>();
+        int[] legal = new int[MoveGenerator.MAX_ACTIONS];
+        for (long seed = 0; seed < GAMES; seed++) {
+            RulesState state = RulesState.newGame(seed);
+            long random = seed;
+            while (!state.isGameOver()) {
+                int n = MoveGenerator.generate(state, legal);
+                random = random * 6364136223846793005L + 1442695040888963407L;
+                Rules.applyInPlace(state, legal[(int) ((random >>> 33) % n)], null);
+                if (!state.isGameOver() && Math.min(state.getPlayerHealth(RulesState.HUMAN),
+                        state.getPlayerHealth(RulesState.AI)) <= NEAR_LETHAL) {
+                    positions.add(state.copy());
+                }
+            }
+        }
+        return positions.toArray(new RulesState[0]);
+    }
+}
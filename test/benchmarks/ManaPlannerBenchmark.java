@@ -0,0 +1,111 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.ManaPlanner;
+import rules.CardCatalog;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Plans per second of ManaPlanner.plan, which looks plans up in its table,
+ * against ManaPlanner.solve, which tries every subset of the hand again.
+ * Positions are taken every few actions from random games, the way a rollout
+ * asks for plans, and are measured again with only the full hands, where
+ * solving has the most subsets to try.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.ManaPlannerBenchmark"
+ */
+public class ManaPlannerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int GAMES = 200;
+    private static final int PASSES_PER_ROUND = 50;
+    private static final int FULL_HAND = 5;
+
+    // results are written here so the JIT cannot drop the plans
+    private static volatile long blackhole;
+
+    private interface Planner {
+        int plan(RulesState state);
+    }
+
+    public static void main(String[] args) {
+        RulesState[] positions = positions();
+        ManaPlanner planner = ManaPlanner.forCatalog(CardCatalog.standard());
+        RulesState[] fullHands = fullHands(positions);
+        System.out.printf("%d positions, %d with %d or more cards in hand%n", positions.length, fullHands.length,
+                FULL_HAND);
+        System.out.printf("%-18s %-14s %-10s%n", "planner", "plans/s", "ns/plan");
+        report("plan", planner::plan, positions);
+        report("solve", planner::solve, positions);
+        report("plan, full hand", planner::plan, fullHands);
+        report("solve, full hand", planner::solve, fullHands);
+    }
+
+    private static void report(String name, Planner planner, RulesState[] positions) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            blackhole += pass(planner, positions);
+        }
+        long nanos = 0;
+        long sum = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sum += pass(planner, positions);
+            nanos += System.nanoTime() - start;
+        }
+        blackhole = sum;
+        long plans = (long) MEASURE_ROUNDS * PASSES_PER_ROUND * positions.length;
+        System.out.printf("%-18s %-14.0f %-10.1f%n", name, plans * 1e9 / nanos, (double) nanos / plans);
+    }
+
+    private static long pass(Planner planner, RulesState[] positions) {
+        long sum = 0;
+        for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+            for (RulesState state : positions) {
+                sum += planner.plan(state);
+            }
+        }
+        return sum;
+    }
+
+    private static RulesState[] fullHands(RulesState[] positions) {
+        List<RulesState> fullHands = new ArrayList<>();
+        for (RulesState state : positions) {
+            int cards = 0;
+            for (int slot = 0; slot < RulesState.HAND_SIZE; slot++) {
+                if (state.getHandCard(state.getCurrentSide(), slot) != RulesState.EMPTY) {
+                    cards++;
+                }
+            }
+            if (cards >= FULL_HAND) {
+                fullHands.add(state);
+            }
+        }
+        return fullHands.toArray(new RulesState[0]);
+    }
+
+    /**
+     * Every fifth position of random games, before they end
+     */
+    private static RulesState[] positions() {
+        List<RulesState> positions = new ArrayList<>();
+        int[] legal = new int[MoveGenerator.MAX_ACTIONS];
+        for (long seed = 0; seed < GAMES; seed++) {
+            RulesState state = RulesState.newGame(seed);
+            long random = seed;
+            for (int actions = 1; !state.isGameOver(); actions++) {
+                int n = MoveGenerator.generate(state, legal);
+                random = random * 6364136223846793005L + 1442695040888963407L;
+                Rules.applyInPlace(state, legal[(int) ((random >>> 33) % n)], null);
+                if (actions % 5 == 0 && !state.isGameOver()) {
+                    positions.add(state.copy());
+                }
+            }
+        }
+        return positions.toArray(new RulesState[0]);
+    }
+}
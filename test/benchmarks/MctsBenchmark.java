@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import ai.AiPlayer;
+import ai.MctsAi;
+import ai.RandomAi;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Plays the MCTS AI (player 2) against the random AI (player 1) on the rules
+ * engine, for a few search budgets, with a tree per core. Reports the win
+ * rate next to what it cost: playouts per second, playouts and CPU
+ * milliseconds per decision.
+ * The random AI against itself is the baseline.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.MctsBenchmark [games] [budgets in ms, comma separated]"
+ */
+public class MctsBenchmark {
+
+    //    a game this long is counted as a draw
+    private static final int MAX_ACTIONS = 2_000;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String[] budgets = (args.length > 1 ? args[1] : "10,50,200").split(",");
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool searchPool = new ForkJoinPool(cores);
+
+        System.out.printf("%-14s %-10s %-14s %-18s %-16s%n",
+                "player 2", "win rate", "playouts/s", "playouts/decision", "cpu ms/decision");
+        System.out.printf("%-14s %-10.2f%n", "random", winRate(games, RandomAi::new));
+        for (String budget : budgets) {
+            int millis = Integer.parseInt(budget.trim());
+            MctsAi[] mcts = new MctsAi[1];
+            double winRate = winRate(games, random -> mcts[0] = new MctsAi(millis, searchPool, cores));
+            long decisions = Math.max(1, mcts[0].getDecisions());
+            System.out.printf("%-14s %-10.2f %-14.0f %-18d %-16.0f%n", "mcts " + millis + "ms", winRate,
+                    mcts[0].getPlayoutsPerSecond(), mcts[0].getPlayouts() / decisions,
+                    mcts[0].getSearchNanos() / 1e6 / decisions * cores);
+        }
+    }
+
+    private interface Opponent {
+        AiPlayer create(Random random);
+    }
+
+    /**
+     * Share of games player 2 wins against the random AI. One opponent
+     * plays all games so its statistics add up.
+     */
+    private static double winRate(int games, Opponent opponent) {
+        AiPlayer ai = opponent.create(new Random(-1));
+        int wins = 0;
+        for (int game = 0; game < games; game++) {
+            Random random = new Random(game);
+            AiPlayer human = new RandomAi(random);
+            RulesState state = RulesState.newGame(game);
+            for (int i = 0; i < MAX_ACTIONS && !state.isGameOver(); i++) {
+                AiPlayer player = state.getCurrentSide() == RulesState.AI ? ai : human;
+                Rules.applyInPlace(state, player.nextAction(state), null);
+            }
+            if (state.getWinner() == RulesState.AI) {
+                wins++;
+            }
+        }
+        return (double) wins / games;
+    }
+}
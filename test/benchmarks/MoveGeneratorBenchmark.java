@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Speed of legal action generation on positions from random games: moves
+ * generated per second by MoveGenerator.generate into one reused buffer, the
+ * way search calls it, next to Rules.legalActions, which returns a new array.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.MoveGeneratorBenchmark"
+ */
+public class MoveGeneratorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int POSITIONS = 20_000;
+    private static final int PASSES_PER_ROUND = 20;
+
+    // results are written here so the JIT cannot drop the generated moves
+    private static volatile long blackhole;
+
+    private interface Generator {
+        /**
+         * @return the number of actions
+         */
+        int generate(RulesState state);
+    }
+
+    public static void main(String[] args) {
+        List<RulesState> positions = positions();
+        int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+        System.out.printf("%-16s %-14s %-14s%n", "generator", "moves/s", "positions/s");
+        report("generate", positions, state -> MoveGenerator.generate(state, buffer));
+        report("legalActions", positions, state -> Rules.legalActions(state).length);
+    }
+
+    private static void report(String name, List<RulesState> positions, Generator generator) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            blackhole += run(positions, generator);
+        }
+        long nanos = 0;
+        long moves = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                moves += run(positions, generator);
+            }
+            nanos += System.nanoTime() - start;
+        }
+        blackhole = moves;
+        double seconds = nanos / 1e9;
+        long generated = (long) MEASURE_ROUNDS * PASSES_PER_ROUND * positions.size();
+        System.out.printf("%-16s %-14.0f %-14.0f%n", name, moves / seconds, generated / seconds);
+    }
+
+    private static long run(List<RulesState> positions, Generator generator) {
+        long sum = 0;
+        for (RulesState position : positions) {
+            sum += generator.generate(position);
+        }
+        return sum;
+    }
+
+    /**
+     * Every position of random games until there are POSITIONS of them
+     */
+    private static List<RulesState> positions() {
+        List<RulesState> positions = new ArrayList<>(POSITIONS);
+        long random = 1;
+        int[] buffer = new int[MoveGenerator.MAX_ACTIONS];
+        for (long seed = 0; positions.size() < POSITIONS; seed++) {
+            RulesState state = RulesState.newGame(seed);
+            while (!state.isGameOver() && positions.size() < POSITIONS) {
+                positions.add(state.copy());
+                int n = MoveGenerator.generate(state, buffer);
+                random = random * 6364136223846793005L + 1442695040888963407L;
+                Rules.applyInPlace(state, buffer[(int) ((random >>> 33) % n)], null);
+            }
+        }
+        return positions;
+    }
+}
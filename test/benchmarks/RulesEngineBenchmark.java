@@ -0,0 +1,95 @@
+package benchmarks;
+
+import rules.ActionResult;
+import rules.MoveGenerator;
+import rules.Rules;
+import rules.RulesState;
+
+/**
+ * Throughput of the headless rules engine: random games played from the
+ * opening to the end, choosing uniformly among the legal actions. Reports
+ * actions applied per second on one core, both in place without events and
+ * with the actions generated into a buffer (the way search uses it), and
+ * through the pure Rules.apply, which copies the state and records the
+ * presentation events.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.RulesEngineBenchmark"
+ */
+public class RulesEngineBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int GAMES_PER_ROUND = 2_000;
+
+    // results are written here so the JIT cannot drop the games
+    private static volatile long blackhole;
+
+    private interface Playout {
+        long play(long seed);
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-16s %-14s %-12s %-12s%n", "mode", "actions/s", "games/s", "actions/game");
+        report("applyInPlace", RulesEngineBenchmark::playInPlace);
+        report("apply", RulesEngineBenchmark::playPure);
+    }
+
+    private static void report(String name, Playout playout) {
+        long seed = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (int game = 0; game < GAMES_PER_ROUND; game++) {
+                blackhole += playout.play(seed++);
+            }
+        }
+        long nanos = 0;
+        long actions = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            for (int game = 0; game < GAMES_PER_ROUND; game++) {
+                actions += playout.play(seed++);
+            }
+            nanos += System.nanoTime() - start;
+        }
+        blackhole = actions;
+        double seconds = nanos / 1e9;
+        long games = (long) MEASURE_ROUNDS * GAMES_PER_ROUND;
+        System.out.printf("%-16s %-14.0f %-12.0f %-12.1f%n", name, actions / seconds, games / seconds,
+                (double) actions / games);
+    }
+
+    /**
+     * Random game, returns the number of actions played
+     */
+    private static long playInPlace(long seed) {
+        RulesState state = RulesState.newGame(seed);
+        long random = seed;
+        long actions = 0;
+        int[] legal = new int[MoveGenerator.MAX_ACTIONS];
+        while (!state.isGameOver()) {
+            int n = MoveGenerator.generate(state, legal);
+            random = next(random);
+            Rules.applyInPlace(state, legal[(int) ((random >>> 33) % n)], null);
+            actions++;
+        }
+        return actions;
+    }
+
+    private static long playPure(long seed) {
+        RulesState state = RulesState.newGame(seed);
+        long random = seed;
+        long actions = 0;
+        while (!state.isGameOver()) {
+            int[] legal = Rules.legalActions(state);
+            random = next(random);
+            ActionResult result = Rules.apply(state, legal[(int) ((random >>> 33) % legal.length)]);
+            state = result.getState();
+            blackhole += result.getEvents().size();
+            actions++;
+        }
+        return actions;
+    }
+
+    private static long next(long random) {
+        return random * 6364136223846793005L + 1442695040888963407L;
+    }
+}
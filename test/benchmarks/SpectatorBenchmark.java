@@ -0,0 +1,166 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.typesafe.config.ConfigFactory;
+
+import actors.GameSocket;
+import actors.SessionRegistry;
+import actors.SocketFlow;
+import actors.SpectatorSocket;
+import actors.Spectators;
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import akka.util.ByteString;
+import play.libs.Json;
+
+/**
+ * Benchmark of the spectators of one game: the human clicks its avatar and
+ * ends a turn every few clicks while the game is watched by no one and then
+ * by many spectators, one in SLOW_EVERY of them never taking a frame from its
+ * socket. Reports how long the human waits for the tiles its avatar may move
+ * to be highlighted, which spectators must not change, and the frames sent
+ * to the spectators against the frames written for them, one write per frame
+ * however many watch.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.SpectatorBenchmark [spectators] [clicks]"
+ */
+public class SpectatorBenchmark {
+
+    // the dispatchers the controller runs sockets on
+    private static final String GAME_DISPATCHER = "game.dispatchers.game";
+    private static final String SPECTATOR_DISPATCHER = "game.dispatchers.spectators";
+    private static final Duration ASK_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration HEARTBEAT = Duration.ofSeconds(1);
+    private static final int SLOW_EVERY = 10;
+    private static final int END_TURN_EVERY = 5;
+    // the tile the human's avatar is summoned on
+    private static final int AVATAR_X = 1;
+    private static final int AVATAR_Y = 2;
+    private static final int MAX_BEHIND = 64;
+
+    // frames the human's socket receives, and those all spectators receive
+    private static final BlockingQueue<JsonNode> playerFrames = new LinkedBlockingQueue<>();
+    private static final AtomicLong spectatorFrames = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int clicks = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ActorSystem system = ActorSystem.create("spectators", ConfigFactory.parseString(
+                "game.ai.engine = random\ngame.ai.turn-millis = 2000").withFallback(ConfigFactory.load()));
+        try {
+            System.out.printf("%-22s %-10s %-10s %-14s %-12s%n", "spectators", "p50 ms", "max ms", "frames sent", "written");
+            run(system, 0, clicks);
+            run(system, spectators, clicks);
+        } finally {
+            system.terminate();
+        }
+    }
+
+    private static void run(ActorSystem system, int spectators, int clicks) throws Exception {
+        ActorRef sessions = system.actorOf(SessionRegistry.props(system.settings().config()));
+        SessionRegistry.Admitted admitted = (SessionRegistry.Admitted) Patterns.ask(sessions,
+                new SessionRegistry.Admit(null), ASK_TIMEOUT).toCompletableFuture().get();
+        ActorRef game = admitted.getGame();
+        playerFrames.clear();
+        ActorRef socket = system.actorOf(GameSocket.props(system.actorOf(Props.create(Page.class)), game, 0)
+                .withDispatcher(GAME_DISPATCHER));
+        playerFrames.poll(5, TimeUnit.SECONDS);
+        socket.tell(message("initalize"), ActorRef.noSender());
+
+        for (int i = 0; i < spectators; i++) {
+            boolean slow = i % SLOW_EVERY == SLOW_EVERY - 1;
+            // the pages stand in for browsers, they must not queue in front of the human's page
+            ActorRef out = system.actorOf(Props.create(Spectator.class, () -> new Spectator(slow))
+                    .withDispatcher(SPECTATOR_DISPATCHER));
+            system.actorOf(SpectatorSocket.props(out, game, MAX_BEHIND).withDispatcher(SPECTATOR_DISPATCHER))
+                    .tell(message("initalize"), ActorRef.noSender());
+        }
+        spectatorFrames.set(0);
+
+        ObjectNode avatar = message("tileclicked");
+        avatar.put("tilex", AVATAR_X);
+        avatar.put("tiley", AVATAR_Y);
+        long[] nanos = new long[clicks];
+        for (int click = 0; click < clicks; click++) {
+            waitUntilQuiet(socket);
+            long start = System.nanoTime();
+            socket.tell(avatar, ActorRef.noSender());
+            playerFrames.poll(5, TimeUnit.SECONDS);
+            nanos[click] = System.nanoTime() - start;
+            waitUntilQuiet(socket);
+            // the second click on the avatar clears the highlight
+            socket.tell(avatar, ActorRef.noSender());
+            if (click % END_TURN_EVERY == END_TURN_EVERY - 1) {
+                socket.tell(message("endturnclicked"), ActorRef.noSender());
+            }
+        }
+        waitUntilQuiet(socket);
+        Arrays.sort(nanos);
+        Spectators.Stats stats = (Spectators.Stats) Patterns.ask(game, Spectators.GetStats.INSTANCE, ASK_TIMEOUT)
+                .toCompletableFuture().get();
+        System.out.printf("%-22d %-10.2f %-10.2f %-14d %-12d%n", spectators, nanos[clicks / 2] / 1e6,
+                nanos[clicks - 1] / 1e6, spectatorFrames.get(), stats.getFrames());
+        system.stop(sessions);
+    }
+
+    /**
+     * Send heartbeats until the AI's turn is over and no more frames come
+     */
+    private static void waitUntilQuiet(ActorRef socket) throws InterruptedException {
+        do {
+            socket.tell(message("heartbeat"), ActorRef.noSender());
+        } while (playerFrames.poll(HEARTBEAT.toMillis(), TimeUnit.MILLISECONDS) != null);
+    }
+
+    private static ObjectNode message(String messageType) {
+        ObjectNode message = Json.newObject();
+        message.put("messagetype", messageType);
+        return message;
+    }
+
+    /**
+     * The human's page, takes every frame at once
+     */
+    private static final class Page extends AbstractActor {
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().match(JsonNode.class, frame -> {
+                playerFrames.add(frame);
+                getSender().tell(SocketFlow.Ack.INSTANCE, getSelf());
+            }).build();
+        }
+    }
+
+    /**
+     * The page of a spectator, a slow one never takes a frame
+     */
+    private static final class Spectator extends AbstractActor {
+        private final boolean slow;
+
+        Spectator(boolean slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().match(ByteString.class, frame -> {
+                spectatorFrames.incrementAndGet();
+                if (!slow) {
+                    getSender().tell(SocketFlow.Ack.INSTANCE, getSelf());
+                }
+            }).build();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+import ai.AiPlayer;
+import ai.AlphaBetaAi;
+import ai.LethalCheckAi;
+import ai.MctsAi;
+import ai.RandomAi;
+import ai.Tournament;
+import ai.TranspositionTable;
+
+/**
+ * Self-play between two AI policies over all cores: the win rate of the
+ * second policy with its confidence interval, and the engine throughput in
+ * games and actions per second. Policies are "random", "mcts" or
+ * "alphabeta", with "+lethal" to check for lethal lines before searching, the
+ * search budget is per decision.
+ * <p>
+ * Run with: sbt "Test/runMain benchmarks.TournamentBenchmark [games] [first] [second] [budget in ms] [threads]"
+ */
+public class TournamentBenchmark {
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String first = args.length > 1 ? args[1] : "random";
+        String second = args.length > 2 ? args[2] : "random";
+        int budgetMillis = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        //        searches get their own pool, a game waiting on its search must not run other games
+        ForkJoinPool searchPool = new ForkJoinPool(threads);
+        Tournament tournament = new Tournament(policy(first, budgetMillis, searchPool),
+                policy(second, budgetMillis, searchPool), pool);
+        System.out.println(first + " vs " + second + " on " + threads + " threads");
+        System.out.println(tournament.play(games, 0));
+        pool.shutdown();
+        searchPool.shutdown();
+    }
+
+    private static LongFunction<AiPlayer> policy(String name, int budgetMillis, ForkJoinPool searchPool) {
+        if (name.endsWith("+lethal")) {
+            LongFunction<AiPlayer> search = policy(name.substring(0, name.length() - "+lethal".length()),
+                    budgetMillis, searchPool);
+            return seed -> new LethalCheckAi(search.apply(seed));
+        }
+        switch (name) {
+            case "random":
+                return seed -> new RandomAi(new Random(seed));
+            case "mcts":
+                return seed -> new MctsAi(budgetMillis, searchPool, 1);
+            case "alphabeta":
+                return seed -> new AlphaBetaAi(budgetMillis, new TranspositionTable(16));
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + name);
+        }
+    }
+}